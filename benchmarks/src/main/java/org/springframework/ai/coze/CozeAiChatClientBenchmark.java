@@ -0,0 +1,90 @@
+package org.springframework.ai.coze;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.api.CozeAiChatOptions;
+import org.springframework.ai.coze.benchmark.BenchmarkFixtures;
+import org.springframework.ai.coze.util.ApiUtils;
+import org.springframework.ai.model.function.FunctionCallback;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures {@link CozeAiChatClient#createRequest(Prompt, boolean)}: message conversion,
+ * the {@code ModelOptionsUtils.merge} calls for default and runtime options and the
+ * function tool resolution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CozeAiChatClientBenchmark {
+
+    @Param({ "1", "8", "32" })
+    public int messages;
+
+    @Param({ "0", "4", "16" })
+    public int tools;
+
+    @Param({ "256" })
+    public int contentChars;
+
+    private CozeAiChatClient chatClient;
+
+    private Prompt prompt;
+
+    private Prompt promptWithRuntimeOptions;
+
+    @Setup
+    public void setup() {
+        List<FunctionCallback> callbacks = BenchmarkFixtures.functionCallbacks(this.tools);
+        Set<String> functions = callbacks.stream().map(FunctionCallback::getName).collect(Collectors.toSet());
+        var options = CozeAiChatOptions.builder()
+                .withModel(CozeAiApi.ChatModel.GLM_4.getValue())
+                .withMaxToken(ApiUtils.DEFAULT_MAX_TOKENS)
+                .withDoSample(Boolean.TRUE)
+                .withTemperature(ApiUtils.DEFAULT_TEMPERATURE)
+                .withTopP(ApiUtils.DEFAULT_TOP_P)
+                .withFunctionCallbacks(callbacks)
+                .withFunctions(functions)
+                .build();
+        // No request is ever sent, the key only has to be present.
+        this.chatClient = new CozeAiChatClient(new CozeAiApi("benchmark-api-key"), options);
+        var conversation = BenchmarkFixtures.conversation(this.messages, this.contentChars);
+        this.prompt = new Prompt(conversation);
+        this.promptWithRuntimeOptions = new Prompt(conversation,
+                CozeAiChatOptions.builder().withTemperature(0.3f).withUser("benchmark-user").build());
+    }
+
+    @Benchmark
+    public CozeAiApi.ChatCompletionRequest createRequest() {
+        return this.chatClient.createRequest(this.prompt, false);
+    }
+
+    @Benchmark
+    public CozeAiApi.ChatCompletionRequest createStreamRequest() {
+        return this.chatClient.createRequest(this.prompt, true);
+    }
+
+    @Benchmark
+    public CozeAiApi.ChatCompletionRequest createRequestWithRuntimeOptions() {
+        return this.chatClient.createRequest(this.promptWithRuntimeOptions, false);
+    }
+
+}
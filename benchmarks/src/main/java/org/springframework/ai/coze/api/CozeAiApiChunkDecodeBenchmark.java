@@ -0,0 +1,72 @@
+package org.springframework.ai.coze.api;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.coze.benchmark.BenchmarkFixtures;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-chunk decode done by {@link CozeAiApi#chatCompletionStream}. One
+ * invocation decodes one server-sent event, {@code data: {...}\n\n}, from its raw bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CozeAiApiChunkDecodeBenchmark {
+
+    /**
+     * Characters of content carried by one chunk, a single token is typically 1-4.
+     */
+    @Param({ "2", "16", "128" })
+    public int contentChars;
+
+    private byte[] event;
+
+    private CozeAiSseDecoder.FrameDecoder<CozeAiApi.ChatCompletionChunk> frames;
+
+    @Setup
+    public void setup() {
+        String json = BenchmarkFixtures.contentChunkJson(BenchmarkFixtures.text(this.contentChars));
+        this.event = ("data: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+        var reader = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .readerFor(CozeAiApi.ChatCompletionChunk.class);
+        // Reused across invocations like it is across the events of one long stream.
+        this.frames = new CozeAiSseDecoder<CozeAiApi.ChatCompletionChunk>(reader).newFrameDecoder();
+    }
+
+    /**
+     * The former path: bytes to a {@link String} line, the data field to another
+     * {@link String}, then {@code ModelOptionsUtils.jsonToObject}.
+     */
+    @Benchmark
+    public CozeAiApi.ChatCompletionChunk decodeString() {
+        String line = new String(this.event, StandardCharsets.UTF_8);
+        String data = line.substring("data: ".length(), line.length() - 2);
+        return ModelOptionsUtils.jsonToObject(data, CozeAiApi.ChatCompletionChunk.class);
+    }
+
+    @Benchmark
+    public List<CozeAiApi.ChatCompletionChunk> decodeBytes() {
+        return this.frames.feed(DefaultDataBufferFactory.sharedInstance.wrap(this.event));
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.springframework.ai.coze.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.coze.benchmark.BenchmarkFixtures;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the accumulation of one streamed tool call window, as done by
+ * {@link CozeAiApi#chatCompletionStream} between the first tool call delta and the
+ * {@code tool_calls} finish reason. One invocation merges the whole window, either
+ * pairwise through {@code merge} or through the mutable {@code accumulator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CozeAiStreamFunctionCallingHelperBenchmark {
+
+    /**
+     * Number of argument deltas in the tool call window.
+     */
+    @Param({ "16", "256", "2048" })
+    public int fragments;
+
+    private final CozeAiStreamFunctionCallingHelper helper = new CozeAiStreamFunctionCallingHelper();
+
+    private List<CozeAiApi.ChatCompletionChunk> chunks;
+
+    @Setup
+    public void setup() {
+        this.chunks = BenchmarkFixtures.toolCallChunks(this.fragments);
+    }
+
+    @Benchmark
+    public CozeAiApi.ChatCompletionChunk merge() {
+        CozeAiApi.ChatCompletionChunk merged = new CozeAiApi.ChatCompletionChunk(null, null, null, null, null, null);
+        for (CozeAiApi.ChatCompletionChunk chunk : this.chunks) {
+            merged = this.helper.merge(merged, chunk);
+        }
+        return merged;
+    }
+
+    @Benchmark
+    public CozeAiApi.ChatCompletionChunk accumulate() {
+        CozeAiStreamFunctionCallingHelper.ChunkAccumulator accumulator = this.helper.accumulator();
+        for (CozeAiApi.ChatCompletionChunk chunk : this.chunks) {
+            accumulator.append(chunk);
+        }
+        return accumulator.toChunk();
+    }
+
+}
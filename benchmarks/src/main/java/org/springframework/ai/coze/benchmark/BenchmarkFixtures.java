@@ -0,0 +1,144 @@
+package org.springframework.ai.coze.benchmark;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.model.function.FunctionCallback;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared, deterministic inputs for the benchmarks. Everything here is built once per
+ * trial so that the measured methods only pay for the code under test.
+ */
+public final class BenchmarkFixtures {
+
+    private static final String SENTENCE = "Coze 是新一代一站式 AI Bot 开发平台, the quick brown fox jumps over the lazy dog. ";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Build a conversation of the given size: one system message followed by alternating
+     * user and assistant turns.
+     * @param messageCount number of messages, including the system message.
+     * @param contentChars approximate number of characters per message.
+     * @return the conversation.
+     */
+    public static List<Message> conversation(int messageCount, int contentChars) {
+        List<Message> messages = new ArrayList<>(messageCount);
+        messages.add(new SystemMessage(text(contentChars)));
+        for (int i = 1; i < messageCount; i++) {
+            messages.add(i % 2 == 1 ? new UserMessage(text(contentChars)) : new AssistantMessage(text(contentChars)));
+        }
+        return messages;
+    }
+
+    /**
+     * @param chars approximate number of characters.
+     * @return a text of (at least) the given length.
+     */
+    public static String text(int chars) {
+        StringBuilder builder = new StringBuilder(chars + SENTENCE.length());
+        while (builder.length() < chars) {
+            builder.append(SENTENCE);
+        }
+        return builder.substring(0, Math.max(chars, 1));
+    }
+
+    /**
+     * @param count number of tools.
+     * @return function callbacks with a realistic JSON schema each.
+     */
+    public static List<FunctionCallback> functionCallbacks(int count) {
+        List<FunctionCallback> callbacks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            callbacks.add(new StaticFunctionCallback("tool_" + i, "Look up the current state of resource #" + i
+                    + " in the internal inventory service.", schema(i)));
+        }
+        return callbacks;
+    }
+
+    private static String schema(int i) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("id", Map.of("type", "string", "description", "Identifier of resource #" + i));
+        properties.put("region", Map.of("type", "string", "enum", List.of("cn-north", "cn-east", "ap-southeast")));
+        properties.put("limit", Map.of("type", "integer", "minimum", 1, "maximum", 100));
+        properties.put("verbose", Map.of("type", "boolean"));
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        schema.put("required", List.of("id"));
+        return ModelOptionsUtils.toJsonString(schema);
+    }
+
+    /**
+     * @param content the delta content.
+     * @return the JSON payload of one streamed content chunk, as sent after "data:".
+     */
+    public static String contentChunkJson(String content) {
+        var chunk = new CozeAiApi.ChatCompletionChunk("chatcmpl-8a9b7c6d5e4f", "chat.completion.chunk", 1717171717L,
+                CozeAiApi.ChatModel.GLM_4.getValue(), "req-0123456789", List.of(new CozeAiApi.ChatCompletionChunk.ChunkChoice(0,
+                        new CozeAiApi.ChatCompletionMessage(content, CozeAiApi.ChatCompletionMessage.Role.ASSISTANT), null)));
+        return ModelOptionsUtils.toJsonString(chunk);
+    }
+
+    /**
+     * Split the arguments of one tool call into the given number of streamed deltas. The
+     * first delta carries the tool call id and function name, the last one the
+     * {@code tool_calls} finish reason, exactly like the upstream does.
+     * @param fragments number of argument deltas.
+     * @return the chunks in arrival order.
+     */
+    public static List<CozeAiApi.ChatCompletionChunk> toolCallChunks(int fragments) {
+        List<CozeAiApi.ChatCompletionChunk> chunks = new ArrayList<>(fragments);
+        for (int i = 0; i < fragments; i++) {
+            String id = (i == 0) ? "call_0123456789" : null;
+            String name = (i == 0) ? "tool_0" : null;
+            String arguments = (i == 0) ? "{\"id\":\"" : (i == fragments - 1) ? "\"}" : "abcdefgh";
+            var toolCall = new CozeAiApi.ChatCompletionMessage.ToolCall(id, (i == 0) ? "function" : null,
+                    new CozeAiApi.ChatCompletionMessage.ChatCompletionFunction(name, arguments));
+            var delta = new CozeAiApi.ChatCompletionMessage(null, (i == 0) ? CozeAiApi.ChatCompletionMessage.Role.ASSISTANT : null,
+                    null, List.of(toolCall));
+            var finishReason = (i == fragments - 1) ? CozeAiApi.ChatCompletionFinishReason.TOOL_CALLS : null;
+            chunks.add(new CozeAiApi.ChatCompletionChunk("chatcmpl-8a9b7c6d5e4f", "chat.completion.chunk", 1717171717L,
+                    CozeAiApi.ChatModel.GLM_4.getValue(), "req-0123456789",
+                    List.of(new CozeAiApi.ChatCompletionChunk.ChunkChoice(0, delta, finishReason))));
+        }
+        return chunks;
+    }
+
+    /**
+     * A function callback with a fixed schema that echoes its input.
+     */
+    public record StaticFunctionCallback(String name, String description, String schema) implements FunctionCallback {
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public String getDescription() {
+            return this.description;
+        }
+
+        @Override
+        public String getInputTypeSchema() {
+            return this.schema;
+        }
+
+        @Override
+        public String call(String functionInput) {
+            return functionInput;
+        }
+
+    }
+
+}
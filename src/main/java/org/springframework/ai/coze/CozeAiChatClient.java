@@ -1,5 +1,9 @@
 package org.springframework.ai.coze;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.ChatClient;
@@ -11,34 +15,136 @@ import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.model.ModelOptionsUtils;
 import org.springframework.ai.model.function.AbstractFunctionCallSupport;
+import org.springframework.ai.model.function.FunctionCallback;
 import org.springframework.ai.model.function.FunctionCallbackContext;
 import org.springframework.ai.retry.RetryUtils;
 import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.batch.CozeAiBatchExecutor;
+import org.springframework.ai.coze.batch.CozeAiBatchOptions;
+import org.springframework.ai.coze.batch.CozeAiBatchResult;
+import org.springframework.ai.coze.cache.ChatRequestKey;
+import org.springframework.ai.coze.cache.CozeAiRequestCoalescer;
+import org.springframework.ai.coze.cache.CozeAiResponseCache;
+import org.springframework.ai.coze.cache.CozeAiToolResultCache;
+import org.springframework.ai.coze.compaction.CozeAiHistoryCompactor;
+import org.springframework.ai.coze.conversation.CozeAiConversationTracker;
+import org.springframework.ai.coze.hedging.CozeAiRequestHedger;
+import org.springframework.ai.coze.metadata.CozeAiChatResponseMetadata;
+import org.springframework.ai.coze.metadata.CozeAiResponseHeaderExtractor;
+import org.springframework.ai.coze.metadata.CozeAiUsageAggregator;
+import org.springframework.ai.coze.metrics.CozeAiMetrics;
+import org.springframework.ai.coze.retry.CozeAiStreamRetry;
+import org.springframework.ai.coze.stream.CozeAiStreamCoalescer;
+import org.springframework.ai.coze.tool.CozeAiToolExecutor;
+import org.springframework.ai.coze.tool.CozeAiToolInvocation;
 import org.springframework.ai.coze.api.CozeAiChatOptions;
+import org.springframework.ai.coze.api.CozeAiGenerationException;
+import org.springframework.ai.coze.api.CozeAiRequestMerger;
 import org.springframework.ai.coze.util.ApiUtils;
 import org.springframework.http.ResponseEntity;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class CozeAiChatClient
         extends AbstractFunctionCallSupport<CozeAiApi.ChatCompletionMessage, CozeAiApi.ChatCompletionRequest, ResponseEntity<CozeAiApi.ChatCompletion>>
         implements ChatClient, StreamingChatClient {
 
+    private static final Retry DEFAULT_REACTIVE_RETRY = Retry.backoff(9, Duration.ofSeconds(2))
+            .maxBackoff(Duration.ofMinutes(3))
+            .filter(CozeAiStreamRetry::isTransient)
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+
+    private static final int FUNCTION_TOOLS_CACHE_SIZE = 256;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
     /**
      * Default options to be used for all chat requests.
      */
     private CozeAiChatOptions defaultOptions;
+    /**
+     * The default options resolved into a request without messages. A snapshot, later
+     * changes of {@link #defaultOptions} apply only after {@link #setDefaultOptions}.
+     */
+    private CozeAiApi.ChatCompletionRequest defaultRequest;
     /**
      * Low-level Coze API library.
      */
     private final CozeAiApi cozeAiApi;
     private final RetryTemplate retryTemplate;
+    /**
+     * Optional exact-match cache for {@link #call(Prompt)}.
+     */
+    private CozeAiResponseCache responseCache;
+    /**
+     * Optional single-flight coalescing of identical in-flight requests.
+     */
+    private CozeAiRequestCoalescer requestCoalescer;
+    /**
+     * Optional hedging of slow blocking exchanges, sits below the retry template.
+     */
+    private CozeAiRequestHedger requestHedger;
+    /**
+     * Optional concurrent execution of the tool calls of one turn.
+     */
+    private CozeAiToolExecutor toolExecutor;
+    /**
+     * Optional memoization of tool call results.
+     */
+    private CozeAiToolResultCache toolResultCache;
+    /**
+     * Runs the functions called from a stream, off the event loop.
+     */
+    private Scheduler toolScheduler = Schedulers.boundedElastic();
+    /**
+     * Optional retry of failed stream subscriptions.
+     */
+    private CozeAiStreamRetry streamRetry;
+    /**
+     * Latency, outcome and usage recording.
+     */
+    private CozeAiMetrics metrics = CozeAiMetrics.NOOP;
+    /**
+     * Optional in-process totals of the reported token usage.
+     */
+    private CozeAiUsageAggregator usageAggregator;
+    /**
+     * Optional tracking of server-side conversations, to send only new messages.
+     */
+    private CozeAiConversationTracker conversationTracker;
+    /**
+     * Optional fitting of the prompt into the context window of the model.
+     */
+    private CozeAiHistoryCompactor historyCompactor;
+    /**
+     * Retry of the exchanges of {@link #callReactive(Prompt)}.
+     */
+    private Retry reactiveRetry = DEFAULT_REACTIVE_RETRY;
+    /**
+     * Optional grouping of streamed content chunks.
+     */
+    private CozeAiStreamCoalescer streamCoalescer;
+    /**
+     * Tool definitions per set of enabled functions.
+     */
+    private final Cache<Set<String>, FunctionTools> functionToolsCache = Caffeine.newBuilder()
+            .maximumSize(FUNCTION_TOOLS_CACHE_SIZE)
+            .build();
 
     public CozeAiChatClient(CozeAiApi cozeAiApi) {
         this(cozeAiApi, CozeAiChatOptions.builder()
@@ -54,6 +160,15 @@ public class CozeAiChatClient
         this(cozeAiApi, options, null, RetryUtils.DEFAULT_RETRY_TEMPLATE);
     }
 
+    /**
+     * The request parameters of the given options are read once here, changing them on
+     * the options afterwards has no effect until they are passed to
+     * {@link #setDefaultOptions(CozeAiChatOptions)}.
+     * @param cozeAiApi the Coze API.
+     * @param options the default options.
+     * @param functionCallbackContext the function callback context, may be {@code null}.
+     * @param retryTemplate the retry template.
+     */
     public CozeAiChatClient(CozeAiApi cozeAiApi, CozeAiChatOptions options,
                             FunctionCallbackContext functionCallbackContext, RetryTemplate retryTemplate) {
         super(functionCallbackContext);
@@ -62,35 +177,374 @@ public class CozeAiChatClient
         Assert.notNull(retryTemplate, "RetryTemplate must not be null");
         this.cozeAiApi = cozeAiApi;
         this.defaultOptions = options;
+        this.defaultRequest = CozeAiRequestMerger.compile(options);
         this.retryTemplate = retryTemplate;
     }
 
+    /**
+     * Replace the default options. They are resolved into a request template once, call
+     * this again after changing the request parameters of the options, also when they are
+     * the same instance.
+     * @param options the default options.
+     */
+    public void setDefaultOptions(CozeAiChatOptions options) {
+        Assert.notNull(options, "Options must not be null");
+        this.defaultOptions = options;
+        this.defaultRequest = CozeAiRequestMerger.compile(options);
+    }
+
+    /**
+     * Serve repeated blocking requests from the given cache, {@code null} to disable.
+     * @param responseCache the response cache.
+     */
+    public void setResponseCache(CozeAiResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Share one upstream exchange between identical concurrent requests, {@code null} to
+     * disable.
+     * @param requestCoalescer the request coalescer.
+     */
+    public void setRequestCoalescer(CozeAiRequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    /**
+     * Start a second identical exchange when a blocking one is slow, {@code null} to
+     * disable. Each retry attempt is hedged on its own. Only stateless requests are hedged,
+     * a request with a {@code conversation_id} is sent once.
+     * @param requestHedger the request hedger.
+     */
+    public void setRequestHedger(CozeAiRequestHedger requestHedger) {
+        this.requestHedger = requestHedger;
+    }
+
+    /**
+     * Run the tool calls of one model turn concurrently, {@code null} runs them one after
+     * another on the calling thread.
+     * @param toolExecutor the tool executor.
+     */
+    public void setToolExecutor(CozeAiToolExecutor toolExecutor) {
+        this.toolExecutor = toolExecutor;
+    }
+
+    /**
+     * Answer repeated calls of idempotent functions from the given cache, {@code null} to
+     * disable.
+     * @param toolResultCache the tool result cache.
+     */
+    public void setToolResultCache(CozeAiToolResultCache toolResultCache) {
+        this.toolResultCache = toolResultCache;
+    }
+
+    /**
+     * Set the scheduler running the functions called from {@link #stream(Prompt)}. Tool
+     * callbacks usually block, so this must not be an event-loop scheduler.
+     * @param toolScheduler the tool scheduler, bounded elastic by default.
+     */
+    public void setToolScheduler(Scheduler toolScheduler) {
+        Assert.notNull(toolScheduler, "toolScheduler must not be null");
+        this.toolScheduler = toolScheduler;
+    }
+
+    /**
+     * Retry streams that fail while being consumed, {@code null} to disable. The retry
+     * template only covers the assembly of a stream.
+     * @param streamRetry the stream retry policy.
+     */
+    public void setStreamRetry(CozeAiStreamRetry streamRetry) {
+        this.streamRetry = streamRetry;
+    }
+
+    /**
+     * Record latencies, outcomes and token usage of the chat calls.
+     * @param metrics the metrics, {@code null} to record nothing.
+     */
+    public void setMetrics(CozeAiMetrics metrics) {
+        this.metrics = (metrics != null ? metrics : CozeAiMetrics.NOOP);
+    }
+
+    /**
+     * Add the token usage of every completion to the given totals, {@code null} to disable.
+     * @param usageAggregator the usage aggregator.
+     */
+    public void setUsageAggregator(CozeAiUsageAggregator usageAggregator) {
+        this.usageAggregator = usageAggregator;
+    }
+
+    /**
+     * Send only the messages a server-side conversation does not hold yet when a request
+     * carries a {@code conversation_id}, {@code null} to always send the full history.
+     * @param conversationTracker the conversation tracker.
+     */
+    public void setConversationTracker(CozeAiConversationTracker conversationTracker) {
+        this.conversationTracker = conversationTracker;
+    }
+
+    /**
+     * Group consecutive content chunks of streams before they are emitted, {@code null}
+     * to emit every chunk as it arrives.
+     * @param streamCoalescer the stream coalescer.
+     */
+    public void setStreamCoalescer(CozeAiStreamCoalescer streamCoalescer) {
+        this.streamCoalescer = streamCoalescer;
+    }
+
+    /**
+     * Compact the history of prompts that would not fit the context window of the model,
+     * {@code null} to send every message. Only a full history is compacted, a delta on a
+     * tracked conversation is sent as is.
+     * @param historyCompactor the history compactor.
+     */
+    public void setHistoryCompactor(CozeAiHistoryCompactor historyCompactor) {
+        this.historyCompactor = historyCompactor;
+    }
 
     @Override
     public ChatResponse call(Prompt prompt) {
 
         var request = createRequest(prompt, false);
 
-        return retryTemplate.execute(ctx -> {
+        boolean cacheable = (this.responseCache != null && this.responseCache.isCacheable(request));
+        ChatRequestKey key = (cacheable || this.requestCoalescer != null) ? ChatRequestKey.of(request) : null;
+        if (cacheable) {
+            ChatResponse cached = this.responseCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
-            ResponseEntity<CozeAiApi.ChatCompletion> completionEntity = this.callWithFunctionSupport(request);
+        ChatResponse response = (this.requestCoalescer != null)
+                ? this.requestCoalescer.call(key, () -> doCall(prompt, request))
+                : doCall(prompt, request);
+        if (cacheable) {
+            this.responseCache.put(key, response);
+        }
+        return response;
+    }
 
-            var chatCompletion = completionEntity.getBody();
-            if (chatCompletion == null) {
-                log.warn("No chat completion returned for prompt: {}", prompt);
-                return new ChatResponse(List.of());
+    private ChatResponse doCall(Prompt prompt, CozeAiApi.ChatCompletionRequest request) {
+
+        CozeAiMetrics.CallObservation observation = this.metrics.startChatCall(request.model(), request.botId());
+        var conversationRequest = toConversationRequest(request);
+        var outgoingRequest = toOutgoingRequest(request, conversationRequest);
+        ResponseEntity<CozeAiApi.ChatCompletion> completionEntity;
+        try {
+            try {
+                completionEntity = retryTemplate.execute(ctx -> this.callWithFunctionSupport(outgoingRequest));
+            }
+            catch (RuntimeException ex) {
+                if (conversationRequest == request || !isConversationMismatch(ex)) {
+                    throw ex;
+                }
+                log.debug("Conversation {} rejected the delta, resending the full history", request.conversationId());
+                this.conversationTracker.invalidate(request.conversationId());
+                var fullRequest = compact(request);
+                completionEntity = retryTemplate.execute(ctx -> this.callWithFunctionSupport(fullRequest));
             }
+        }
+        catch (RuntimeException ex) {
+            observation.error(ex);
+            throw ex;
+        }
+        return toChatResponse(prompt, request, completionEntity, observation);
+    }
 
-            List<Generation> generations = chatCompletion.choices()
-                    .stream()
-                    .map(choice -> new Generation(choice.message().content(), toMap(chatCompletion.id(), choice))
-                            .withGenerationMetadata(ChatGenerationMetadata.from(choice.finishReason().name(), null)))
-                    .toList();
+    /**
+     * Non-blocking counterpart of {@link #call(Prompt)} on the {@link org.springframework.web.reactive.function.client.WebClient}:
+     * no thread waits for the exchange, tool calls run on the tool scheduler and the
+     * follow-up requests are sent the same way. Exchanges are retried with the reactive
+     * retry policy instead of the retry template; the response cache applies, request
+     * coalescing and hedging do not.
+     * @param prompt the prompt.
+     * @return the chat response.
+     */
+    public Mono<ChatResponse> callReactive(Prompt prompt) {
+        return Mono.defer(() -> {
+            var request = createRequest(prompt, false);
+
+            boolean cacheable = (this.responseCache != null && this.responseCache.isCacheable(request));
+            ChatRequestKey key = cacheable ? ChatRequestKey.of(request) : null;
+            if (cacheable) {
+                ChatResponse cached = this.responseCache.get(key);
+                if (cached != null) {
+                    return Mono.just(cached);
+                }
+            }
 
-            return new ChatResponse(generations);
+            CozeAiMetrics.CallObservation observation = this.metrics.startChatCall(request.model(), request.botId());
+            var conversationRequest = toConversationRequest(request);
+            return callWithFunctionSupportReactive(toOutgoingRequest(request, conversationRequest))
+                    .onErrorResume(ex -> conversationRequest != request && isConversationMismatch(ex), ex -> {
+                        log.debug("Conversation {} rejected the delta, resending the full history", request.conversationId());
+                        this.conversationTracker.invalidate(request.conversationId());
+                        return callWithFunctionSupportReactive(compact(request));
+                    })
+                    .doOnError(observation::error)
+                    .map(completionEntity -> {
+                        ChatResponse response = toChatResponse(prompt, request, completionEntity, observation);
+                        if (cacheable) {
+                            this.responseCache.put(key, response);
+                        }
+                        return response;
+                    });
         });
     }
 
+    /**
+     * Retry policy of the exchanges of {@link #callReactive(Prompt)}, mirroring the default
+     * retry template: transient errors only, exponential backoff from 2 seconds, at most 10
+     * attempts.
+     * @param reactiveRetry the retry policy.
+     */
+    public void setReactiveRetry(Retry reactiveRetry) {
+        Assert.notNull(reactiveRetry, "reactiveRetry must not be null");
+        this.reactiveRetry = reactiveRetry;
+    }
+
+    /**
+     * Reactive counterpart of {@link #callWithFunctionSupport}.
+     */
+    private Mono<ResponseEntity<CozeAiApi.ChatCompletion>> callWithFunctionSupportReactive(CozeAiApi.ChatCompletionRequest request) {
+        return this.cozeAiApi.chatCompletionEntityReactive(request)
+                .retryWhen(this.reactiveRetry)
+                .flatMap(response -> {
+                    if (!isToolFunctionCall(response)) {
+                        return Mono.just(response);
+                    }
+                    return Mono.fromCallable(() -> {
+                                List<CozeAiApi.ChatCompletionMessage> conversationHistory = new ArrayList<>(doGetUserMessages(request));
+                                CozeAiApi.ChatCompletionMessage responseMessage = doGetToolResponseMessage(response);
+                                conversationHistory.add(responseMessage);
+                                return createToolResponseRequest(request, responseMessage, conversationHistory, false);
+                            })
+                            .subscribeOn(this.toolScheduler)
+                            .flatMap(this::callWithFunctionSupportReactive);
+                });
+    }
+
+    private ChatResponse toChatResponse(Prompt prompt, CozeAiApi.ChatCompletionRequest request,
+                                        ResponseEntity<CozeAiApi.ChatCompletion> completionEntity,
+                                        CozeAiMetrics.CallObservation observation) {
+        var chatCompletion = completionEntity.getBody();
+        if (chatCompletion == null) {
+            observation.success(null, null);
+            log.warn("No chat completion returned for prompt: {}", prompt);
+            return new ChatResponse(List.of());
+        }
+        observation.success(getFinishReason(chatCompletion), chatCompletion.usage());
+        recordUsage(request, chatCompletion);
+        if (isTrackedConversation(request) && !CollectionUtils.isEmpty(chatCompletion.choices())) {
+            this.conversationTracker.commit(request.conversationId(), request.messages(),
+                    chatCompletion.choices().get(0).message().content());
+        }
+
+        List<Generation> generations = chatCompletion.choices()
+                .stream()
+                .map(choice -> new Generation(choice.message().content(), toMap(chatCompletion.id(), choice))
+                        .withGenerationMetadata(ChatGenerationMetadata.from(choice.finishReason().name(), null)))
+                .toList();
+
+        return new ChatResponse(generations, CozeAiChatResponseMetadata.from(chatCompletion,
+                CozeAiResponseHeaderExtractor.extractRateLimit(completionEntity)));
+    }
+
+    private boolean isTrackedConversation(CozeAiApi.ChatCompletionRequest request) {
+        return (this.conversationTracker != null && StringUtils.hasText(request.conversationId()));
+    }
+
+    /**
+     * Replace the messages of a request on a tracked conversation by the ones the server
+     * does not hold yet.
+     * @return the delta request, or the given request if the full history has to be sent.
+     */
+    private CozeAiApi.ChatCompletionRequest toConversationRequest(CozeAiApi.ChatCompletionRequest request) {
+        if (!isTrackedConversation(request)) {
+            return request;
+        }
+        var delta = this.conversationTracker.prepare(request.conversationId(), request.messages());
+        if (delta.full()) {
+            return request;
+        }
+        return CozeAiRequestMerger.withMessages(request, null, delta.messages(), null);
+    }
+
+    /**
+     * The request to send for the given one: the delta on a tracked conversation, else the
+     * full history, compacted. A delta is not compacted, the server already holds the
+     * history it leaves out; compacting the full history first would shift the window each
+     * turn and the tracker would never find the history it committed.
+     */
+    private CozeAiApi.ChatCompletionRequest toOutgoingRequest(CozeAiApi.ChatCompletionRequest request,
+                                                              CozeAiApi.ChatCompletionRequest conversationRequest) {
+        return (conversationRequest != request ? conversationRequest : compact(request));
+    }
+
+    private CozeAiApi.ChatCompletionRequest compact(CozeAiApi.ChatCompletionRequest request) {
+        return (this.historyCompactor != null ? this.historyCompactor.compact(request) : request);
+    }
+
+    /**
+     * A client error other than authentication or throttling on a delta request means the
+     * server no longer holds the conversation as tracked.
+     */
+    private static boolean isConversationMismatch(Throwable error) {
+        int status = ApiUtils.getStatusCode(error);
+        return status >= 400 && status < 500 && status != 401 && status != 403 && status != 429;
+    }
+
+    private void recordUsage(CozeAiApi.ChatCompletionRequest request, CozeAiApi.ChatCompletion chatCompletion) {
+        recordUsage(request, chatCompletion.model(), chatCompletion.usage());
+    }
+
+    private void recordUsage(CozeAiApi.ChatCompletionRequest request, String model, CozeAiApi.Usage usage) {
+        if (this.usageAggregator != null && usage != null) {
+            this.usageAggregator.record(model != null ? model : request.model(), request.user(), usage);
+        }
+    }
+
+    /**
+     * Call many prompts with the default batch options, see
+     * {@link #callAll(Publisher, CozeAiBatchOptions)}.
+     * @param prompts the prompts.
+     * @return one result per prompt, in input order.
+     */
+    public List<CozeAiBatchResult> callAll(List<Prompt> prompts) {
+        return callAll(prompts, CozeAiBatchOptions.defaults());
+    }
+
+    /**
+     * Call many prompts and wait for all of them.
+     * @param prompts the prompts.
+     * @param options the batch options.
+     * @return one result per prompt.
+     */
+    public List<CozeAiBatchResult> callAll(List<Prompt> prompts, CozeAiBatchOptions options) {
+        return callAll(Flux.fromIterable(prompts), options).collectList().block();
+    }
+
+    /**
+     * Call many prompts with bounded concurrency, pulling prompts as calls complete. A
+     * prompt rejected by the client-side limiter is retried on its own with backoff, other
+     * errors are only retried by the retry template of the call; a prompt that still fails
+     * is reported as a failed result, the other prompts go on. Each prompt takes the path of {@link #call(Prompt)}, including the
+     * cache, rate limiter and key pool.
+     * @param prompts the prompts.
+     * @param options the batch options.
+     * @return one result per prompt, in input order or as they complete.
+     */
+    public Flux<CozeAiBatchResult> callAll(Publisher<Prompt> prompts, CozeAiBatchOptions options) {
+        return new CozeAiBatchExecutor(this::call, this.metrics).execute(prompts, options);
+    }
+
+    private static String getFinishReason(CozeAiApi.ChatCompletion chatCompletion) {
+        if (CollectionUtils.isEmpty(chatCompletion.choices()) || chatCompletion.choices().get(0).finishReason() == null) {
+            return null;
+        }
+        return chatCompletion.choices().get(0).finishReason().name();
+    }
+
     private Map<String, Object> toMap(String id, CozeAiApi.ChatCompletion.Choice choice) {
         Map<String, Object> map = new HashMap<>();
 
@@ -109,47 +563,248 @@ public class CozeAiChatClient
     public Flux<ChatResponse> stream(Prompt prompt) {
         var request = createRequest(prompt, true);
 
-        return retryTemplate.execute(ctx -> {
+        if (this.requestCoalescer != null) {
+            return this.requestCoalescer.stream(ChatRequestKey.of(request), () -> doStream(request));
+        }
+        return doStream(request);
+    }
 
-            var completionChunks = this.cozeAiApi.chatCompletionStream(request);
+    private Flux<ChatResponse> doStream(CozeAiApi.ChatCompletionRequest request) {
+        return retryTemplate.execute(ctx -> {
 
             // For chunked responses, only the first chunk contains the choice role.
             // The rest of the chunks with same ID share the same role.
-            ConcurrentHashMap<String, String> roleMap = new ConcurrentHashMap<>();
+            return Flux.defer(() -> {
+                ConcurrentHashMap<String, String> roleMap = new ConcurrentHashMap<>();
+                CozeAiMetrics.StreamObservation observation = this.metrics.startChatStream(request.model(), request.botId());
+
+                Flux<ChatResponse> responses = streamConversation(request,
+                        conversationRequest -> streamWithFunctionSupport(conversationRequest, roleMap, observation),
+                        response -> (response.getResult() != null ? response.getResult().getOutput().getContent() : null));
+                return observeStream(responses, observation);
+            });
+        });
+    }
+
+    /**
+     * Stream only the content deltas of the answer. Skips the per-chunk {@link ChatResponse},
+     * {@link Generation} and metadata wrappers of {@link #stream(Prompt)}, for clients that
+     * only relay text. Tool calls are handled as in {@link #stream(Prompt)}.
+     * @param prompt the prompt.
+     * @return the content deltas; fails with a {@link CozeAiGenerationException} if the
+     * model ends with {@code network_error}.
+     */
+    public Flux<String> streamContent(Prompt prompt) {
+        return streamContent(prompt, null);
+    }
 
-            return completionChunks.map(chunk -> toChatCompletion(chunk)).map(chatCompletion -> {
+    /**
+     * Stream only the content deltas of the answer, see {@link #streamContent(Prompt)}.
+     * @param prompt the prompt.
+     * @param finishReasonListener notified of the finish reason of the answer, may be
+     * {@code null}.
+     * @return the content deltas.
+     */
+    public Flux<String> streamContent(Prompt prompt,
+                                      Consumer<CozeAiApi.ChatCompletionFinishReason> finishReasonListener) {
+        return Flux.defer(() -> {
+            var request = createRequest(prompt, true);
+            CozeAiMetrics.StreamObservation observation = this.metrics.startChatStream(request.model(), request.botId());
+            Flux<String> content = streamConversation(request,
+                    conversationRequest -> streamContentWithFunctionSupport(conversationRequest, observation, finishReasonListener),
+                    Function.identity());
+            return observeStream(content, observation);
+        });
+    }
 
-                chatCompletion = handleFunctionCallOrReturn(request, ResponseEntity.of(Optional.of(chatCompletion)))
-                        .getBody();
+    private Flux<String> streamContentWithFunctionSupport(CozeAiApi.ChatCompletionRequest request,
+                                                          CozeAiMetrics.StreamObservation observation,
+                                                          Consumer<CozeAiApi.ChatCompletionFinishReason> finishReasonListener) {
+        CozeAiStreamRetry retry = this.streamRetry;
+        Flux<CozeAiApi.ChatCompletionChunk> completionChunks = (retry != null)
+                ? retry.execute(request, this.cozeAiApi::chatCompletionStream)
+                : this.cozeAiApi.chatCompletionStream(request);
+        CozeAiStreamCoalescer coalescer = this.streamCoalescer;
+        if (coalescer != null) {
+            completionChunks = coalescer.coalesce(completionChunks);
+        }
 
-                @SuppressWarnings("null")
-                String id = chatCompletion.id();
+        return completionChunks.concatMap(chunk -> {
+            if (chunk.usage() != null) {
+                observation.onUsage(chunk.usage());
+                recordUsage(request, chunk.model(), chunk.usage());
+            }
+            if (CollectionUtils.isEmpty(chunk.choices())) {
+                return Mono.empty();
+            }
+            var choice = chunk.choices().get(0);
+            if (choice.delta() != null && !CollectionUtils.isEmpty(choice.delta().toolCalls())) {
+                return Mono.fromCallable(() -> {
+                            var responseMessage = choice.delta();
+                            List<CozeAiApi.ChatCompletionMessage> conversationHistory = new ArrayList<>(doGetUserMessages(request));
+                            conversationHistory.add(responseMessage);
+                            return createToolResponseRequest(request, responseMessage, conversationHistory, true);
+                        })
+                        .subscribeOn(this.toolScheduler)
+                        .flatMapMany(toolResponseRequest -> streamContentWithFunctionSupport(toolResponseRequest,
+                                observation, finishReasonListener));
+            }
+
+            String content = (choice.delta() != null ? choice.delta().content() : null);
+            boolean hasContent = (content != null && !content.isEmpty());
+            if (hasContent) {
+                observation.onToken();
+            }
+            if (choice.finishReason() == null) {
+                return hasContent ? Mono.just(content) : Mono.empty();
+            }
+            var finishReason = choice.finishReason();
+            observation.onFinishReason(finishReason.name());
+            // Signalled after the last delta has been delivered.
+            Mono<String> finish = Mono.fromRunnable(() -> {
+                if (finishReasonListener != null) {
+                    finishReasonListener.accept(finishReason);
+                }
+                if (finishReason == CozeAiApi.ChatCompletionFinishReason.NETWORK_ERROR) {
+                    throw new CozeAiGenerationException(finishReason);
+                }
+            });
+            return hasContent ? Flux.concat(Mono.just(content), finish) : finish;
+        });
+    }
 
-                List<Generation> generations = chatCompletion.choices().stream().map(choice -> {
-                    if (choice.message().role() != null) {
-                        roleMap.putIfAbsent(id, choice.message().role().name());
+    /**
+     * Track the answer of a stream on a server-side conversation, resending the full
+     * history if the server rejects the delta before anything was emitted.
+     */
+    private <T> Flux<T> streamConversation(CozeAiApi.ChatCompletionRequest request,
+                                           Function<CozeAiApi.ChatCompletionRequest, Flux<T>> streamer,
+                                           Function<T, String> contentOf) {
+        if (!isTrackedConversation(request)) {
+            return streamer.apply(compact(request));
+        }
+        var conversationRequest = toConversationRequest(request);
+        StringBuilder reply = new StringBuilder();
+        AtomicBoolean emitted = new AtomicBoolean();
+        return streamer.apply(toOutgoingRequest(request, conversationRequest))
+                .doOnNext(element -> emitted.set(true))
+                .onErrorResume(ex -> conversationRequest != request && !emitted.get() && isConversationMismatch(ex),
+                        ex -> {
+                            log.debug("Conversation {} rejected the delta, resending the full history",
+                                    request.conversationId());
+                            this.conversationTracker.invalidate(request.conversationId());
+                            return streamer.apply(compact(request));
+                        })
+                .doOnNext(element -> {
+                    String content = contentOf.apply(element);
+                    if (content != null) {
+                        reply.append(content);
+                    }
+                })
+                .doOnComplete(() -> this.conversationTracker.commit(request.conversationId(),
+                        request.messages(), reply.toString()))
+                .doOnError(ex -> this.conversationTracker.invalidate(request.conversationId()));
+    }
+
+    private static <T> Flux<T> observeStream(Flux<T> stream, CozeAiMetrics.StreamObservation observation) {
+        return stream
+                .doOnError(observation::error)
+                .doFinally(signal -> {
+                    if (signal == SignalType.ON_COMPLETE) {
+                        observation.complete();
                     }
-                    String finish = (choice.finishReason() != null ? choice.finishReason().name() : "");
-                    var generation = new Generation(choice.message().content(),
-                            Map.of("id", id, "role", roleMap.get(id), "finishReason", finish));
-                    if (choice.finishReason() != null) {
-                        generation = generation
-                                .withGenerationMetadata(ChatGenerationMetadata.from(choice.finishReason().name(), null));
+                    else if (signal == SignalType.CANCEL) {
+                        observation.cancel();
                     }
-                    return generation;
-                }).toList();
-                return new ChatResponse(generations);
-            });
+                });
+    }
+
+    /**
+     * Reactive counterpart of {@link #callWithFunctionSupport}: a tool call chunk runs the
+     * functions on the tool scheduler and continues with a streamed follow-up request, so
+     * neither the tools nor the follow-up block the event loop and the final answer is
+     * still delivered token by token.
+     */
+    private Flux<ChatResponse> streamWithFunctionSupport(CozeAiApi.ChatCompletionRequest request,
+                                                        Map<String, String> roleMap,
+                                                        CozeAiMetrics.StreamObservation observation) {
+        CozeAiStreamRetry retry = this.streamRetry;
+        Flux<CozeAiApi.ChatCompletionChunk> completionChunks = (retry != null)
+                ? retry.execute(request, this.cozeAiApi::chatCompletionStream)
+                : this.cozeAiApi.chatCompletionStream(request);
+        CozeAiStreamCoalescer coalescer = this.streamCoalescer;
+        if (coalescer != null) {
+            completionChunks = coalescer.coalesce(completionChunks);
+        }
+
+        return completionChunks.concatMap(chunk -> {
+            var chatCompletion = toChatCompletion(chunk);
+            var response = ResponseEntity.of(Optional.of(chatCompletion));
+            if (!isToolFunctionCall(response)) {
+                observe(chatCompletion, observation);
+                recordUsage(request, chatCompletion);
+                return Flux.just(toChatResponse(chatCompletion, roleMap));
+            }
+            return Mono.fromCallable(() -> {
+                        List<CozeAiApi.ChatCompletionMessage> conversationHistory = new ArrayList<>(doGetUserMessages(request));
+                        CozeAiApi.ChatCompletionMessage responseMessage = doGetToolResponseMessage(response);
+                        conversationHistory.add(responseMessage);
+                        return createToolResponseRequest(request, responseMessage, conversationHistory, true);
+                    })
+                    .subscribeOn(this.toolScheduler)
+                    .flatMapMany(toolResponseRequest -> streamWithFunctionSupport(toolResponseRequest, roleMap, observation));
         });
     }
 
+    private static void observe(CozeAiApi.ChatCompletion chatCompletion, CozeAiMetrics.StreamObservation observation) {
+        if (chatCompletion.usage() != null) {
+            observation.onUsage(chatCompletion.usage());
+        }
+        if (CollectionUtils.isEmpty(chatCompletion.choices())) {
+            return;
+        }
+        var choice = chatCompletion.choices().get(0);
+        if (choice.message() != null && choice.message().content() != null) {
+            observation.onToken();
+        }
+        if (choice.finishReason() != null) {
+            observation.onFinishReason(choice.finishReason().name());
+        }
+    }
+
+    private ChatResponse toChatResponse(CozeAiApi.ChatCompletion chatCompletion, Map<String, String> roleMap) {
+        String id = chatCompletion.id();
+
+        List<Generation> generations = chatCompletion.choices().stream().map(choice -> {
+            if (choice.message().role() != null) {
+                roleMap.putIfAbsent(id, choice.message().role().name());
+            }
+            String finish = (choice.finishReason() != null ? choice.finishReason().name() : "");
+            var generation = new Generation(choice.message().content(),
+                    Map.of("id", id, "role", roleMap.get(id), "finishReason", finish));
+            if (choice.finishReason() != null) {
+                generation = generation
+                        .withGenerationMetadata(ChatGenerationMetadata.from(choice.finishReason().name(), null));
+            }
+            return generation;
+        }).toList();
+        // Only the final chunk reports the usage of the whole stream.
+        if (chatCompletion.usage() != null) {
+            return new ChatResponse(generations, CozeAiChatResponseMetadata.from(chatCompletion, null));
+        }
+        return new ChatResponse(generations);
+    }
+
     private CozeAiApi.ChatCompletion toChatCompletion(CozeAiApi.ChatCompletionChunk chunk) {
+        if (chunk.choices() == null) {
+            return new CozeAiApi.ChatCompletion(chunk.id(), "chat.completion", chunk.created(), chunk.model(), List.of(), chunk.requestId(), chunk.usage());
+        }
         List<CozeAiApi.ChatCompletion.Choice> choices = chunk.choices()
                 .stream()
                 .map(cc -> new CozeAiApi.ChatCompletion.Choice(cc.index(), cc.delta(), cc.finishReason()))
                 .toList();
 
-        return new CozeAiApi.ChatCompletion(chunk.id(), "chat.completion", chunk.created(), chunk.model(), choices, chunk.requestId(),null);
+        return new CozeAiApi.ChatCompletion(chunk.id(), "chat.completion", chunk.created(), chunk.model(), choices, chunk.requestId(), chunk.usage());
     }
 
     /**
@@ -165,28 +820,24 @@ public class CozeAiChatClient
                         CozeAiApi.ChatCompletionMessage.Role.valueOf(m.getMessageType().name())))
                 .toList();
 
-        var request = new CozeAiApi.ChatCompletionRequest(null, chatCompletionMessages, stream);
+        var request = CozeAiRequestMerger.withMessages(this.defaultRequest, null, chatCompletionMessages, stream);
 
         if (this.defaultOptions != null) {
             Set<String> defaultEnabledFunctions = this.handleFunctionCallbackConfigurations(this.defaultOptions,
                     !IS_RUNTIME_CALL);
 
             functionsForThisRequest.addAll(defaultEnabledFunctions);
-
-            request = ModelOptionsUtils.merge(request, this.defaultOptions, CozeAiApi.ChatCompletionRequest.class);
         }
 
         if (prompt.getOptions() != null) {
             if (prompt.getOptions() instanceof ChatOptions runtimeOptions) {
-                var updatedRuntimeOptions = ModelOptionsUtils.copyToTarget(runtimeOptions, ChatOptions.class,
-                        CozeAiChatOptions.class);
+                var updatedRuntimeOptions = CozeAiRequestMerger.toCozeAiChatOptions(runtimeOptions);
 
                 Set<String> promptEnabledFunctions = this.handleFunctionCallbackConfigurations(updatedRuntimeOptions,
                         IS_RUNTIME_CALL);
                 functionsForThisRequest.addAll(promptEnabledFunctions);
 
-                request = ModelOptionsUtils.merge(updatedRuntimeOptions, request,
-                        CozeAiApi.ChatCompletionRequest.class);
+                request = CozeAiRequestMerger.merge(updatedRuntimeOptions, request);
             }
             else {
                 throw new IllegalArgumentException("Prompt options are not of type ChatOptions: "
@@ -197,20 +848,69 @@ public class CozeAiChatClient
         // Add the enabled functions definitions to the request's tools parameter.
         if (!CollectionUtils.isEmpty(functionsForThisRequest)) {
 
-            request = ModelOptionsUtils.merge(
-                    CozeAiChatOptions.builder().withTools(this.getFunctionTools(functionsForThisRequest)).build(),
-                    request, CozeAiApi.ChatCompletionRequest.class);
+            request = CozeAiRequestMerger.withTools(request, this.getFunctionTools(functionsForThisRequest));
         }
 
         return request;
     }
 
     private List<CozeAiApi.FunctionTool> getFunctionTools(Set<String> functionNames) {
-        return this.resolveFunctionCallbacks(functionNames).stream().map(functionCallback -> {
+        List<FunctionCallback> functionCallbacks = this.resolveFunctionCallbacks(functionNames);
+        FunctionTools cached = this.functionToolsCache.getIfPresent(functionNames);
+        if (cached != null && cached.isResolvedFrom(functionCallbacks)) {
+            return cached.tools();
+        }
+        List<CozeAiApi.FunctionTool> tools = functionCallbacks.stream().map(functionCallback -> {
             var function = new CozeAiApi.FunctionTool.Function(functionCallback.getDescription(),
-                    functionCallback.getName(), functionCallback.getInputTypeSchema());
+                    functionCallback.getName(), toParameters(functionCallback));
             return new CozeAiApi.FunctionTool(function);
         }).toList();
+        this.functionToolsCache.put(Set.copyOf(functionNames), new FunctionTools(List.copyOf(functionCallbacks), tools));
+        return tools;
+    }
+
+    /**
+     * The input type schema of the callback as compact JSON. The tool parameters are
+     * written into the request verbatim, so a schema that is not a JSON object fails here,
+     * once per function set, instead of producing an invalid body on every request.
+     */
+    private static String toParameters(FunctionCallback functionCallback) {
+        String schema = functionCallback.getInputTypeSchema();
+        JsonNode parameters = null;
+        if (StringUtils.hasText(schema)) {
+            try {
+                parameters = ModelOptionsUtils.OBJECT_MAPPER.readTree(schema);
+            }
+            catch (JsonProcessingException ex) {
+                throw new IllegalArgumentException("Invalid input type schema of function '"
+                        + functionCallback.getName() + "': " + ex.getOriginalMessage(), ex);
+            }
+        }
+        if (parameters == null || !parameters.isObject()) {
+            throw new IllegalArgumentException("Input type schema of function '" + functionCallback.getName()
+                    + "' is not a JSON object: " + schema);
+        }
+        return parameters.toString();
+    }
+
+    /**
+     * Tool definitions built from the given callbacks. Only valid while the names still
+     * resolve to the very same callback instances, a re-registered callback rebuilds them.
+     */
+    private record FunctionTools(List<FunctionCallback> functionCallbacks, List<CozeAiApi.FunctionTool> tools) {
+
+        boolean isResolvedFrom(List<FunctionCallback> resolved) {
+            if (resolved.size() != this.functionCallbacks.size()) {
+                return false;
+            }
+            for (int i = 0; i < resolved.size(); i++) {
+                if (resolved.get(i) != this.functionCallbacks.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
     }
 
     //
@@ -220,9 +920,17 @@ public class CozeAiChatClient
     protected CozeAiApi.ChatCompletionRequest doCreateToolResponseRequest(CozeAiApi.ChatCompletionRequest previousRequest,
                                                                           CozeAiApi.ChatCompletionMessage responseMessage,
                                                                           List<CozeAiApi.ChatCompletionMessage> conversationHistory) {
+        return createToolResponseRequest(previousRequest, responseMessage, conversationHistory, false);
+    }
+
+    private CozeAiApi.ChatCompletionRequest createToolResponseRequest(CozeAiApi.ChatCompletionRequest previousRequest,
+                                                                      CozeAiApi.ChatCompletionMessage responseMessage,
+                                                                      List<CozeAiApi.ChatCompletionMessage> conversationHistory,
+                                                                      boolean stream) {
 
         // Every tool-call item requires a separate function call and a response (TOOL)
         // message.
+        List<CozeAiToolInvocation> invocations = new ArrayList<>(responseMessage.toolCalls().size());
         for (CozeAiApi.ChatCompletionMessage.ToolCall toolCall : responseMessage.toolCalls()) {
 
             var functionName = toolCall.function().name();
@@ -232,19 +940,41 @@ public class CozeAiChatClient
                 throw new IllegalStateException("No function callback found for function name: " + functionName);
             }
 
-            String functionResponse = this.functionCallbackRegister.get(functionName).call(functionArguments);
+            invocations.add(new CozeAiToolInvocation(functionName, functionArguments,
+                    this.functionCallbackRegister.get(functionName)));
+        }
+
+        List<String> functionResponses = callTools(invocations);
 
-            // Add the function response to the conversation.
-            conversationHistory
-                    .add(new CozeAiApi.ChatCompletionMessage(functionResponse, CozeAiApi.ChatCompletionMessage.Role.TOOL, functionName, null));
+        // Add the function responses to the conversation, in the order of the calls.
+        for (int i = 0; i < invocations.size(); i++) {
+            conversationHistory.add(new CozeAiApi.ChatCompletionMessage(functionResponses.get(i),
+                    CozeAiApi.ChatCompletionMessage.Role.TOOL, invocations.get(i).name(), null));
         }
 
         // Recursively call chatCompletionWithTools until the model doesn't call a
         // functions anymore.
-        CozeAiApi.ChatCompletionRequest newRequest = new CozeAiApi.ChatCompletionRequest(previousRequest.requestId(), conversationHistory, false);
-        newRequest = ModelOptionsUtils.merge(newRequest, previousRequest, CozeAiApi.ChatCompletionRequest.class);
+        return CozeAiRequestMerger.withMessages(previousRequest, null, conversationHistory, stream);
+    }
 
-        return newRequest;
+    private List<String> callTools(List<CozeAiToolInvocation> invocations) {
+        CozeAiToolResultCache cache = this.toolResultCache;
+        if (cache != null) {
+            return cache.invokeAll(invocations, this::executeTools);
+        }
+        return executeTools(invocations);
+    }
+
+    private List<String> executeTools(List<CozeAiToolInvocation> invocations) {
+        CozeAiToolExecutor executor = this.toolExecutor;
+        if (executor != null) {
+            return executor.invokeAll(invocations);
+        }
+        List<String> responses = new ArrayList<>(invocations.size());
+        for (CozeAiToolInvocation invocation : invocations) {
+            responses.add(invocation.call());
+        }
+        return responses;
     }
 
     @Override
@@ -260,6 +990,11 @@ public class CozeAiChatClient
 
     @Override
     protected ResponseEntity<CozeAiApi.ChatCompletion> doChatCompletion(CozeAiApi.ChatCompletionRequest request) {
+        CozeAiRequestHedger hedger = this.requestHedger;
+        // A hedge would post the turn twice into a server-side conversation.
+        if (hedger != null && !StringUtils.hasText(request.conversationId())) {
+            return hedger.execute(() -> this.cozeAiApi.chatCompletionEntity(request));
+        }
         return this.cozeAiApi.chatCompletionEntity(request);
     }
 
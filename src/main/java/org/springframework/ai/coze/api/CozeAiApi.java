@@ -2,13 +2,27 @@ package org.springframework.ai.coze.api;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.model.ModelOptionsUtils;
 import org.springframework.ai.retry.RetryUtils;
+import org.springframework.ai.coze.credential.CozeAiApiKeyPool;
+import org.springframework.ai.coze.limiter.CozeAiRateLimiter;
+import org.springframework.ai.coze.metrics.CozeAiMetrics;
+import org.springframework.ai.coze.replay.CozeAiRecordReplay;
 import org.springframework.ai.coze.util.ApiUtils;
 import org.springframework.boot.context.properties.bind.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.Name;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.Assert;
@@ -18,22 +32,33 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
+import java.util.function.Function;
 
 public class CozeAiApi {
 
     private static final Logger logger = LoggerFactory.getLogger(CozeAiApi.class);
-    private static final Predicate<String> SSE_DONE_PREDICATE = "[DONE]"::equals;
+    private static final ObjectReader CHUNK_READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(ChatCompletionChunk.class);
     private static final String REQUEST_BODY_NULL_ERROR = "The request body can not be null.";
 
     private final RestClient restClient;
 
     private final WebClient webClient;
 
+    private final CozeAiApiKeyPool apiKeyPool;
+
+    private CozeAiRateLimiter rateLimiter;
+
+    private CozeAiMetrics metrics = CozeAiMetrics.NOOP;
+
+    private CozeAiRecordReplay recordReplay;
+
     /**
      * Create a new client api with DEFAULT_BASE_URL
      * @param apiKey CozeAI api Key.
@@ -60,15 +85,112 @@ public class CozeAiApi {
      */
     public CozeAiApi(String baseUrl, String apiKey, RestClient.Builder restClientBuilder,
                      ResponseErrorHandler responseErrorHandler) {
+        this(baseUrl, apiKey, restClientBuilder, WebClient.builder(), responseErrorHandler);
+    }
+
+    /**
+     * Create a new client api.
+     * @param baseUrl api base URL.
+     * @param apiKey CozeAI api Key.
+     * @param restClientBuilder RestClient builder, used for blocking calls.
+     * @param webClientBuilder WebClient builder, used for streaming calls.
+     * @param responseErrorHandler Response error handler.
+     */
+    public CozeAiApi(String baseUrl, String apiKey, RestClient.Builder restClientBuilder,
+                     WebClient.Builder webClientBuilder, ResponseErrorHandler responseErrorHandler) {
+        this(baseUrl, CozeAiApiKeyPool.of(apiKey), restClientBuilder, webClientBuilder, responseErrorHandler);
+    }
+
+    /**
+     * Create a new client api spreading its requests over several API keys.
+     * @param baseUrl api base URL.
+     * @param apiKeyPool CozeAI api keys.
+     * @param restClientBuilder RestClient builder, used for blocking calls.
+     * @param webClientBuilder WebClient builder, used for streaming calls.
+     * @param responseErrorHandler Response error handler.
+     */
+    public CozeAiApi(String baseUrl, CozeAiApiKeyPool apiKeyPool, RestClient.Builder restClientBuilder,
+                     WebClient.Builder webClientBuilder, ResponseErrorHandler responseErrorHandler) {
 
-        Consumer<HttpHeaders> jsonContentHeaders = ApiUtils.getJsonContentHeaders(apiKey);
+        Assert.notNull(apiKeyPool, "apiKeyPool must not be null");
+        this.apiKeyPool = apiKeyPool;
+
+        // The Authorization header is set per request by the key pool.
+        Consumer<HttpHeaders> jsonContentHeaders = ApiUtils.getJsonContentHeaders();
 
         this.restClient = restClientBuilder.baseUrl(baseUrl)
                 .defaultHeaders(jsonContentHeaders)
                 .defaultStatusHandler(responseErrorHandler)
                 .build();
 
-        this.webClient = WebClient.builder().baseUrl(baseUrl).defaultHeaders(jsonContentHeaders).build();
+        this.webClient = webClientBuilder.baseUrl(baseUrl).defaultHeaders(jsonContentHeaders).build();
+    }
+
+    /**
+     * Set the client-side limiter every call has to pass, {@code null} disables limiting.
+     * @param rateLimiter the limiter.
+     */
+    public void setRateLimiter(CozeAiRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Record latencies, outcomes and token usage of the embedding calls.
+     * @param metrics the metrics, {@code null} to record nothing.
+     */
+    public void setMetrics(CozeAiMetrics metrics) {
+        this.metrics = (metrics != null ? metrics : CozeAiMetrics.NOOP);
+    }
+
+    /**
+     * Record the exchanges to, or replay them from, the given store; {@code null} talks to
+     * the API directly. The raw passthrough stream is neither recorded nor replayed.
+     * @param recordReplay the record/replay layer.
+     */
+    public void setRecordReplay(CozeAiRecordReplay recordReplay) {
+        this.recordReplay = recordReplay;
+    }
+
+    public CozeAiRecordReplay getRecordReplay() {
+        return this.recordReplay;
+    }
+
+    public CozeAiRateLimiter getRateLimiter() {
+        return this.rateLimiter;
+    }
+
+    public CozeAiApiKeyPool getApiKeyPool() {
+        return this.apiKeyPool;
+    }
+
+    private <T> ResponseEntity<T> exchange(Function<String, ResponseEntity<T>> call) {
+        CozeAiRateLimiter limiter = this.rateLimiter;
+        if (limiter == null) {
+            return exchangeWithKey(call);
+        }
+        CozeAiRateLimiter.Permit permit = limiter.acquire();
+        try {
+            ResponseEntity<T> response = exchangeWithKey(call);
+            permit.onSuccess();
+            return response;
+        }
+        catch (RuntimeException | Error ex) {
+            permit.onError(ex);
+            throw ex;
+        }
+    }
+
+    private <T> ResponseEntity<T> exchangeWithKey(Function<String, ResponseEntity<T>> call) {
+        CozeAiApiKeyPool.Lease lease = this.apiKeyPool.acquire();
+        try {
+            ResponseEntity<T> response = call.apply(lease.apiKey());
+            lease.onSuccess();
+            return response;
+        }
+        catch (RuntimeException | Error ex) {
+            lease.onError(ex);
+            throw ex;
+        }
     }
 
     // --------------------------------------------------------------------------
@@ -114,23 +236,56 @@ public class CozeAiApi {
          * to choose when and how to call the function.
          * @param name The name of the function to be called. Must be a-z, A-Z, 0-9, or
          * contain underscores and dashes, with a maximum length of 64.
-         * @param parameters The parameters the functions accepts, described as a JSON
+         * @param parametersJson The parameters the functions accepts, described as a JSON
          * Schema object. To describe a function that accepts no parameters, provide the
-         * value {"type": "object", "properties": {}}.
+         * value {"type": "object", "properties": {}}. Kept as serialized JSON and written
+         * into the request verbatim.
          */
         public record Function(@JsonProperty("description") String description, @JsonProperty("name") String name,
-                               @JsonProperty("parameters") Map<String, Object> parameters) {
+                               @JsonProperty("parameters") @JsonRawValue @JsonDeserialize(using = RawJsonDeserializer.class) String parametersJson) {
 
             /**
              * Create tool function definition.
              * @param description tool function description.
              * @param name tool function name.
-             * @param jsonSchema tool function schema as json.
+             * @param parameters tool function schema as json.
              */
             @ConstructorBinding
-            public Function(String description, String name, String jsonSchema) {
-                this(description, name, ModelOptionsUtils.jsonToMap(jsonSchema));
+            public Function(String description, String name, @Name("json-schema") String parametersJson) {
+                this.description = description;
+                this.name = name;
+                this.parametersJson = parametersJson;
+            }
+
+            /**
+             * Create tool function definition.
+             * @param description tool function description.
+             * @param name tool function name.
+             * @param parameters tool function schema.
+             */
+            public Function(String description, String name, Map<String, Object> parameters) {
+                this(description, name, ModelOptionsUtils.toJsonString(parameters));
+            }
+
+            /**
+             * The parameters schema parsed into a map, a new map on every call.
+             * @return tool function schema.
+             */
+            public Map<String, Object> parameters() {
+                return ModelOptionsUtils.jsonToMap(this.parametersJson);
+            }
+        }
+
+        /**
+         * Reads a JSON value of any shape back into its serialized form.
+         */
+        static class RawJsonDeserializer extends JsonDeserializer<String> {
+
+            @Override
+            public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                return parser.readValueAsTree().toString();
             }
+
         }
     }
 
@@ -155,6 +310,8 @@ public class CozeAiApi {
      * @param tools
      * @param toolChoice
      * @param user
+     * @param botId 要进行会话聊天的 Bot ID
+     * @param conversationId 服务端会话 ID；设置后服务端保留此前的对话，messages 只需包含服务端尚未收到的消息
      */
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public record ChatCompletionRequest(
@@ -169,7 +326,9 @@ public class CozeAiApi {
             @JsonProperty("stop") List<String> stop,
             @JsonProperty("tools") List<FunctionTool> tools,
             @JsonProperty("tool_choice") String toolChoice,
-            @JsonProperty("user_id") String user) {
+            @JsonProperty("user_id") String user,
+            @JsonProperty("bot_id") String botId,
+            @JsonProperty("conversation_id") String conversationId) {
 
         /**
          * Shortcut constructor for a chat completion request with the given messages and model.
@@ -181,7 +340,7 @@ public class CozeAiApi {
          */
         public ChatCompletionRequest(String requestId, String model, List<ChatCompletionMessage> messages, Float temperature) {
             this(requestId, model, messages, null, null, temperature, null,
-                    null, null, null, null, null);
+                    null, null, null, null, null, null, null);
         }
 
         /**
@@ -195,7 +354,7 @@ public class CozeAiApi {
          *                    as they become available, with the stream terminated by a data: [DONE] message.
          */
         public ChatCompletionRequest(String requestId, String model, List<ChatCompletionMessage> messages, Float temperature, boolean stream) {
-            this(requestId, model, messages, null,  stream, temperature, null, null, null, null, null, null);
+            this(requestId, model, messages, null,  stream, temperature, null, null, null, null, null, null, null, null);
         }
 
         /**
@@ -213,7 +372,7 @@ public class CozeAiApi {
                                      List<ChatCompletionMessage> messages,
                                      List<FunctionTool> tools,
                                      String toolChoice) {
-            this(requestId, model, messages, null, false, 0.95f, null, null, null, tools, toolChoice, null);
+            this(requestId, model, messages, null, false, 0.95f, null, null, null, tools, toolChoice, null, null, null);
         }
 
         /**
@@ -226,7 +385,7 @@ public class CozeAiApi {
          *                 as they become available, with the stream terminated by a data: [DONE] message.
          */
         public ChatCompletionRequest(String requestId, List<ChatCompletionMessage> messages, Boolean stream) {
-            this(requestId, null, messages, null, stream, null, null, null, null, null, null, null);
+            this(requestId, null, messages, null, stream, null, null, null, null, null, null, null, null, null);
         }
 
         /**
@@ -417,9 +576,19 @@ public class CozeAiApi {
             @JsonProperty("created") Long created,
             @JsonProperty("model") String model,
             @JsonProperty("request_id") String requestId,
-            @JsonProperty("choices") List<ChatCompletionChunk.ChunkChoice> choices) {
+            @JsonProperty("choices") List<ChatCompletionChunk.ChunkChoice> choices,
+            @JsonProperty("usage") Usage usage) {
         // @formatter:on
 
+        /**
+         * Create a chunk without usage statistics, which only the final chunk of a stream
+         * carries.
+         */
+        public ChatCompletionChunk(String id, String object, Long created, String model, String requestId,
+                                   List<ChatCompletionChunk.ChunkChoice> choices) {
+            this(id, object, created, model, requestId, choices, null);
+        }
+
         /**
          * Chat completion choice.
          *
@@ -502,15 +671,69 @@ public class CozeAiApi {
         Assert.isTrue(!chatRequest.stream(), "Request must set the steam property to false.");
 
         // TODO 非流式返回
-        return this.restClient.post()
+        CozeAiRecordReplay recordReplay = this.recordReplay;
+        if (recordReplay != null) {
+            return recordReplay.chatCompletion(chatRequest, () -> exchangeChatCompletion(chatRequest));
+        }
+        return exchangeChatCompletion(chatRequest);
+    }
+
+    private ResponseEntity<CozeAiApi.ChatCompletion> exchangeChatCompletion(CozeAiApi.ChatCompletionRequest chatRequest) {
+        return exchange(apiKey -> this.restClient.post()
                 .uri("/open_api/v2/chat")
+                .headers(headers -> headers.setBearerAuth(apiKey))
                 .body(chatRequest)
                 .retrieve()
-                .toEntity(CozeAiApi.ChatCompletion.class);
+                .toEntity(CozeAiApi.ChatCompletion.class));
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #chatCompletionEntity}, on the {@link WebClient}.
+     * @param chatRequest The chat completion request.
+     * @return Entity response with {@link CozeAiApi.ChatCompletion} as a body and HTTP status code
+     * and headers.
+     */
+    public Mono<ResponseEntity<CozeAiApi.ChatCompletion>> chatCompletionEntityReactive(CozeAiApi.ChatCompletionRequest chatRequest) {
+
+        Assert.notNull(chatRequest, "The request body can not be null.");
+        Assert.isTrue(!chatRequest.stream(), "Request must set the steam property to false.");
+
+        CozeAiRecordReplay recordReplay = this.recordReplay;
+        if (recordReplay != null) {
+            return recordReplay.chatCompletionReactive(chatRequest, () -> exchangeChatCompletionReactive(chatRequest));
+        }
+        return exchangeChatCompletionReactive(chatRequest);
+    }
+
+    private Mono<ResponseEntity<CozeAiApi.ChatCompletion>> exchangeChatCompletionReactive(CozeAiApi.ChatCompletionRequest chatRequest) {
+        Mono<ResponseEntity<CozeAiApi.ChatCompletion>> completion = Mono.usingWhen(Mono.fromSupplier(this.apiKeyPool::acquire),
+                lease -> this.webClient.post()
+                        .uri("/open_api/v2/chat")
+                        .headers(headers -> headers.setBearerAuth(lease.apiKey()))
+                        .body(Mono.just(chatRequest), ChatCompletionRequest.class)
+                        .retrieve()
+                        .toEntity(CozeAiApi.ChatCompletion.class),
+                lease -> Mono.fromRunnable(lease::onSuccess),
+                (lease, error) -> Mono.fromRunnable(() -> lease.onError(error)),
+                lease -> Mono.fromRunnable(lease::onCancel));
+
+        CozeAiRateLimiter limiter = this.rateLimiter;
+        return (limiter != null ? limiter.limit(completion) : completion);
+    }
+
+    /**
+     * Creates a model response for the given chat conversation without blocking.
+     * @param chatRequest The chat completion request.
+     * @return the chat completion.
+     */
+    public Mono<CozeAiApi.ChatCompletion> chatCompletionReactive(CozeAiApi.ChatCompletionRequest chatRequest) {
+        return chatCompletionEntityReactive(chatRequest).mapNotNull(ResponseEntity::getBody);
     }
 
     private CozeAiStreamFunctionCallingHelper chunkMerger = new CozeAiStreamFunctionCallingHelper();
 
+    private final CozeAiSseDecoder<ChatCompletionChunk> chunkDecoder = new CozeAiSseDecoder<>(CHUNK_READER);
+
     /**
      * Creates a streaming chat response for the given chat conversation.
      * @param chatRequest The chat completion request. Must have the stream property set
@@ -525,14 +748,12 @@ public class CozeAiApi {
         AtomicBoolean isInsideTool = new AtomicBoolean(false);
 
         // TODO 流式返回
-        return this.webClient.post()
-                .uri("/open_api/v2/chat")
-                .body(Mono.just(chatRequest), ChatCompletionRequest.class)
-                .retrieve()
-                .bodyToFlux(String.class)
-                .takeUntil(SSE_DONE_PREDICATE)
-                .filter(SSE_DONE_PREDICATE.negate())
-                .map(content -> ModelOptionsUtils.jsonToObject(content, ChatCompletionChunk.class))
+        CozeAiRecordReplay recordReplay = this.recordReplay;
+        Flux<ChatCompletionChunk> chunks = (recordReplay != null)
+                ? recordReplay.chatCompletionStream(chatRequest, () -> exchangeChatCompletionStream(chatRequest))
+                : exchangeChatCompletionStream(chatRequest);
+
+        return chunks
                 .map(chunk -> {
                     if (this.chunkMerger.isStreamingToolFunctionCall(chunk)) {
                         isInsideTool.set(true);
@@ -547,13 +768,82 @@ public class CozeAiApi {
                     return !isInsideTool.get();
                 })
                 .concatMapIterable(window -> {
-                    Mono<ChatCompletionChunk> mono1 = window.reduce(new ChatCompletionChunk(null, null, null, null, null,null),
-                            (previous, current) -> this.chunkMerger.merge(previous, current));
+                    Mono<ChatCompletionChunk> mono1 = window
+                            .collect(this.chunkMerger::accumulator, CozeAiStreamFunctionCallingHelper.ChunkAccumulator::append)
+                            .mapNotNull(CozeAiStreamFunctionCallingHelper.ChunkAccumulator::toChunk);
                     return List.of(mono1);
                 })
                 .flatMap(mono -> mono);
     }
 
+    private Flux<ChatCompletionChunk> exchangeChatCompletionStream(ChatCompletionRequest chatRequest) {
+        Flux<ChatCompletionChunk> chunks = Flux.usingWhen(Mono.fromSupplier(this.apiKeyPool::acquire),
+                lease -> this.webClient.post()
+                        .uri("/open_api/v2/chat")
+                        .headers(headers -> headers.setBearerAuth(lease.apiKey()))
+                        .body(Mono.just(chatRequest), ChatCompletionRequest.class)
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)
+                        .transform(this.chunkDecoder::decode),
+                lease -> Mono.fromRunnable(lease::onSuccess),
+                (lease, error) -> Mono.fromRunnable(() -> lease.onError(error)),
+                lease -> Mono.fromRunnable(lease::onCancel));
+
+        CozeAiRateLimiter limiter = this.rateLimiter;
+        if (limiter != null) {
+            // The permit is held until the last chunk has arrived, not just until the headers.
+            chunks = limiter.limit(chunks);
+        }
+        return chunks;
+    }
+
+    private final CozeAiSsePassthrough passthrough = new CozeAiSsePassthrough(CHUNK_READER,
+            CozeAiSseDecoder.DEFAULT_MAX_FRAME_SIZE);
+
+    /**
+     * Creates a streaming chat response and returns the upstream SSE body untouched, for
+     * callers that only relay it. Nothing is decoded: the buffers are checked for the
+     * {@code data: [DONE]} sentinel, error bodies and truncated lines only. The caller
+     * owns the buffers and has to write or release them.
+     * @param chatRequest The chat completion request. Must have the stream property set
+     * to true.
+     * @return the raw event stream, ending after the {@code [DONE]} event.
+     */
+    public Flux<DataBuffer> chatCompletionStreamRaw(ChatCompletionRequest chatRequest) {
+        return chatCompletionStreamRaw(chatRequest, null);
+    }
+
+    /**
+     * Variant of {@link #chatCompletionStreamRaw(ChatCompletionRequest)} that reports the
+     * token usage once the stream is over. Only the last event mentioning a usage is
+     * decoded.
+     * @param chatRequest The chat completion request. Must have the stream property set
+     * to true.
+     * @param usageListener notified with the usage of the completion, {@code null} to skip
+     * the inspection.
+     * @return the raw event stream, ending after the {@code [DONE]} event.
+     */
+    public Flux<DataBuffer> chatCompletionStreamRaw(ChatCompletionRequest chatRequest, Consumer<Usage> usageListener) {
+
+        Assert.notNull(chatRequest, "The request body can not be null.");
+        Assert.isTrue(chatRequest.stream(), "Request must set the steam property to true.");
+
+        Flux<DataBuffer> body = Flux.usingWhen(Mono.fromSupplier(this.apiKeyPool::acquire),
+                lease -> this.webClient.post()
+                        .uri("/open_api/v2/chat")
+                        .headers(headers -> headers.setBearerAuth(lease.apiKey()))
+                        .body(Mono.just(chatRequest), ChatCompletionRequest.class)
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)
+                        .transform(buffers -> this.passthrough.relay(buffers, usageListener)),
+                lease -> Mono.fromRunnable(lease::onSuccess),
+                (lease, error) -> Mono.fromRunnable(() -> lease.onError(error)),
+                lease -> Mono.fromRunnable(lease::onCancel));
+
+        CozeAiRateLimiter limiter = this.rateLimiter;
+        return (limiter != null ? limiter.limit(body) : body);
+    }
+
     // --------------------------------------------------------------------------
     // Embeddings
     // --------------------------------------------------------------------------
@@ -700,13 +990,30 @@ public class CozeAiApi {
         // request, pass an array of strings or array of token arrays.
         Assert.notNull(embeddingRequest.input(), "The input can not be null.");
 
-        return this.restClient.post()
+        CozeAiMetrics.CallObservation observation = this.metrics.startEmbedding(embeddingRequest.model());
+        try {
+            CozeAiRecordReplay recordReplay = this.recordReplay;
+            ResponseEntity<EmbeddingList<Embedding>> response = (recordReplay != null)
+                    ? recordReplay.embeddings(embeddingRequest, () -> exchangeEmbeddings(embeddingRequest))
+                    : exchangeEmbeddings(embeddingRequest);
+            observation.success(null, (response.getBody() != null ? response.getBody().usage() : null));
+            return response;
+        }
+        catch (RuntimeException ex) {
+            observation.error(ex);
+            throw ex;
+        }
+    }
+
+    private ResponseEntity<EmbeddingList<Embedding>> exchangeEmbeddings(EmbeddingRequest embeddingRequest) {
+        return exchange(apiKey -> this.restClient.post()
                 .uri("/api/paas/v4/embeddings")
+                .headers(headers -> headers.setBearerAuth(apiKey))
                 .body(embeddingRequest)
                 .retrieve()
                 .onStatus(RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER)
-                .toEntity(new ParameterizedTypeReference<>() {
-                });
+                .toEntity(new ParameterizedTypeReference<EmbeddingList<Embedding>>() {
+                }));
     }
 
 }
@@ -10,7 +10,10 @@ import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.model.function.FunctionCallback;
 import org.springframework.ai.model.function.FunctionCallingOptions;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,7 +54,7 @@ public class CozeAiChatOptions implements FunctionCallingOptions, ChatOptions {
     @JsonProperty(value = "user_id")
     private String user;
     /**
-     * 终端用户的唯一ID，协助平台对终端用户的违规行为、生成违法及不良信息或其他滥用行为进行干预。ID长度要求：最少6个字符，最多128个字符。
+     * 要进行会话聊天的 Bot ID
      */
     @JsonProperty(value = "bot_id")
     private String botId;
@@ -86,24 +89,38 @@ public class CozeAiChatOptions implements FunctionCallingOptions, ChatOptions {
     @NestedConfigurationProperty
     private @JsonProperty("tool_choice") CozeAiApi.ChatCompletionRequest.ToolChoice toolChoice;
 
+    /**
+     * 注册到客户端的工具函数回调，仅在客户端本地使用，不会发送给模型
+     */
+    @NestedConfigurationProperty
+    @JsonIgnore
+    private List<FunctionCallback> functionCallbacks = new ArrayList<>();
+
+    /**
+     * 本次请求启用的工具函数名称，对应的回调需已注册或可从 Spring 上下文中解析
+     */
+    @NestedConfigurationProperty
+    @JsonIgnore
+    private Set<String> functions = new HashSet<>();
+
     @Override
     public List<FunctionCallback> getFunctionCallbacks() {
-        return null;
+        return this.functionCallbacks;
     }
 
     @Override
     public void setFunctionCallbacks(List<FunctionCallback> functionCallbacks) {
-
+        this.functionCallbacks = functionCallbacks;
     }
 
     @Override
     public Set<String> getFunctions() {
-        return null;
+        return this.functions;
     }
 
     @Override
     public void setFunctions(Set<String> functions) {
-
+        this.functions = functions;
     }
 
     public static Builder builder() {
@@ -144,6 +161,16 @@ public class CozeAiChatOptions implements FunctionCallingOptions, ChatOptions {
             return this;
         }
 
+        public Builder withBotId(String botId) {
+            this.options.setBotId(botId);
+            return this;
+        }
+
+        public Builder withConversationId(String conversationId) {
+            this.options.setConversationId(conversationId);
+            return this;
+        }
+
         public Builder withStop(List<String> stop) {
             this.options.setStop(stop);
             return this;
@@ -159,6 +186,23 @@ public class CozeAiChatOptions implements FunctionCallingOptions, ChatOptions {
             return this;
         }
 
+        public Builder withFunctionCallbacks(List<FunctionCallback> functionCallbacks) {
+            this.options.setFunctionCallbacks(functionCallbacks);
+            return this;
+        }
+
+        public Builder withFunctions(Set<String> functionNames) {
+            Assert.notNull(functionNames, "Function names must not be null");
+            this.options.setFunctions(functionNames);
+            return this;
+        }
+
+        public Builder withFunction(String functionName) {
+            Assert.hasText(functionName, "Function name must not be empty");
+            this.options.getFunctions().add(functionName);
+            return this;
+        }
+
         public CozeAiChatOptions build() {
             return this.options;
         }
@@ -189,6 +233,30 @@ public class CozeAiChatOptions implements FunctionCallingOptions, ChatOptions {
         this.user = user;
     }
 
+    public String getBotId() {
+        return botId;
+    }
+
+    public void setBotId(String botId) {
+        this.botId = botId;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public Map<String, Object> getVariables() {
+        return variables;
+    }
+
+    public void setVariables(Map<String, Object> variables) {
+        this.variables = variables;
+    }
+
     public List<String> getStop() {
         return stop;
     }
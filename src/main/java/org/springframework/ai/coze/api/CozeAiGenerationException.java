@@ -0,0 +1,20 @@
+package org.springframework.ai.coze.api;
+
+/**
+ * Thrown by content-only streams when the model ends the generation with an error finish
+ * reason, e.g. {@code network_error}.
+ */
+public class CozeAiGenerationException extends RuntimeException {
+
+    private final CozeAiApi.ChatCompletionFinishReason finishReason;
+
+    public CozeAiGenerationException(CozeAiApi.ChatCompletionFinishReason finishReason) {
+        super("Generation ended with finish reason " + finishReason);
+        this.finishReason = finishReason;
+    }
+
+    public CozeAiApi.ChatCompletionFinishReason getFinishReason() {
+        return this.finishReason;
+    }
+
+}
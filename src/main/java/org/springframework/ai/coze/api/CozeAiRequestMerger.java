@@ -0,0 +1,135 @@
+package org.springframework.ai.coze.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.prompt.ChatOptions;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field-by-field assembly of {@link CozeAiApi.ChatCompletionRequest}s. Does what
+ * {@code ModelOptionsUtils.merge} and {@code ModelOptionsUtils.copyToTarget} did for the
+ * chat client, without the JSON map round-trip: a non-null source value replaces the
+ * target value, options without a request counterpart ({@code custom_variables}) are
+ * dropped, and the tool choice is written as its JSON value.
+ */
+public class CozeAiRequestMerger {
+
+    private static final CozeAiApi.ChatCompletionRequest EMPTY_REQUEST = new CozeAiApi.ChatCompletionRequest(null, null,
+            null, null, null, null, null, null, null, null, null, null, null, null);
+
+    private static final Map<CozeAiApi.ChatCompletionRequest.ToolChoice, String> TOOL_CHOICE_VALUES = toolChoiceValues();
+
+    private CozeAiRequestMerger() {
+    }
+
+    /**
+     * Resolve the given options into a request holding no messages, the starting point of
+     * every request built with them.
+     * @param options the options, may be {@code null}.
+     * @return the request template.
+     */
+    public static CozeAiApi.ChatCompletionRequest compile(CozeAiChatOptions options) {
+        return merge(options, EMPTY_REQUEST);
+    }
+
+    /**
+     * Apply the non-null values of the given options onto the request.
+     * @param options the options, may be {@code null}.
+     * @param request the request.
+     * @return the merged request, the given one if there is nothing to apply.
+     */
+    public static CozeAiApi.ChatCompletionRequest merge(CozeAiChatOptions options, CozeAiApi.ChatCompletionRequest request) {
+        if (options == null) {
+            return request;
+        }
+        CozeAiApi.ChatCompletionRequest.ToolChoice toolChoice = options.getToolChoice();
+        return new CozeAiApi.ChatCompletionRequest(
+                request.requestId(),
+                pick(options.getModel(), request.model()),
+                request.messages(),
+                pick(options.getDoSample(), request.doSample()),
+                request.stream(),
+                pick(options.getTemperature(), request.temperature()),
+                pick(options.getTopP(), request.topP()),
+                pick(options.getMaxTokens(), request.maxTokens()),
+                pick(options.getStop(), request.stop()),
+                pick(options.getTools(), request.tools()),
+                pick(toolChoice != null ? TOOL_CHOICE_VALUES.get(toolChoice) : null, request.toolChoice()),
+                pick(options.getUser(), request.user()),
+                pick(options.getBotId(), request.botId()),
+                pick(options.getConversationId(), request.conversationId()));
+    }
+
+    /**
+     * Copy of the request with the given messages, the other non-null arguments replace
+     * the values of the request too.
+     * @param request the request.
+     * @param requestId the request id, {@code null} keeps the one of the request.
+     * @param messages the messages, {@code null} keeps the ones of the request.
+     * @param stream the stream flag, {@code null} keeps the one of the request.
+     * @return the new request.
+     */
+    public static CozeAiApi.ChatCompletionRequest withMessages(CozeAiApi.ChatCompletionRequest request, String requestId,
+                                                               List<CozeAiApi.ChatCompletionMessage> messages, Boolean stream) {
+        return new CozeAiApi.ChatCompletionRequest(pick(requestId, request.requestId()), request.model(),
+                pick(messages, request.messages()), request.doSample(), pick(stream, request.stream()),
+                request.temperature(), request.topP(), request.maxTokens(), request.stop(), request.tools(),
+                request.toolChoice(), request.user(), request.botId(), request.conversationId());
+    }
+
+    /**
+     * Copy of the request with the given tools.
+     * @param request the request.
+     * @param tools the tools, {@code null} keeps the ones of the request.
+     * @return the new request.
+     */
+    public static CozeAiApi.ChatCompletionRequest withTools(CozeAiApi.ChatCompletionRequest request,
+                                                            List<CozeAiApi.FunctionTool> tools) {
+        if (tools == null) {
+            return request;
+        }
+        return new CozeAiApi.ChatCompletionRequest(request.requestId(), request.model(), request.messages(),
+                request.doSample(), request.stream(), request.temperature(), request.topP(), request.maxTokens(),
+                request.stop(), tools, request.toolChoice(), request.user(), request.botId(), request.conversationId());
+    }
+
+    /**
+     * Turn portable runtime options into {@link CozeAiChatOptions}. CozeAI options are
+     * returned as is, other options contribute their temperature and top-p only; top-k is
+     * not supported by the API and ignored.
+     * @param options the runtime options.
+     * @return the CozeAI options, {@code null} if {@code options} is {@code null}.
+     */
+    public static CozeAiChatOptions toCozeAiChatOptions(ChatOptions options) {
+        if (options == null) {
+            return null;
+        }
+        if (options.getClass().isAssignableFrom(CozeAiChatOptions.class)) {
+            return (CozeAiChatOptions) options;
+        }
+        CozeAiChatOptions cozeAiOptions = new CozeAiChatOptions();
+        if (options.getTemperature() != null) {
+            cozeAiOptions.setTemperature(options.getTemperature());
+        }
+        if (options.getTopP() != null) {
+            cozeAiOptions.setTopP(options.getTopP());
+        }
+        return cozeAiOptions;
+    }
+
+    private static <T> T pick(T value, T fallback) {
+        return (value != null ? value : fallback);
+    }
+
+    private static Map<CozeAiApi.ChatCompletionRequest.ToolChoice, String> toolChoiceValues() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<CozeAiApi.ChatCompletionRequest.ToolChoice, String> values = new EnumMap<>(CozeAiApi.ChatCompletionRequest.ToolChoice.class);
+        for (CozeAiApi.ChatCompletionRequest.ToolChoice toolChoice : CozeAiApi.ChatCompletionRequest.ToolChoice.values()) {
+            values.put(toolChoice, objectMapper.convertValue(toolChoice, String.class));
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,265 @@
+package org.springframework.ai.coze.api;
+
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Decodes a server-sent event body straight from {@link DataBuffer}s. Lines are split on
+ * the raw bytes, {@code data:} payloads are handed to a pre-built Jackson
+ * {@link ObjectReader} without an intermediate {@link String}, and the stream ends at the
+ * {@code data: [DONE]} sentinel. Other SSE fields ({@code event:}, {@code id:}, comments)
+ * are ignored; bare JSON lines are accepted as data so newline-delimited JSON error bodies
+ * still decode like they did through {@code bodyToFlux(String.class)}.
+ *
+ * @param <T> the type of the decoded events.
+ */
+public class CozeAiSseDecoder<T> {
+
+    /**
+     * Default upper bound for a single line or event, protects against unbounded buffering.
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private static final byte[] DATA_FIELD = "data:".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] DONE = "[DONE]".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectReader reader;
+
+    private final int maxFrameSize;
+
+    public CozeAiSseDecoder(ObjectReader reader) {
+        this(reader, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    public CozeAiSseDecoder(ObjectReader reader, int maxFrameSize) {
+        Assert.notNull(reader, "ObjectReader must not be null");
+        Assert.isTrue(maxFrameSize > 0, "maxFrameSize must be positive");
+        this.reader = reader;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Decode the given SSE body. Every buffer is released once it has been read, the
+     * upstream is cancelled as soon as the {@code [DONE]} sentinel is seen.
+     * @param body the raw response body.
+     * @return the decoded events.
+     */
+    public Flux<T> decode(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            FrameDecoder<T> frames = newFrameDecoder();
+            return body.map(frames::feed)
+                    .takeUntil(decoded -> frames.isDone())
+                    .concatWith(Mono.fromSupplier(frames::finish))
+                    .concatMapIterable(Function.identity());
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    FrameDecoder<T> newFrameDecoder() {
+        return new FrameDecoder<>(this.reader, this.maxFrameSize);
+    }
+
+    /**
+     * Per-stream decoding state. Bytes of an incomplete line are kept at the start of a
+     * growable array until the rest of the line arrives.
+     */
+    static final class FrameDecoder<T> {
+
+        private final ObjectReader reader;
+
+        private final int maxFrameSize;
+
+        private byte[] buffer = new byte[4096];
+
+        private int length;
+
+        private int scanned;
+
+        private int dataStart = -1;
+
+        private int dataLength;
+
+        private ByteArrayBuilder multiLineData;
+
+        private boolean done;
+
+        private List<T> decoded;
+
+        FrameDecoder(ObjectReader reader, int maxFrameSize) {
+            this.reader = reader;
+            this.maxFrameSize = maxFrameSize;
+        }
+
+        boolean isDone() {
+            return this.done;
+        }
+
+        /**
+         * Consume the given buffer and release it.
+         * @param dataBuffer the next part of the body.
+         * @return the events completed by this buffer, possibly empty.
+         */
+        List<T> feed(DataBuffer dataBuffer) {
+            try {
+                if (this.done) {
+                    return List.of();
+                }
+                int readable = dataBuffer.readableByteCount();
+                ensureCapacity(this.length + readable);
+                dataBuffer.read(this.buffer, this.length, readable);
+                this.length += readable;
+            }
+            finally {
+                DataBufferUtils.release(dataBuffer);
+            }
+            this.decoded = null;
+            int lineStart = 0;
+            for (int i = this.scanned; i < this.length && !this.done; i++) {
+                if (this.buffer[i] == '\n') {
+                    int lineEnd = (i > lineStart && this.buffer[i - 1] == '\r') ? i - 1 : i;
+                    processLine(lineStart, lineEnd);
+                    lineStart = i + 1;
+                }
+            }
+            if (this.dataStart >= 0) {
+                // The event continues in the next buffer, detach its data from the array.
+                moveDataToBuilder();
+            }
+            int remaining = this.length - lineStart;
+            if (remaining > 0 && lineStart > 0) {
+                System.arraycopy(this.buffer, lineStart, this.buffer, 0, remaining);
+            }
+            this.length = remaining;
+            this.scanned = remaining;
+            if (remaining > this.maxFrameSize) {
+                throw new DataBufferLimitException("Exceeded limit on max bytes per SSE line: " + this.maxFrameSize);
+            }
+            return drain();
+        }
+
+        /**
+         * Flush whatever is left once the body completes without a trailing blank line.
+         * @return the remaining events, possibly empty.
+         */
+        List<T> finish() {
+            this.decoded = null;
+            if (!this.done) {
+                if (this.length > 0) {
+                    int lineEnd = (this.buffer[this.length - 1] == '\r') ? this.length - 1 : this.length;
+                    processLine(0, lineEnd);
+                    this.length = 0;
+                }
+                dispatch();
+            }
+            return drain();
+        }
+
+        private void processLine(int start, int end) {
+            if (start == end) {
+                dispatch();
+            }
+            else if (startsWith(start, end, DATA_FIELD)) {
+                int payload = start + DATA_FIELD.length;
+                if (payload < end && this.buffer[payload] == ' ') {
+                    payload++;
+                }
+                appendData(payload, end);
+            }
+            else if (this.buffer[start] == '{') {
+                appendData(start, end);
+                dispatch();
+            }
+        }
+
+        private void appendData(int start, int end) {
+            if (this.dataStart < 0 && this.multiLineData == null) {
+                this.dataStart = start;
+                this.dataLength = end - start;
+                return;
+            }
+            // Multi-line data, join the lines with '\n' as the SSE specification says.
+            moveDataToBuilder();
+            this.multiLineData.append('\n');
+            this.multiLineData.write(this.buffer, start, end - start);
+            if (this.multiLineData.size() > this.maxFrameSize) {
+                throw new DataBufferLimitException("Exceeded limit on max bytes per SSE event: " + this.maxFrameSize);
+            }
+        }
+
+        private void moveDataToBuilder() {
+            if (this.multiLineData == null) {
+                this.multiLineData = new ByteArrayBuilder(Math.max(this.dataLength, 256));
+            }
+            if (this.dataStart >= 0) {
+                this.multiLineData.write(this.buffer, this.dataStart, this.dataLength);
+                this.dataStart = -1;
+            }
+        }
+
+        private void dispatch() {
+            if (this.dataStart >= 0) {
+                decode(this.buffer, this.dataStart, this.dataLength);
+                this.dataStart = -1;
+            }
+            else if (this.multiLineData != null) {
+                byte[] data = this.multiLineData.toByteArray();
+                this.multiLineData = null;
+                decode(data, 0, data.length);
+            }
+        }
+
+        private void decode(byte[] data, int offset, int len) {
+            if (len == DONE.length && Arrays.equals(data, offset, offset + len, DONE, 0, DONE.length)) {
+                this.done = true;
+                return;
+            }
+            if (len == 0) {
+                return;
+            }
+            try {
+                T value = this.reader.readValue(data, offset, len);
+                if (this.decoded == null) {
+                    this.decoded = new ArrayList<>(2);
+                }
+                this.decoded.add(value);
+            }
+            catch (IOException ex) {
+                throw new DecodingException("Failed to decode SSE data: "
+                        + new String(data, offset, Math.min(len, 512), StandardCharsets.UTF_8), ex);
+            }
+        }
+
+        private boolean startsWith(int start, int end, byte[] prefix) {
+            return end - start >= prefix.length
+                    && Arrays.equals(this.buffer, start, start + prefix.length, prefix, 0, prefix.length);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.max(capacity, this.buffer.length * 2));
+            }
+        }
+
+        private List<T> drain() {
+            List<T> result = (this.decoded != null ? this.decoded : List.of());
+            this.decoded = null;
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,272 @@
+package org.springframework.ai.coze.api;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Relays a server-sent event body as is. The buffers are only scanned in place for line
+ * boundaries, nothing is decoded and nothing is copied: the stream ends at the
+ * {@code data: [DONE]} sentinel, a bare JSON line (an error body sent instead of events)
+ * and a body that completes without the sentinel fail the stream.
+ * <p>
+ * With a usage listener the bytes of {@code data:} lines are kept until the line ends and
+ * only the last line mentioning {@code "usage"} is decoded, once the stream is over.
+ */
+class CozeAiSsePassthrough {
+
+    private static final Logger logger = LoggerFactory.getLogger(CozeAiSsePassthrough.class);
+
+    private static final byte[] DATA_FIELD = "data:".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] DONE = "[DONE]".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] USAGE = "\"usage\"".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Start of a line kept to recognise {@code data: [DONE]} and to quote an error line.
+     */
+    private static final int PREFIX_LENGTH = 256;
+
+    private final ObjectReader chunkReader;
+
+    private final int maxFrameSize;
+
+    CozeAiSsePassthrough(ObjectReader chunkReader, int maxFrameSize) {
+        Assert.notNull(chunkReader, "ObjectReader must not be null");
+        Assert.isTrue(maxFrameSize > 0, "maxFrameSize must be positive");
+        this.chunkReader = chunkReader;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Check the framing of the given SSE body while it passes through. The upstream is
+     * cancelled once the {@code [DONE]} sentinel has been relayed, buffers dropped on an
+     * error or a cancellation are released.
+     * @param body the raw response body.
+     * @param usageListener notified with the usage of the last event carrying one,
+     * {@code null} to skip the inspection.
+     * @return the same buffers, in order.
+     */
+    Flux<DataBuffer> relay(Flux<DataBuffer> body, Consumer<CozeAiApi.Usage> usageListener) {
+        return Flux.defer(() -> {
+            FrameScanner scanner = new FrameScanner(usageListener != null);
+            return body.<DataBuffer>handle((buffer, sink) -> {
+                        try {
+                            int end = scanner.scan(buffer);
+                            if (end < buffer.writePosition()) {
+                                // Drop whatever follows the [DONE] event, without copying.
+                                buffer.writePosition(end);
+                            }
+                        }
+                        catch (RuntimeException ex) {
+                            DataBufferUtils.release(buffer);
+                            sink.error(ex);
+                            return;
+                        }
+                        sink.next(buffer);
+                    })
+                    .takeUntil(buffer -> scanner.isDone())
+                    .concatWith(Mono.fromRunnable(() -> {
+                        scanner.finish();
+                        if (usageListener != null) {
+                            notifyUsage(scanner.lastUsageLine(), usageListener);
+                        }
+                    }));
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private void notifyUsage(byte[] line, Consumer<CozeAiApi.Usage> usageListener) {
+        if (line == null) {
+            return;
+        }
+        try {
+            CozeAiApi.ChatCompletionChunk chunk = this.chunkReader.readValue(line);
+            if (chunk != null && chunk.usage() != null) {
+                usageListener.accept(chunk.usage());
+            }
+        }
+        catch (IOException ex) {
+            logger.debug("Could not read the usage of the relayed stream", ex);
+        }
+    }
+
+    /**
+     * Per-stream scanning state, only the start of the current line is remembered unless
+     * the data lines are captured for the usage.
+     */
+    final class FrameScanner {
+
+        private final boolean captureData;
+
+        private final byte[] prefix = new byte[PREFIX_LENGTH];
+
+        private int lineLength;
+
+        private boolean lastWasCarriageReturn;
+
+        private byte[] data = new byte[0];
+
+        private int dataLength;
+
+        private boolean dataOverflow;
+
+        private byte[] lastUsageLine;
+
+        private boolean doneLine;
+
+        private boolean done;
+
+        FrameScanner(boolean captureData) {
+            this.captureData = captureData;
+        }
+
+        boolean isDone() {
+            return this.done;
+        }
+
+        byte[] lastUsageLine() {
+            return this.lastUsageLine;
+        }
+
+        /**
+         * Scan the readable bytes of the given buffer, its read position is left untouched.
+         * @param buffer the next part of the body.
+         * @return the position after the last byte that belongs to the stream.
+         */
+        int scan(DataBuffer buffer) {
+            int start = buffer.readPosition();
+            int end = buffer.writePosition();
+            for (int i = start; i < end; i++) {
+                byte b = buffer.getByte(i);
+                if (b == '\n') {
+                    endOfLine();
+                    if (this.done) {
+                        return i + 1;
+                    }
+                }
+                else {
+                    if (this.lastWasCarriageReturn) {
+                        // A '\r' inside a line, keep it.
+                        append((byte) '\r');
+                    }
+                    this.lastWasCarriageReturn = (b == '\r');
+                    if (!this.lastWasCarriageReturn) {
+                        append(b);
+                    }
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Check what is left once the body completes.
+         */
+        void finish() {
+            if (this.done || this.doneLine) {
+                return;
+            }
+            boolean midLine = (this.lineLength > 0);
+            if (midLine) {
+                // May be the [DONE] line without its line break.
+                endOfLine();
+                if (this.doneLine) {
+                    return;
+                }
+            }
+            throw new TransientAiException(midLine ? "Coze event stream ended in the middle of a line"
+                    : "Coze event stream ended before [DONE]");
+        }
+
+        private void append(byte b) {
+            if (this.lineLength < PREFIX_LENGTH) {
+                this.prefix[this.lineLength] = b;
+            }
+            this.lineLength++;
+            if (this.captureData && !this.dataOverflow && this.lineLength > DATA_FIELD.length && isDataLine()) {
+                if (this.dataLength == maxFrameSize()) {
+                    this.dataOverflow = true;
+                    return;
+                }
+                if (this.dataLength == this.data.length) {
+                    this.data = Arrays.copyOf(this.data, Math.min(Math.max(256, this.data.length * 2), maxFrameSize()));
+                }
+                this.data[this.dataLength++] = b;
+            }
+        }
+
+        private void endOfLine() {
+            int length = this.lineLength;
+            this.lineLength = 0;
+            this.lastWasCarriageReturn = false;
+            int captured = this.dataLength;
+            boolean overflow = this.dataOverflow;
+            this.dataLength = 0;
+            this.dataOverflow = false;
+            if (this.doneLine) {
+                // The line closing the [DONE] event, normally blank.
+                this.done = true;
+                return;
+            }
+            if (length == 0) {
+                return;
+            }
+            if (this.prefix[0] == '{') {
+                throw new NonTransientAiException("Coze returned an error instead of an event stream: "
+                        + new String(this.prefix, 0, Math.min(length, PREFIX_LENGTH), StandardCharsets.UTF_8));
+            }
+            if (length < DATA_FIELD.length || !isDataLine()) {
+                return;
+            }
+            int payload = DATA_FIELD.length;
+            if (length > payload && this.prefix[payload] == ' ') {
+                payload++;
+            }
+            if (length - payload == DONE.length
+                    && Arrays.equals(this.prefix, payload, payload + DONE.length, DONE, 0, DONE.length)) {
+                this.doneLine = true;
+                return;
+            }
+            if (this.captureData && !overflow && contains(this.data, captured, USAGE)) {
+                // The captured bytes start right after "data:", skip the optional space too.
+                int from = (captured > 0 && this.data[0] == ' ') ? 1 : 0;
+                this.lastUsageLine = Arrays.copyOfRange(this.data, from, captured);
+            }
+        }
+
+        private boolean isDataLine() {
+            return Arrays.equals(this.prefix, 0, DATA_FIELD.length, DATA_FIELD, 0, DATA_FIELD.length);
+        }
+
+        private int maxFrameSize() {
+            return CozeAiSsePassthrough.this.maxFrameSize;
+        }
+
+    }
+
+    private static boolean contains(byte[] data, int length, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+}
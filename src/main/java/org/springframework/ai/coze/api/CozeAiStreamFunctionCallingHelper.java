@@ -10,7 +10,21 @@ import java.util.UUID;
 public class CozeAiStreamFunctionCallingHelper {
 
     /**
-     * Merge the previous and current ChatCompletionChunk into a single one.
+     * Create a new accumulator for one window of streamed chunks. Prefer it over
+     * {@link #merge(CozeAiApi.ChatCompletionChunk, CozeAiApi.ChatCompletionChunk)} when
+     * folding many deltas, it appends into growable buffers and only materializes the
+     * merged chunk once.
+     * @return a new, empty accumulator.
+     */
+    public ChunkAccumulator accumulator() {
+        return new ChunkAccumulator();
+    }
+
+    /**
+     * Merge the previous and current ChatCompletionChunk into a single one, the same way
+     * {@link ChunkAccumulator} does: the content deltas are concatenated, and a tool call
+     * delta starts a new tool call only when it carries an id different from the one of
+     * the last tool call, otherwise its arguments are appended to the last tool call.
      * @param previous the previous ChatCompletionChunk
      * @param current the current ChatCompletionChunk
      * @return the merged ChatCompletionChunk
@@ -26,13 +40,14 @@ public class CozeAiStreamFunctionCallingHelper {
         String model = (current.model() != null ? current.model() : previous.model());
         String requestId = (current.requestId() != null ? current.requestId() : previous.requestId());
         String object = (current.object() != null ? current.object() : previous.object());
+        CozeAiApi.Usage usage = (current.usage() != null ? current.usage() : previous.usage());
 
         CozeAiApi.ChatCompletionChunk.ChunkChoice previousChoice0 = (CollectionUtils.isEmpty(previous.choices()) ? null : previous.choices().get(0));
         CozeAiApi.ChatCompletionChunk.ChunkChoice currentChoice0 = (CollectionUtils.isEmpty(current.choices()) ? null : current.choices().get(0));
 
         CozeAiApi.ChatCompletionChunk.ChunkChoice choice = merge(previousChoice0, currentChoice0);
 
-        return new CozeAiApi.ChatCompletionChunk(id, object, created, model, requestId, List.of(choice));
+        return new CozeAiApi.ChatCompletionChunk(id, object, created, model, requestId, List.of(choice), usage);
     }
 
     private CozeAiApi.ChatCompletionChunk.ChunkChoice merge(CozeAiApi.ChatCompletionChunk.ChunkChoice previous, CozeAiApi.ChatCompletionChunk.ChunkChoice current) {
@@ -45,12 +60,10 @@ public class CozeAiStreamFunctionCallingHelper {
                         .map(tool -> tool.id())
                         .findFirst();
                 if (!id.isPresent()) {
-                    var newId = UUID.randomUUID().toString();
-
                     var toolCallsWithID = current.delta()
                             .toolCalls()
                             .stream()
-                            .map(toolCall -> new CozeAiApi.ChatCompletionMessage.ToolCall(newId, "function", toolCall.function()))
+                            .map(toolCall -> new CozeAiApi.ChatCompletionMessage.ToolCall(UUID.randomUUID().toString(), "function", toolCall.function()))
                             .toList();
 
                     var role = current.delta().role() != null ? current.delta().role() : CozeAiApi.ChatCompletionMessage.Role.ASSISTANT;
@@ -71,38 +84,27 @@ public class CozeAiStreamFunctionCallingHelper {
     }
 
     private CozeAiApi.ChatCompletionMessage merge(CozeAiApi.ChatCompletionMessage previous, CozeAiApi.ChatCompletionMessage current) {
-        String content = (current.content() != null ? current.content()
-                : "" + ((previous.content() != null) ? previous.content() : ""));
+        String content = (previous.content() != null ? previous.content() : "")
+                + (current.content() != null ? current.content() : "");
         CozeAiApi.ChatCompletionMessage.Role role = (current.role() != null ? current.role() : previous.role());
         role = (role != null ? role : CozeAiApi.ChatCompletionMessage.Role.ASSISTANT); // default to ASSISTANT (if null
         String name = (current.name() != null ? current.name() : previous.name());
 
         List<CozeAiApi.ChatCompletionMessage.ToolCall> toolCalls = new ArrayList<>();
-        CozeAiApi.ChatCompletionMessage.ToolCall lastPreviousTooCall = null;
         if (previous.toolCalls() != null) {
-            lastPreviousTooCall = previous.toolCalls().get(previous.toolCalls().size() - 1);
-            if (previous.toolCalls().size() > 1) {
-                toolCalls.addAll(previous.toolCalls().subList(0, previous.toolCalls().size() - 1));
-            }
+            toolCalls.addAll(previous.toolCalls());
         }
         if (current.toolCalls() != null) {
-            if (current.toolCalls().size() > 1) {
-                throw new IllegalStateException("Currently only one tool call is supported per message!");
-            }
-            var currentToolCall = current.toolCalls().iterator().next();
-            if (currentToolCall.id() != null) {
-                if (lastPreviousTooCall != null) {
-                    toolCalls.add(lastPreviousTooCall);
+            // A delta with a new id starts a new tool call, one without or repeating the id
+            // continues the last one, like ChunkAccumulator.
+            for (CozeAiApi.ChatCompletionMessage.ToolCall currentToolCall : current.toolCalls()) {
+                int last = toolCalls.size() - 1;
+                if (last < 0 || (currentToolCall.id() != null && !currentToolCall.id().equals(toolCalls.get(last).id()))) {
+                    toolCalls.add(currentToolCall);
+                }
+                else {
+                    toolCalls.set(last, merge(toolCalls.get(last), currentToolCall));
                 }
-                toolCalls.add(currentToolCall);
-            }
-            else {
-                toolCalls.add(merge(lastPreviousTooCall, currentToolCall));
-            }
-        }
-        else {
-            if (lastPreviousTooCall != null) {
-                toolCalls.add(lastPreviousTooCall);
             }
         }
         return new CozeAiApi.ChatCompletionMessage(content, role, name, toolCalls);
@@ -164,5 +166,164 @@ public class CozeAiStreamFunctionCallingHelper {
         return choice.finishReason() == CozeAiApi.ChatCompletionFinishReason.TOOL_CALLS;
     }
 
+    /**
+     * Mutable, single-use accumulator for the chunks of one stream window. Content and tool
+     * call arguments are appended to {@link StringBuilder}s so accumulating a window is
+     * linear in its size; the immutable records are only built by {@link #toChunk()}.
+     * Not thread-safe, a window is always folded by a single subscriber.
+     */
+    public static final class ChunkAccumulator {
+
+        private CozeAiApi.ChatCompletionChunk single;
+
+        private int count;
+
+        private String id;
+
+        private String object;
+
+        private Long created;
+
+        private String model;
+
+        private String requestId;
+
+        private CozeAiApi.Usage usage;
+
+        private Integer index;
+
+        private CozeAiApi.ChatCompletionFinishReason finishReason;
+
+        private CozeAiApi.ChatCompletionMessage.Role role;
+
+        private String name;
+
+        private StringBuilder content;
+
+        private boolean hasChoice;
+
+        private final List<ToolCallBuffer> toolCalls = new ArrayList<>(1);
+
+        ChunkAccumulator() {
+        }
+
+        /**
+         * Append the given chunk to this window.
+         * @param chunk the next chunk of the stream.
+         * @return this accumulator.
+         */
+        public ChunkAccumulator append(CozeAiApi.ChatCompletionChunk chunk) {
+            if (this.count++ == 0) {
+                this.single = chunk;
+            }
+            this.id = (chunk.id() != null ? chunk.id() : this.id);
+            this.object = (chunk.object() != null ? chunk.object() : this.object);
+            this.created = (chunk.created() != null ? chunk.created() : this.created);
+            this.model = (chunk.model() != null ? chunk.model() : this.model);
+            this.requestId = (chunk.requestId() != null ? chunk.requestId() : this.requestId);
+            this.usage = (chunk.usage() != null ? chunk.usage() : this.usage);
+
+            if (CollectionUtils.isEmpty(chunk.choices())) {
+                return this;
+            }
+            var choice = chunk.choices().get(0);
+            this.hasChoice = true;
+            this.index = (choice.index() != null ? choice.index() : this.index);
+            this.finishReason = (choice.finishReason() != null ? choice.finishReason() : this.finishReason);
+
+            var delta = choice.delta();
+            if (delta == null) {
+                return this;
+            }
+            this.role = (delta.role() != null ? delta.role() : this.role);
+            this.name = (delta.name() != null ? delta.name() : this.name);
+            if (delta.content() != null) {
+                if (this.content == null) {
+                    this.content = new StringBuilder(Math.max(16, delta.content().length()));
+                }
+                this.content.append(delta.content());
+            }
+            if (delta.toolCalls() != null) {
+                for (CozeAiApi.ChatCompletionMessage.ToolCall toolCall : delta.toolCalls()) {
+                    appendToolCall(toolCall);
+                }
+            }
+            return this;
+        }
+
+        private void appendToolCall(CozeAiApi.ChatCompletionMessage.ToolCall toolCall) {
+            ToolCallBuffer last = (this.toolCalls.isEmpty() ? null : this.toolCalls.get(this.toolCalls.size() - 1));
+            // A delta with a new id starts a new tool call, one without continues the last one.
+            if (last == null || (toolCall.id() != null && !toolCall.id().equals(last.id))) {
+                last = new ToolCallBuffer();
+                this.toolCalls.add(last);
+            }
+            last.append(toolCall);
+        }
+
+        /**
+         * @return the merged chunk of this window, or {@code null} if nothing was appended.
+         */
+        public CozeAiApi.ChatCompletionChunk toChunk() {
+            if (this.count == 0) {
+                return null;
+            }
+            if (this.count == 1 && this.toolCalls.stream().allMatch(toolCall -> toolCall.id != null)) {
+                // Plain content chunks are windows of one, hand them through untouched.
+                return this.single;
+            }
+            if (!this.hasChoice) {
+                return new CozeAiApi.ChatCompletionChunk(this.id, this.object, this.created, this.model, this.requestId,
+                        List.of(), this.usage);
+            }
+            List<CozeAiApi.ChatCompletionMessage.ToolCall> mergedToolCalls = new ArrayList<>(this.toolCalls.size());
+            for (ToolCallBuffer toolCall : this.toolCalls) {
+                mergedToolCalls.add(toolCall.toToolCall());
+            }
+            var message = new CozeAiApi.ChatCompletionMessage(this.content != null ? this.content.toString() : "",
+                    this.role != null ? this.role : CozeAiApi.ChatCompletionMessage.Role.ASSISTANT, this.name,
+                    mergedToolCalls);
+            var choice = new CozeAiApi.ChatCompletionChunk.ChunkChoice(this.index, message, this.finishReason);
+            return new CozeAiApi.ChatCompletionChunk(this.id, this.object, this.created, this.model, this.requestId,
+                    List.of(choice), this.usage);
+        }
+
+    }
+
+    private static final class ToolCallBuffer {
+
+        private String id;
+
+        private String type;
+
+        private String name;
+
+        private StringBuilder arguments;
+
+        void append(CozeAiApi.ChatCompletionMessage.ToolCall toolCall) {
+            this.id = (toolCall.id() != null ? toolCall.id() : this.id);
+            this.type = (toolCall.type() != null ? toolCall.type() : this.type);
+            var function = toolCall.function();
+            if (function == null) {
+                return;
+            }
+            this.name = (function.name() != null ? function.name() : this.name);
+            if (function.arguments() != null) {
+                if (this.arguments == null) {
+                    this.arguments = new StringBuilder(Math.max(64, function.arguments().length()));
+                }
+                this.arguments.append(function.arguments());
+            }
+        }
+
+        CozeAiApi.ChatCompletionMessage.ToolCall toToolCall() {
+            return new CozeAiApi.ChatCompletionMessage.ToolCall(this.id != null ? this.id : UUID.randomUUID().toString(),
+                    this.type != null ? this.type : "function",
+                    new CozeAiApi.ChatCompletionMessage.ChatCompletionFunction(this.name,
+                            this.arguments != null ? this.arguments.toString() : null));
+        }
+
+    }
+
 }
 // ---
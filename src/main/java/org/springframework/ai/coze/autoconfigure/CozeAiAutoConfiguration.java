@@ -1,42 +1,167 @@
 package org.springframework.ai.coze.autoconfigure;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.ai.autoconfigure.retry.SpringAiRetryAutoConfiguration;
 import org.springframework.ai.model.function.FunctionCallback;
 import org.springframework.ai.model.function.FunctionCallbackContext;
 import org.springframework.ai.coze.CozeAiChatClient;
 import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.cache.CozeAiRequestCoalescer;
+import org.springframework.ai.coze.cache.CozeAiResponseCache;
+import org.springframework.ai.coze.cache.CozeAiToolResultCache;
+import org.springframework.ai.coze.credential.CozeAiApiKeyPool;
+import org.springframework.ai.coze.compaction.CachingTokenEstimator;
+import org.springframework.ai.coze.compaction.CharacterRatioTokenEstimator;
+import org.springframework.ai.coze.compaction.CozeAiCompactionStrategy;
+import org.springframework.ai.coze.compaction.CozeAiHistoryCompactor;
+import org.springframework.ai.coze.compaction.CozeAiTokenEstimator;
+import org.springframework.ai.coze.conversation.CozeAiConversationTracker;
+import org.springframework.ai.coze.hedging.CozeAiRequestHedger;
+import org.springframework.ai.coze.retry.CozeAiStreamRetry;
+import org.springframework.ai.coze.stream.CozeAiStreamCoalescer;
+import org.springframework.ai.coze.tool.CozeAiToolExecutor;
+import org.springframework.ai.coze.limiter.CozeAiRateLimiter;
+import org.springframework.ai.coze.metadata.CozeAiUsageAggregator;
+import org.springframework.ai.coze.metrics.CozeAiMetrics;
+import org.springframework.ai.coze.replay.CozeAiRecordReplay;
+import org.springframework.ai.coze.replay.CozeAiReplayStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.web.client.RestClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link AutoConfiguration Auto-configuration} for CozeAI Chat Client.
  */
-@AutoConfiguration(after = { RestClientAutoConfiguration.class, SpringAiRetryAutoConfiguration.class })
-@EnableConfigurationProperties({ CozeAiChatProperties.class, CozeAiConnectionProperties.class })
+@AutoConfiguration(after = { RestClientAutoConfiguration.class, WebClientAutoConfiguration.class, SpringAiRetryAutoConfiguration.class })
+@EnableConfigurationProperties({ CozeAiChatProperties.class, CozeAiConnectionProperties.class, CozeAiHttpProperties.class, CozeAiLimiterProperties.class,
+        CozeAiReplayProperties.class })
 @ConditionalOnClass(CozeAiApi.class)
 public class CozeAiAutoConfiguration {
 
+    static final String HTTP_CLIENT_BEAN_NAME = "cozeAiHttpClient";
+
+    static final String CONNECTION_PROVIDER_BEAN_NAME = "cozeAiConnectionProvider";
+
+    static final String HEDGING_EXECUTOR_BEAN_NAME = "cozeAiHedgingExecutor";
+
+    static final String TOOL_EXECUTOR_SERVICE_BEAN_NAME = "cozeAiToolExecutorService";
+
+    static final String TOOL_SCHEDULER_BEAN_NAME = "cozeAiToolScheduler";
+
     @Bean
     @ConditionalOnMissingBean
-    public CozeAiApi zhipuAiApi(CozeAiConnectionProperties properties, RestClient.Builder restClientBuilder, ResponseErrorHandler responseErrorHandler) {
+    public CozeAiApi zhipuAiApi(CozeAiConnectionProperties properties, CozeAiApiKeyPool apiKeyPool, CozeAiHttpProperties httpProperties,
+                                RestClient.Builder restClientBuilder, ObjectProvider<WebClient.Builder> webClientBuilderProvider,
+                                @Qualifier(HTTP_CLIENT_BEAN_NAME) ObjectProvider<HttpClient> httpClientProvider,
+                                ObjectProvider<CozeAiRateLimiter> rateLimiter,
+                                ObjectProvider<CozeAiMetrics> metrics,
+                                ObjectProvider<CozeAiRecordReplay> recordReplay,
+                                ResponseErrorHandler responseErrorHandler) {
 
-        Assert.hasText(properties.getApiKey(), "ZhipuAI API key must be set");
         Assert.hasText(properties.getBaseUrl(), "ZhipuAI base URL must be set");
 
-        return new CozeAiApi(properties.getBaseUrl(), properties.getApiKey(), restClientBuilder, responseErrorHandler);
+        WebClient.Builder webClientBuilder = webClientBuilderProvider.getIfAvailable(WebClient::builder);
+        HttpClient httpClient = httpClientProvider.getIfAvailable();
+        if (httpClient != null) {
+            // One pooled connector for both the blocking and the streaming path. It replaces
+            // the request factory and connector of the builders, customizers included.
+            var requestFactory = new ReactorNettyClientRequestFactory(httpClient);
+            requestFactory.setReadTimeout(httpProperties.getReadTimeout());
+            requestFactory.setExchangeTimeout(httpProperties.getResponseTimeout());
+            restClientBuilder = restClientBuilder.clone().requestFactory(requestFactory);
+            webClientBuilder = webClientBuilder.clone().clientConnector(new ReactorClientHttpConnector(httpClient));
+        }
+
+        CozeAiApi cozeAiApi = new CozeAiApi(properties.getBaseUrl(), apiKeyPool, restClientBuilder, webClientBuilder, responseErrorHandler);
+        cozeAiApi.setRateLimiter(rateLimiter.getIfAvailable());
+        cozeAiApi.setMetrics(metrics.getIfAvailable());
+        cozeAiApi.setRecordReplay(recordReplay.getIfAvailable());
+        return cozeAiApi;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CozeAiApiKeyPool cozeAiApiKeyPool(CozeAiConnectionProperties properties) {
+        List<CozeAiApiKeyPool.ApiKey> keys = new ArrayList<>();
+        for (CozeAiConnectionProperties.ApiKey apiKey : properties.getApiKeys()) {
+            keys.add(new CozeAiApiKeyPool.ApiKey(apiKey.getKey(), apiKey.getName(), apiKey.getWeight(), apiKey.getQuota()));
+        }
+        if (keys.isEmpty()) {
+            Assert.hasText(properties.getApiKey(), "ZhipuAI API key must be set");
+            keys.add(new CozeAiApiKeyPool.ApiKey(properties.getApiKey()));
+        }
+        CozeAiConnectionProperties.KeyPool keyPool = properties.getKeyPool();
+        return new CozeAiApiKeyPool(keys, keyPool.getSelection(), keyPool.getThrottleCooldown(), keyPool.getUnauthorizedCooldown());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiReplayProperties.CONFIG_PREFIX, name = "mode")
+    public CozeAiReplayStore cozeAiReplayStore(CozeAiReplayProperties properties) {
+        long segmentSize = properties.getSegmentSize().toBytes();
+        Assert.isTrue(segmentSize <= Integer.MAX_VALUE, "spring.ai.coze.replay.segment-size must be less than 2GB, got " + properties.getSegmentSize());
+        return new CozeAiReplayStore(Path.of(properties.getDirectory()), (int) segmentSize);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiReplayProperties.CONFIG_PREFIX, name = "mode")
+    public CozeAiRecordReplay cozeAiRecordReplay(CozeAiReplayProperties properties, CozeAiReplayStore store) {
+        CozeAiRecordReplay recordReplay = new CozeAiRecordReplay(store, properties.getMode());
+        recordReplay.setSpeed(properties.getSpeed());
+        return recordReplay;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiLimiterProperties.CONFIG_PREFIX, name = "enabled", havingValue = "true")
+    public CozeAiRateLimiter cozeAiRateLimiter(CozeAiLimiterProperties properties) {
+        return CozeAiRateLimiter.builder()
+                .withPermitsPerSecond(properties.getPermitsPerSecond())
+                .withBurst(properties.getBurst())
+                .withInitialLimit(properties.getInitialLimit())
+                .withMinLimit(properties.getMinLimit())
+                .withMaxLimit(properties.getMaxLimit())
+                .withBackoffRatio(properties.getBackoffRatio())
+                .withLatencyTolerance(properties.getLatencyTolerance())
+                .withDecreaseCooldown(properties.getDecreaseCooldown())
+                .withMaxQueueSize(properties.getMaxQueueSize())
+                .withMaxWait(properties.getMaxWait())
+                .build();
     }
 
     @Bean
@@ -46,11 +171,170 @@ public class CozeAiAutoConfiguration {
                                               CozeAiChatProperties chatProperties,
                                               List<FunctionCallback> toolFunctionCallbacks,
                                               FunctionCallbackContext functionCallbackContext,
-                                              RetryTemplate retryTemplate) {
+                                              RetryTemplate retryTemplate,
+                                              ObjectProvider<CozeAiResponseCache> responseCache,
+                                              ObjectProvider<CozeAiRequestCoalescer> requestCoalescer,
+                                              ObjectProvider<CozeAiRequestHedger> requestHedger,
+                                              ObjectProvider<CozeAiToolExecutor> toolExecutor,
+                                              ObjectProvider<CozeAiToolResultCache> toolResultCache,
+                                              @Qualifier(TOOL_SCHEDULER_BEAN_NAME) ObjectProvider<Scheduler> toolScheduler,
+                                              ObjectProvider<CozeAiStreamRetry> streamRetry,
+                                              ObjectProvider<CozeAiMetrics> metrics,
+                                              ObjectProvider<CozeAiUsageAggregator> usageAggregator,
+                                              ObjectProvider<CozeAiConversationTracker> conversationTracker,
+                                              ObjectProvider<CozeAiHistoryCompactor> historyCompactor,
+                                              ObjectProvider<CozeAiStreamCoalescer> streamCoalescer) {
         if (!CollectionUtils.isEmpty(toolFunctionCallbacks)) {
             chatProperties.getOptions().getFunctionCallbacks().addAll(toolFunctionCallbacks);
         }
-        return new CozeAiChatClient(cozeAiApi, chatProperties.getOptions(), functionCallbackContext, retryTemplate);
+        CozeAiChatClient chatClient = new CozeAiChatClient(cozeAiApi, chatProperties.getOptions(), functionCallbackContext, retryTemplate);
+        chatClient.setResponseCache(responseCache.getIfAvailable());
+        chatClient.setRequestCoalescer(requestCoalescer.getIfAvailable());
+        chatClient.setRequestHedger(requestHedger.getIfAvailable());
+        chatClient.setToolExecutor(toolExecutor.getIfAvailable());
+        chatClient.setToolResultCache(toolResultCache.getIfAvailable());
+        toolScheduler.ifAvailable(chatClient::setToolScheduler);
+        chatClient.setStreamRetry(streamRetry.getIfAvailable());
+        chatClient.setMetrics(metrics.getIfAvailable());
+        chatClient.setUsageAggregator(usageAggregator.getIfAvailable());
+        chatClient.setConversationTracker(conversationTracker.getIfAvailable());
+        chatClient.setHistoryCompactor(historyCompactor.getIfAvailable());
+        chatClient.setStreamCoalescer(streamCoalescer.getIfAvailable());
+        return chatClient;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX, name = "usage-aggregation", havingValue = "true", matchIfMissing = true)
+    public CozeAiUsageAggregator cozeAiUsageAggregator() {
+        return new CozeAiUsageAggregator();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX, name = "coalescing", havingValue = "true")
+    public CozeAiRequestCoalescer cozeAiRequestCoalescer() {
+        return new CozeAiRequestCoalescer();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX + ".cache", name = "enabled", havingValue = "true")
+    public CozeAiResponseCache cozeAiResponseCache(CozeAiChatProperties chatProperties) {
+        CozeAiChatProperties.Cache cache = chatProperties.getCache();
+        long maxBytes = (cache.getMaxSize() != null ? cache.getMaxSize().toBytes() : -1);
+        return new CozeAiResponseCache(cache.getMaxEntries(), maxBytes, cache.getTimeToLive(), cache.isCacheSampled());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX + ".stream-retry", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CozeAiStreamRetry cozeAiStreamRetry(CozeAiChatProperties chatProperties) {
+        CozeAiChatProperties.StreamRetry retry = chatProperties.getStreamRetry();
+        return new CozeAiStreamRetry(retry.getMaxAttempts(), retry.getMinBackoff(), retry.getMaxBackoff(),
+                retry.getJitter(), retry.getAfterFirstToken(), retry.getContinuePrompt());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX + ".conversation", name = "enabled", havingValue = "true")
+    public CozeAiConversationTracker cozeAiConversationTracker(CozeAiChatProperties chatProperties) {
+        CozeAiChatProperties.Conversation conversation = chatProperties.getConversation();
+        return new CozeAiConversationTracker(conversation.getMaxConversations(), conversation.getTimeToLive());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX + ".compaction", name = "enabled", havingValue = "true")
+    public CozeAiHistoryCompactor cozeAiHistoryCompactor(CozeAiChatProperties chatProperties,
+                                                         ObjectProvider<CozeAiTokenEstimator> tokenEstimator,
+                                                         ObjectProvider<CozeAiCompactionStrategy> compactionStrategy) {
+        CozeAiChatProperties.Compaction compaction = chatProperties.getCompaction();
+        CozeAiTokenEstimator estimator = tokenEstimator.getIfAvailable(() -> new CachingTokenEstimator(
+                new CharacterRatioTokenEstimator(compaction.getCharactersPerToken()), compaction.getMaxCachedEstimates()));
+        CozeAiCompactionStrategy strategy = compactionStrategy.getIfAvailable(() ->
+                compaction.getStrategy() == CozeAiChatProperties.Compaction.Strategy.TRUNCATE
+                        ? CozeAiCompactionStrategy.truncate(compaction.getMinTruncatedTokens())
+                        : CozeAiCompactionStrategy.drop());
+        return new CozeAiHistoryCompactor(estimator, strategy, compaction.getContextWindow(),
+                compaction.getContextWindows(), compaction.getKeepRecentMessages());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX + ".stream-coalescing", name = "enabled", havingValue = "true")
+    public CozeAiStreamCoalescer cozeAiStreamCoalescer(CozeAiChatProperties chatProperties) {
+        CozeAiChatProperties.StreamCoalescing coalescing = chatProperties.getStreamCoalescing();
+        return new CozeAiStreamCoalescer(coalescing.getMaxLatency(), coalescing.getMaxCharacters(),
+                coalescing.getMaxChunks(), coalescing.getPrefetch());
+    }
+
+    @Bean(name = TOOL_SCHEDULER_BEAN_NAME, destroyMethod = "dispose")
+    @ConditionalOnMissingBean(name = TOOL_SCHEDULER_BEAN_NAME)
+    public Scheduler cozeAiToolScheduler(CozeAiChatProperties chatProperties) {
+        CozeAiChatProperties.Tools tools = chatProperties.getTools();
+        return Schedulers.newBoundedElastic(tools.getMaxThreads(), tools.getMaxQueuedTasks(), "coze-tool-stream", 60, true);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX + ".tools.cache", name = "enabled", havingValue = "true")
+    public CozeAiToolResultCache cozeAiToolResultCache(CozeAiChatProperties chatProperties) {
+        CozeAiChatProperties.Tools.ResultCache cache = chatProperties.getTools().getCache();
+        Map<String, CozeAiToolResultCache.Policy> policies = new HashMap<>();
+        cache.getFunctions().forEach((name, function) -> policies.put(name,
+                new CozeAiToolResultCache.Policy(function.getTimeToLive(), function.getIdempotent())));
+        return new CozeAiToolResultCache(cache.getMaxEntries(), cache.getTimeToLive(), cache.isIdempotent(), policies);
+    }
+
+    /**
+     * Hedging of slow blocking chat calls.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX + ".hedging", name = "enabled", havingValue = "true")
+    static class HedgingConfiguration {
+
+        @Bean(name = HEDGING_EXECUTOR_BEAN_NAME, destroyMethod = "shutdownNow")
+        @ConditionalOnMissingBean(name = HEDGING_EXECUTOR_BEAN_NAME)
+        ExecutorService cozeAiHedgingExecutor(CozeAiChatProperties chatProperties) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("coze-hedging-");
+            threadFactory.setDaemon(true);
+            return new ThreadPoolExecutor(0, chatProperties.getHedging().getMaxThreads(), 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), threadFactory);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        CozeAiRequestHedger cozeAiRequestHedger(CozeAiChatProperties chatProperties,
+                                                @Qualifier(HEDGING_EXECUTOR_BEAN_NAME) ExecutorService executor) {
+            CozeAiChatProperties.Hedging hedging = chatProperties.getHedging();
+            return new CozeAiRequestHedger(executor, hedging.getDelay(), hedging.getPercentile(),
+                    hedging.getMinSamples(), hedging.getMaxHedgeRatio());
+        }
+
+    }
+
+    /**
+     * Concurrent execution of the tool calls of one model turn.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = CozeAiChatProperties.CONFIG_PREFIX + ".tools", name = "parallel", havingValue = "true")
+    static class ToolExecutionConfiguration {
+
+        @Bean(name = TOOL_EXECUTOR_SERVICE_BEAN_NAME, destroyMethod = "shutdownNow")
+        @ConditionalOnMissingBean(name = TOOL_EXECUTOR_SERVICE_BEAN_NAME)
+        ExecutorService cozeAiToolExecutorService(CozeAiChatProperties chatProperties) {
+            return CozeAiToolExecutor.createDefaultExecutor(chatProperties.getTools().getMaxThreads());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        CozeAiToolExecutor cozeAiToolExecutor(CozeAiChatProperties chatProperties,
+                                              @Qualifier(TOOL_EXECUTOR_SERVICE_BEAN_NAME) ExecutorService executor) {
+            CozeAiChatProperties.Tools tools = chatProperties.getTools();
+            return new CozeAiToolExecutor(executor, tools.getTimeout(), tools.getTimeouts());
+        }
+
     }
 
     @Bean
@@ -61,4 +345,48 @@ public class CozeAiAutoConfiguration {
         return manager;
     }
 
+    /**
+     * Pooled Reactor Netty transport shared by the blocking and streaming Coze calls.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(HttpClient.class)
+    @ConditionalOnProperty(prefix = CozeAiHttpProperties.CONFIG_PREFIX, name = "enabled", havingValue = "true")
+    static class ReactorNettyHttpConfiguration {
+
+        @Bean(name = CONNECTION_PROVIDER_BEAN_NAME, destroyMethod = "dispose")
+        @ConditionalOnMissingBean(name = CONNECTION_PROVIDER_BEAN_NAME)
+        ConnectionProvider cozeAiConnectionProvider(CozeAiHttpProperties properties) {
+            CozeAiHttpProperties.Pool pool = properties.getPool();
+            ConnectionProvider.Builder builder = ConnectionProvider.builder(pool.getName())
+                    .maxConnections(pool.getMaxConnections())
+                    .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                    .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                    .maxIdleTime(pool.getMaxIdleTime())
+                    .metrics(pool.isMetricsEnabled() && ClassUtils.isPresent("io.micrometer.core.instrument.Metrics", null));
+            if (pool.getMaxLifeTime() != null) {
+                builder.maxLifeTime(pool.getMaxLifeTime());
+            }
+            if (pool.getEvictionInterval() != null) {
+                builder.evictInBackground(pool.getEvictionInterval());
+            }
+            return builder.build();
+        }
+
+        @Bean(name = HTTP_CLIENT_BEAN_NAME)
+        @ConditionalOnMissingBean(name = HTTP_CLIENT_BEAN_NAME)
+        HttpClient cozeAiHttpClient(CozeAiHttpProperties properties,
+                                    @Qualifier(CONNECTION_PROVIDER_BEAN_NAME) ConnectionProvider connectionProvider) {
+            HttpClient httpClient = HttpClient.create(connectionProvider)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                    .option(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive())
+                    .keepAlive(properties.isKeepAlive())
+                    .responseTimeout(properties.getReadTimeout());
+            if (properties.isHttp2()) {
+                httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+            }
+            return httpClient;
+        }
+
+    }
+
 }
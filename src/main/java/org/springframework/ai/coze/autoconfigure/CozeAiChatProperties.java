@@ -2,9 +2,16 @@ package org.springframework.ai.coze.autoconfigure;
 
 import org.springframework.ai.coze.api.CozeAiApi;
 import org.springframework.ai.coze.api.CozeAiChatOptions;
+import org.springframework.ai.coze.compaction.CharacterRatioTokenEstimator;
+import org.springframework.ai.coze.retry.CozeAiStreamRetry;
 import org.springframework.ai.coze.util.ApiUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 @ConfigurationProperties(CozeAiChatProperties.CONFIG_PREFIX)
 public class CozeAiChatProperties {
@@ -31,6 +38,58 @@ public class CozeAiChatProperties {
             .withTopP(ApiUtils.DEFAULT_TOP_P)
             .build();
 
+    /**
+     * Exact-match response cache for blocking calls.
+     */
+    @NestedConfigurationProperty
+    private Cache cache = new Cache();
+
+    /**
+     * Share one upstream exchange between identical concurrent requests.
+     */
+    private boolean coalescing = false;
+
+    /**
+     * Keep in-process totals of the token usage per model and per user.
+     */
+    private boolean usageAggregation = true;
+
+    /**
+     * Hedging of slow blocking calls.
+     */
+    @NestedConfigurationProperty
+    private Hedging hedging = new Hedging();
+
+    /**
+     * Execution of the functions the model calls.
+     */
+    @NestedConfigurationProperty
+    private Tools tools = new Tools();
+
+    /**
+     * Retry of streamed responses that fail while being consumed.
+     */
+    @NestedConfigurationProperty
+    private StreamRetry streamRetry = new StreamRetry();
+
+    /**
+     * Reuse of server-side conversations for requests with a conversation id.
+     */
+    @NestedConfigurationProperty
+    private Conversation conversation = new Conversation();
+
+    /**
+     * Compaction of histories exceeding the context window of the model.
+     */
+    @NestedConfigurationProperty
+    private Compaction compaction = new Compaction();
+
+    /**
+     * Grouping of streamed content chunks before they are emitted.
+     */
+    @NestedConfigurationProperty
+    private StreamCoalescing streamCoalescing = new StreamCoalescing();
+
     public CozeAiChatOptions getOptions() {
         return this.options;
     }
@@ -47,4 +106,743 @@ public class CozeAiChatProperties {
         this.enabled = enabled;
     }
 
+    public boolean isCoalescing() {
+        return this.coalescing;
+    }
+
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    public boolean isUsageAggregation() {
+        return this.usageAggregation;
+    }
+
+    public void setUsageAggregation(boolean usageAggregation) {
+        this.usageAggregation = usageAggregation;
+    }
+
+    public Cache getCache() {
+        return this.cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public Hedging getHedging() {
+        return this.hedging;
+    }
+
+    public void setHedging(Hedging hedging) {
+        this.hedging = hedging;
+    }
+
+    public Tools getTools() {
+        return this.tools;
+    }
+
+    public void setTools(Tools tools) {
+        this.tools = tools;
+    }
+
+    public StreamRetry getStreamRetry() {
+        return this.streamRetry;
+    }
+
+    public void setStreamRetry(StreamRetry streamRetry) {
+        this.streamRetry = streamRetry;
+    }
+
+    public Conversation getConversation() {
+        return this.conversation;
+    }
+
+    public void setConversation(Conversation conversation) {
+        this.conversation = conversation;
+    }
+
+    public Compaction getCompaction() {
+        return this.compaction;
+    }
+
+    public void setCompaction(Compaction compaction) {
+        this.compaction = compaction;
+    }
+
+    public StreamCoalescing getStreamCoalescing() {
+        return this.streamCoalescing;
+    }
+
+    public void setStreamCoalescing(StreamCoalescing streamCoalescing) {
+        this.streamCoalescing = streamCoalescing;
+    }
+
+    public static class Cache {
+
+        /**
+         * Serve identical blocking requests from an in-memory cache.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of cached responses.
+         */
+        private long maxEntries = 10_000;
+
+        /**
+         * Maximum estimated size of all cached responses, takes precedence over max-entries
+         * when set.
+         */
+        private DataSize maxSize;
+
+        /**
+         * Time after which a cached response expires.
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+
+        /**
+         * Also cache requests that sample (do_sample true or unset). Their answers are not
+         * deterministic, so they bypass the cache by default.
+         */
+        private boolean cacheSampled = false;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxEntries() {
+            return this.maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public DataSize getMaxSize() {
+            return this.maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTimeToLive() {
+            return this.timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public boolean isCacheSampled() {
+            return this.cacheSampled;
+        }
+
+        public void setCacheSampled(boolean cacheSampled) {
+            this.cacheSampled = cacheSampled;
+        }
+
+    }
+
+    public static class Hedging {
+
+        /**
+         * Start a second identical request when a blocking call is slow.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Time to wait for the first attempt before hedging. Also used until enough
+         * latencies are observed when a percentile is set.
+         */
+        private Duration delay = Duration.ofSeconds(5);
+
+        /**
+         * Hedge after this percentile of the observed latencies instead of the fixed delay,
+         * e.g. 0.95. 0 always uses the fixed delay.
+         */
+        private double percentile = 0;
+
+        /**
+         * Observed calls required before the percentile is used.
+         */
+        private int minSamples = 100;
+
+        /**
+         * Maximum share of calls that may be hedged.
+         */
+        private double maxHedgeRatio = 0.1;
+
+        /**
+         * Maximum number of threads running attempts, calls beyond it are not hedged.
+         */
+        private int maxThreads = 256;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getDelay() {
+            return this.delay;
+        }
+
+        public void setDelay(Duration delay) {
+            this.delay = delay;
+        }
+
+        public double getPercentile() {
+            return this.percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public int getMinSamples() {
+            return this.minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public double getMaxHedgeRatio() {
+            return this.maxHedgeRatio;
+        }
+
+        public void setMaxHedgeRatio(double maxHedgeRatio) {
+            this.maxHedgeRatio = maxHedgeRatio;
+        }
+
+        public int getMaxThreads() {
+            return this.maxThreads;
+        }
+
+        public void setMaxThreads(int maxThreads) {
+            this.maxThreads = maxThreads;
+        }
+
+    }
+
+    public static class Tools {
+
+        /**
+         * Run the tool calls of one model turn concurrently on other threads. Off by
+         * default, the calls then run one after the other on the calling thread and keep its
+         * thread-bound context.
+         */
+        private boolean parallel = false;
+
+        /**
+         * Timeout of a single tool call, unset for none. Only applies to parallel calls.
+         */
+        private Duration timeout;
+
+        /**
+         * Timeouts by function name, overriding the default timeout.
+         */
+        private Map<String, Duration> timeouts = new HashMap<>();
+
+        /**
+         * Maximum number of threads running tool calls when virtual threads are not
+         * available (Java 17 to 20). Also bounds the scheduler running the tool calls of
+         * streamed responses.
+         */
+        private int maxThreads = 64;
+
+        /**
+         * Maximum number of streamed tool rounds waiting for a thread of the tool scheduler.
+         */
+        private int maxQueuedTasks = 10_000;
+
+        /**
+         * Cache of tool call results.
+         */
+        @NestedConfigurationProperty
+        private ResultCache cache = new ResultCache();
+
+        public ResultCache getCache() {
+            return this.cache;
+        }
+
+        public void setCache(ResultCache cache) {
+            this.cache = cache;
+        }
+
+        public boolean isParallel() {
+            return this.parallel;
+        }
+
+        public void setParallel(boolean parallel) {
+            this.parallel = parallel;
+        }
+
+        public Duration getTimeout() {
+            return this.timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public Map<String, Duration> getTimeouts() {
+            return this.timeouts;
+        }
+
+        public void setTimeouts(Map<String, Duration> timeouts) {
+            this.timeouts = timeouts;
+        }
+
+        public int getMaxThreads() {
+            return this.maxThreads;
+        }
+
+        public int getMaxQueuedTasks() {
+            return this.maxQueuedTasks;
+        }
+
+        public void setMaxQueuedTasks(int maxQueuedTasks) {
+            this.maxQueuedTasks = maxQueuedTasks;
+        }
+
+        public void setMaxThreads(int maxThreads) {
+            this.maxThreads = maxThreads;
+        }
+
+        public static class ResultCache {
+
+            /**
+             * Memoize the results of idempotent functions.
+             */
+            private boolean enabled = false;
+
+            /**
+             * Maximum number of cached results.
+             */
+            private long maxEntries = 10_000;
+
+            /**
+             * Time to live of cached results.
+             */
+            private Duration timeToLive = Duration.ofMinutes(5);
+
+            /**
+             * Treat functions without their own setting as idempotent.
+             */
+            private boolean idempotent = false;
+
+            /**
+             * Per-function settings by function name.
+             */
+            private Map<String, FunctionCache> functions = new HashMap<>();
+
+            public boolean isEnabled() {
+                return this.enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getMaxEntries() {
+                return this.maxEntries;
+            }
+
+            public void setMaxEntries(long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public Duration getTimeToLive() {
+                return this.timeToLive;
+            }
+
+            public void setTimeToLive(Duration timeToLive) {
+                this.timeToLive = timeToLive;
+            }
+
+            public boolean isIdempotent() {
+                return this.idempotent;
+            }
+
+            public void setIdempotent(boolean idempotent) {
+                this.idempotent = idempotent;
+            }
+
+            public Map<String, FunctionCache> getFunctions() {
+                return this.functions;
+            }
+
+            public void setFunctions(Map<String, FunctionCache> functions) {
+                this.functions = functions;
+            }
+
+        }
+
+        public static class FunctionCache {
+
+            /**
+             * Time to live of this function's results, unset for the default.
+             */
+            private Duration timeToLive;
+
+            /**
+             * Whether this function's results may be cached, unset for the default.
+             */
+            private Boolean idempotent;
+
+            public Duration getTimeToLive() {
+                return this.timeToLive;
+            }
+
+            public void setTimeToLive(Duration timeToLive) {
+                this.timeToLive = timeToLive;
+            }
+
+            public Boolean getIdempotent() {
+                return this.idempotent;
+            }
+
+            public void setIdempotent(Boolean idempotent) {
+                this.idempotent = idempotent;
+            }
+
+        }
+
+    }
+
+    public static class StreamRetry {
+
+        /**
+         * Retry streams failing with a transient error.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Total number of attempts, including the first one.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Backoff before the first retry, doubled for every further retry.
+         */
+        private Duration minBackoff = Duration.ofMillis(500);
+
+        /**
+         * Upper bound of the backoff.
+         */
+        private Duration maxBackoff = Duration.ofSeconds(10);
+
+        /**
+         * Jitter factor applied to each backoff, between 0 and 1.
+         */
+        private double jitter = 0.5;
+
+        /**
+         * What to do when a stream fails after tokens were emitted: fail, restart (the
+         * answer is streamed again from the start) or continue (the model is asked to
+         * continue its partial answer).
+         */
+        private CozeAiStreamRetry.ResumeStrategy afterFirstToken = CozeAiStreamRetry.ResumeStrategy.FAIL;
+
+        /**
+         * User message asking the model to continue its partial answer.
+         */
+        private String continuePrompt = CozeAiStreamRetry.DEFAULT_CONTINUE_PROMPT;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxAttempts() {
+            return this.maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getMinBackoff() {
+            return this.minBackoff;
+        }
+
+        public void setMinBackoff(Duration minBackoff) {
+            this.minBackoff = minBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return this.maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public double getJitter() {
+            return this.jitter;
+        }
+
+        public void setJitter(double jitter) {
+            this.jitter = jitter;
+        }
+
+        public CozeAiStreamRetry.ResumeStrategy getAfterFirstToken() {
+            return this.afterFirstToken;
+        }
+
+        public void setAfterFirstToken(CozeAiStreamRetry.ResumeStrategy afterFirstToken) {
+            this.afterFirstToken = afterFirstToken;
+        }
+
+        public String getContinuePrompt() {
+            return this.continuePrompt;
+        }
+
+        public void setContinuePrompt(String continuePrompt) {
+            this.continuePrompt = continuePrompt;
+        }
+
+    }
+
+    public static class Conversation {
+
+        /**
+         * Send only the messages the server-side conversation does not hold yet.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of tracked conversations.
+         */
+        private long maxConversations = 10_000;
+
+        /**
+         * How long an idle conversation is tracked, should not exceed the server-side
+         * retention of conversations.
+         */
+        private Duration timeToLive = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxConversations() {
+            return this.maxConversations;
+        }
+
+        public void setMaxConversations(long maxConversations) {
+            this.maxConversations = maxConversations;
+        }
+
+        public Duration getTimeToLive() {
+            return this.timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+    }
+
+    public static class Compaction {
+
+        /**
+         * Compact the history before sending when the prompt would not fit.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How older messages are compacted: drop them, or drop them and truncate the newest
+         * dropped one. A CozeAiCompactionStrategy bean, e.g. a summarizing one, takes
+         * precedence.
+         */
+        private Strategy strategy = Strategy.DROP;
+
+        /**
+         * Context window, in tokens, of models without their own.
+         */
+        private int contextWindow = 32_768;
+
+        /**
+         * Context windows, in tokens, by model.
+         */
+        private Map<String, Integer> contextWindows = new HashMap<>();
+
+        /**
+         * Number of most recent messages always sent.
+         */
+        private int keepRecentMessages = 4;
+
+        /**
+         * Characters per token of the local estimate.
+         */
+        private double charactersPerToken = CharacterRatioTokenEstimator.DEFAULT_CHARACTERS_PER_TOKEN;
+
+        /**
+         * Maximum number of cached message estimates.
+         */
+        private long maxCachedEstimates = 100_000;
+
+        /**
+         * Smallest truncated message worth sending, in tokens.
+         */
+        private int minTruncatedTokens = 64;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Strategy getStrategy() {
+            return this.strategy;
+        }
+
+        public void setStrategy(Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        public int getContextWindow() {
+            return this.contextWindow;
+        }
+
+        public void setContextWindow(int contextWindow) {
+            this.contextWindow = contextWindow;
+        }
+
+        public Map<String, Integer> getContextWindows() {
+            return this.contextWindows;
+        }
+
+        public void setContextWindows(Map<String, Integer> contextWindows) {
+            this.contextWindows = contextWindows;
+        }
+
+        public int getKeepRecentMessages() {
+            return this.keepRecentMessages;
+        }
+
+        public void setKeepRecentMessages(int keepRecentMessages) {
+            this.keepRecentMessages = keepRecentMessages;
+        }
+
+        public double getCharactersPerToken() {
+            return this.charactersPerToken;
+        }
+
+        public void setCharactersPerToken(double charactersPerToken) {
+            this.charactersPerToken = charactersPerToken;
+        }
+
+        public long getMaxCachedEstimates() {
+            return this.maxCachedEstimates;
+        }
+
+        public void setMaxCachedEstimates(long maxCachedEstimates) {
+            this.maxCachedEstimates = maxCachedEstimates;
+        }
+
+        public int getMinTruncatedTokens() {
+            return this.minTruncatedTokens;
+        }
+
+        public void setMinTruncatedTokens(int minTruncatedTokens) {
+            this.minTruncatedTokens = minTruncatedTokens;
+        }
+
+        public enum Strategy {
+
+            DROP, TRUNCATE
+
+        }
+
+    }
+
+    public static class StreamCoalescing {
+
+        /**
+         * Group consecutive content chunks of streams.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long the first chunk of a group may wait.
+         */
+        private Duration maxLatency = Duration.ofMillis(30);
+
+        /**
+         * Emit a group once it holds this many characters.
+         */
+        private int maxCharacters = 256;
+
+        /**
+         * Emit a group once it holds this many chunks.
+         */
+        private int maxChunks = 64;
+
+        /**
+         * Chunks requested from the upstream at a time.
+         */
+        private int prefetch = 32;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getMaxLatency() {
+            return this.maxLatency;
+        }
+
+        public void setMaxLatency(Duration maxLatency) {
+            this.maxLatency = maxLatency;
+        }
+
+        public int getMaxCharacters() {
+            return this.maxCharacters;
+        }
+
+        public void setMaxCharacters(int maxCharacters) {
+            this.maxCharacters = maxCharacters;
+        }
+
+        public int getMaxChunks() {
+            return this.maxChunks;
+        }
+
+        public void setMaxChunks(int maxChunks) {
+            this.maxChunks = maxChunks;
+        }
+
+        public int getPrefetch() {
+            return this.prefetch;
+        }
+
+        public void setPrefetch(int prefetch) {
+            this.prefetch = prefetch;
+        }
+
+    }
+
 }
@@ -1,7 +1,13 @@
 package org.springframework.ai.coze.autoconfigure;
 
+import org.springframework.ai.coze.credential.CozeAiApiKeyPool;
 import org.springframework.ai.coze.util.ApiUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @ConfigurationProperties(CozeAiConnectionProperties.CONFIG_PREFIX)
 public class CozeAiConnectionProperties {
@@ -15,6 +21,14 @@ public class CozeAiConnectionProperties {
 
     private String apiKey;
 
+    /**
+     * Several API keys to spread the requests over. Takes precedence over api-key.
+     */
+    private List<ApiKey> apiKeys = new ArrayList<>();
+
+    @NestedConfigurationProperty
+    private KeyPool keyPool = new KeyPool();
+
     public String getApiKey() {
         return this.apiKey;
     }
@@ -31,4 +45,120 @@ public class CozeAiConnectionProperties {
         this.baseUrl = baseUrl;
     }
 
+    public List<ApiKey> getApiKeys() {
+        return apiKeys;
+    }
+
+    public void setApiKeys(List<ApiKey> apiKeys) {
+        this.apiKeys = apiKeys;
+    }
+
+    public KeyPool getKeyPool() {
+        return keyPool;
+    }
+
+    public void setKeyPool(KeyPool keyPool) {
+        this.keyPool = keyPool;
+    }
+
+    public static class ApiKey {
+
+        /**
+         * The API key.
+         */
+        private String key;
+
+        /**
+         * Name used in statistics and logs instead of the key itself.
+         */
+        private String name;
+
+        /**
+         * Relative share of the concurrent requests.
+         */
+        private int weight = 1;
+
+        /**
+         * Maximum requests per minute, 0 for unlimited.
+         */
+        private int quota = 0;
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+
+        public int getQuota() {
+            return quota;
+        }
+
+        public void setQuota(int quota) {
+            this.quota = quota;
+        }
+
+    }
+
+    public static class KeyPool {
+
+        /**
+         * How the key for the next request is chosen.
+         */
+        private CozeAiApiKeyPool.Selection selection = CozeAiApiKeyPool.Selection.LEAST_OUTSTANDING;
+
+        /**
+         * How long a key answering 429 is taken out of rotation, unless the answer carries
+         * a Retry-After header.
+         */
+        private Duration throttleCooldown = Duration.ofSeconds(10);
+
+        /**
+         * How long a key answering 401 is taken out of rotation.
+         */
+        private Duration unauthorizedCooldown = Duration.ofMinutes(5);
+
+        public CozeAiApiKeyPool.Selection getSelection() {
+            return selection;
+        }
+
+        public void setSelection(CozeAiApiKeyPool.Selection selection) {
+            this.selection = selection;
+        }
+
+        public Duration getThrottleCooldown() {
+            return throttleCooldown;
+        }
+
+        public void setThrottleCooldown(Duration throttleCooldown) {
+            this.throttleCooldown = throttleCooldown;
+        }
+
+        public Duration getUnauthorizedCooldown() {
+            return unauthorizedCooldown;
+        }
+
+        public void setUnauthorizedCooldown(Duration unauthorizedCooldown) {
+            this.unauthorizedCooldown = unauthorizedCooldown;
+        }
+
+    }
+
 }
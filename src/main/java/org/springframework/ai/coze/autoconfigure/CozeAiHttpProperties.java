@@ -0,0 +1,224 @@
+package org.springframework.ai.coze.autoconfigure;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+import java.time.Duration;
+
+/**
+ * HTTP transport shared by the blocking ({@code RestClient}) and streaming
+ * ({@code WebClient}) paths of the Coze API client.
+ */
+@ConfigurationProperties(CozeAiHttpProperties.CONFIG_PREFIX)
+public class CozeAiHttpProperties {
+
+    public static final String CONFIG_PREFIX = "spring.ai.coze.http";
+
+    /**
+     * Use the pooled Reactor Netty connector configured here, in place of the request
+     * factory and connector of the injected client builders. Off by default, the builders
+     * then keep their own transport, customizers and timeouts.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Connect timeout, including the TLS handshake.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Maximum idle time between two network reads of a response, including the wait for
+     * its first byte. Also bounds the gap between two streamed tokens.
+     */
+    private Duration readTimeout = Duration.ofSeconds(120);
+
+    /**
+     * Maximum time a blocking call waits for the response. Non-streaming chat answers only
+     * arrive once the whole completion is generated, keep this generous.
+     */
+    private Duration responseTimeout = Duration.ofSeconds(180);
+
+    /**
+     * Enable TCP and HTTP keep-alive.
+     */
+    private boolean keepAlive = true;
+
+    /**
+     * Negotiate HTTP/2 (via ALPN) and fall back to HTTP/1.1.
+     */
+    private boolean http2 = false;
+
+    @NestedConfigurationProperty
+    private Pool pool = new Pool();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public void setResponseTimeout(Duration responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public void setPool(Pool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Connection pool settings. Reactor Netty keeps one pool per remote host, so the
+     * limits below are effectively per host.
+     */
+    public static class Pool {
+
+        /**
+         * Name of the pool, used as the metrics tag.
+         */
+        private String name = "coze";
+
+        /**
+         * Maximum number of connections per host.
+         */
+        private int maxConnections = 500;
+
+        /**
+         * Maximum number of requests waiting for a connection, -1 for unbounded.
+         */
+        private int pendingAcquireMaxCount = 1000;
+
+        /**
+         * Maximum time to wait for a connection from the pool.
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+
+        /**
+         * Idle time after which a pooled connection is closed.
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        /**
+         * Maximum life time of a pooled connection, unlimited when not set.
+         */
+        private Duration maxLifeTime;
+
+        /**
+         * Interval of the background eviction of idle and expired connections, disabled
+         * when not set.
+         */
+        private Duration evictionInterval = Duration.ofSeconds(30);
+
+        /**
+         * Publish pool metrics (active, idle, pending connections) to the Micrometer global
+         * registry when Micrometer is on the classpath.
+         */
+        private boolean metricsEnabled = true;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+
+        public Duration getPendingAcquireTimeout() {
+            return pendingAcquireTimeout;
+        }
+
+        public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+        }
+
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        public Duration getMaxLifeTime() {
+            return maxLifeTime;
+        }
+
+        public void setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+        }
+
+        public Duration getEvictionInterval() {
+            return evictionInterval;
+        }
+
+        public void setEvictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+        }
+
+        public boolean isMetricsEnabled() {
+            return metricsEnabled;
+        }
+
+        public void setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package org.springframework.ai.coze.autoconfigure;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Client-side rate and concurrency limiter in front of the Coze API.
+ */
+@ConfigurationProperties(CozeAiLimiterProperties.CONFIG_PREFIX)
+public class CozeAiLimiterProperties {
+
+    public static final String CONFIG_PREFIX = "spring.ai.coze.limiter";
+
+    /**
+     * Enable the limiter.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Sustained requests per second, 0 disables the token bucket.
+     */
+    private double permitsPerSecond = 0;
+
+    /**
+     * Number of requests that may be started at once above the sustained rate.
+     */
+    private int burst = 10;
+
+    /**
+     * Concurrency limit to start with.
+     */
+    private int initialLimit = 20;
+
+    /**
+     * Lower bound of the adaptive concurrency limit.
+     */
+    private int minLimit = 1;
+
+    /**
+     * Upper bound of the adaptive concurrency limit.
+     */
+    private int maxLimit = 200;
+
+    /**
+     * Factor applied to the concurrency limit on 429 / 503 answers.
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * Shrink the limit when a call is slower than this multiple of the no-load latency,
+     * 0 disables the latency signal.
+     */
+    private double latencyTolerance = 0;
+
+    /**
+     * Minimum time between two decreases of the limit.
+     */
+    private Duration decreaseCooldown = Duration.ofMillis(500);
+
+    /**
+     * Maximum number of requests waiting for a permit, -1 for unbounded.
+     */
+    private int maxQueueSize = 1000;
+
+    /**
+     * Maximum time a request waits for a permit before it is rejected.
+     */
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public Duration getDecreaseCooldown() {
+        return decreaseCooldown;
+    }
+
+    public void setDecreaseCooldown(Duration decreaseCooldown) {
+        this.decreaseCooldown = decreaseCooldown;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+}
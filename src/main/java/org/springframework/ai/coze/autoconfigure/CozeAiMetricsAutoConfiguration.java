@@ -0,0 +1,53 @@
+package org.springframework.ai.coze.autoconfigure;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.coze.cache.CozeAiRequestCoalescer;
+import org.springframework.ai.coze.cache.CozeAiResponseCache;
+import org.springframework.ai.coze.cache.CozeAiToolResultCache;
+import org.springframework.ai.coze.credential.CozeAiApiKeyPool;
+import org.springframework.ai.coze.hedging.CozeAiRequestHedger;
+import org.springframework.ai.coze.limiter.CozeAiRateLimiter;
+import org.springframework.ai.coze.metrics.CozeAiMeterBinder;
+import org.springframework.ai.coze.metrics.CozeAiMetrics;
+import org.springframework.ai.coze.metrics.MicrometerCozeAiMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * {@link AutoConfiguration Auto-configuration} for the Micrometer metrics of the CozeAI
+ * clients, active when a {@link MeterRegistry} bean is present.
+ */
+@AutoConfiguration(afterName = { "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration" })
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean(MeterRegistry.class)
+@ConditionalOnProperty(prefix = CozeAiMetricsAutoConfiguration.CONFIG_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CozeAiMetricsAutoConfiguration {
+
+    public static final String CONFIG_PREFIX = "spring.ai.coze.metrics";
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CozeAiMetrics cozeAiMetrics(MeterRegistry meterRegistry) {
+        return new MicrometerCozeAiMetrics(meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CozeAiMeterBinder cozeAiMeterBinder(ObjectProvider<CozeAiResponseCache> responseCache,
+                                               ObjectProvider<CozeAiToolResultCache> toolResultCache,
+                                               ObjectProvider<CozeAiRateLimiter> rateLimiter,
+                                               ObjectProvider<CozeAiApiKeyPool> apiKeyPool,
+                                               ObjectProvider<CozeAiRequestHedger> requestHedger,
+                                               ObjectProvider<CozeAiRequestCoalescer> requestCoalescer) {
+        return new CozeAiMeterBinder(responseCache.getIfAvailable(), toolResultCache.getIfAvailable(),
+                rateLimiter.getIfAvailable(), apiKeyPool.getIfAvailable(), requestHedger.getIfAvailable(),
+                requestCoalescer.getIfAvailable());
+    }
+
+}
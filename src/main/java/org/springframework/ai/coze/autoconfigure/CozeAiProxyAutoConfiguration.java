@@ -0,0 +1,60 @@
+package org.springframework.ai.coze.autoconfigure;
+
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.metadata.CozeAiUsageAggregator;
+import org.springframework.ai.coze.metrics.CozeAiMetrics;
+import org.springframework.ai.coze.proxy.CozeAiProxyHandler;
+import org.springframework.ai.coze.proxy.CozeAiProxyIdentityResolver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * {@link AutoConfiguration Auto-configuration} for the passthrough endpoint relaying raw
+ * CozeAI chat streams, active in reactive web applications when
+ * {@code spring.ai.coze.proxy.enabled} is set.
+ */
+@AutoConfiguration(after = { CozeAiAutoConfiguration.class, CozeAiMetricsAutoConfiguration.class })
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnClass({ CozeAiApi.class, RouterFunction.class })
+@ConditionalOnBean(CozeAiApi.class)
+@ConditionalOnProperty(prefix = CozeAiProxyProperties.CONFIG_PREFIX, name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(CozeAiProxyProperties.class)
+public class CozeAiProxyAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CozeAiProxyHandler cozeAiProxyHandler(CozeAiApi cozeAiApi,
+                                                 CozeAiProxyProperties proxyProperties,
+                                                 ObjectProvider<CozeAiChatProperties> chatProperties,
+                                                 ObjectProvider<CozeAiProxyIdentityResolver> identityResolver,
+                                                 ObjectProvider<CozeAiUsageAggregator> usageAggregator,
+                                                 ObjectProvider<CozeAiMetrics> metrics) {
+        CozeAiChatProperties properties = chatProperties.getIfAvailable();
+        CozeAiProxyHandler handler = new CozeAiProxyHandler(cozeAiApi, properties != null ? properties.getOptions() : null);
+        handler.setUsageAggregator(usageAggregator.getIfAvailable());
+        handler.setMetrics(metrics.getIfAvailable());
+        handler.setAllowedModels(proxyProperties.getAllowedModels());
+        handler.setAllowedBotIds(proxyProperties.getAllowedBotIds());
+        handler.setIdentityResolver(identityResolver.getIfAvailable());
+        return handler;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "cozeAiProxyRouterFunction")
+    public RouterFunction<ServerResponse> cozeAiProxyRouterFunction(CozeAiProxyProperties properties,
+                                                                    CozeAiProxyHandler handler) {
+        return RouterFunctions.route(RequestPredicates.POST(properties.getPath()), handler);
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.springframework.ai.coze.autoconfigure;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Passthrough endpoint relaying Coze chat streams to WebFlux clients without decoding
+ * them.
+ */
+@ConfigurationProperties(CozeAiProxyProperties.CONFIG_PREFIX)
+public class CozeAiProxyProperties {
+
+    public static final String CONFIG_PREFIX = "spring.ai.coze.proxy";
+
+    /**
+     * Enable the passthrough endpoint.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Path of the endpoint, it accepts a POST of a chat completion request.
+     */
+    private String path = "/coze/chat/stream";
+
+    /**
+     * Models a request may ask for besides spring.ai.coze.chat.options.model, any other
+     * model is rejected.
+     */
+    private Set<String> allowedModels = new LinkedHashSet<>();
+
+    /**
+     * Bots a request may ask for besides spring.ai.coze.chat.options.bot-id, any other bot
+     * is rejected.
+     */
+    private Set<String> allowedBotIds = new LinkedHashSet<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public Set<String> getAllowedModels() {
+        return allowedModels;
+    }
+
+    public void setAllowedModels(Set<String> allowedModels) {
+        this.allowedModels = allowedModels;
+    }
+
+    public Set<String> getAllowedBotIds() {
+        return allowedBotIds;
+    }
+
+    public void setAllowedBotIds(Set<String> allowedBotIds) {
+        this.allowedBotIds = allowedBotIds;
+    }
+
+}
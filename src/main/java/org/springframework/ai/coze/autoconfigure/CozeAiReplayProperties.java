@@ -0,0 +1,67 @@
+package org.springframework.ai.coze.autoconfigure;
+
+import org.springframework.ai.coze.replay.CozeAiRecordReplay;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Recording of the Coze API exchanges, and their replay without network access.
+ */
+@ConfigurationProperties(CozeAiReplayProperties.CONFIG_PREFIX)
+public class CozeAiReplayProperties {
+
+    public static final String CONFIG_PREFIX = "spring.ai.coze.replay";
+
+    /**
+     * Record the exchanges or replay recorded ones, disabled when not set.
+     */
+    private CozeAiRecordReplay.Mode mode;
+
+    /**
+     * Directory of the segment files.
+     */
+    private String directory = "coze-replay";
+
+    /**
+     * Size of a segment file, less than 2GB.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Replay speed relative to the recording, 0 replays without delays.
+     */
+    private double speed = 1.0;
+
+    public CozeAiRecordReplay.Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(CozeAiRecordReplay.Mode mode) {
+        this.mode = mode;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+}
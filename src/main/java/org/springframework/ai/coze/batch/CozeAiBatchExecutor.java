@@ -0,0 +1,154 @@
+package org.springframework.ai.coze.batch;
+
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.coze.limiter.CozeAiLimitExceededException;
+import org.springframework.ai.coze.metrics.CozeAiMetrics;
+import org.springframework.util.Assert;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs many chat calls with bounded concurrency. Prompts are pulled from the input only
+ * as slots free up, so an unbounded input is never buffered. Each prompt is retried on
+ * its own and a prompt that keeps failing yields a failed {@link CozeAiBatchResult}
+ * instead of failing the batch.
+ * <p>
+ * The calls go through the regular blocking call path, so they take their permits from
+ * the rate limiter and their keys from the key pool like any other call; a rejection by
+ * the limiter is retried with backoff rather than failing the prompt.
+ */
+public class CozeAiBatchExecutor {
+
+    private final Function<Prompt, ChatResponse> call;
+
+    private final CozeAiMetrics metrics;
+
+    /**
+     * @param call the blocking call of one prompt.
+     * @param metrics the metrics, {@code null} to record nothing.
+     */
+    public CozeAiBatchExecutor(Function<Prompt, ChatResponse> call, CozeAiMetrics metrics) {
+        Assert.notNull(call, "call must not be null");
+        this.call = call;
+        this.metrics = (metrics != null ? metrics : CozeAiMetrics.NOOP);
+    }
+
+    /**
+     * @param prompts the prompts.
+     * @param options the batch options.
+     * @return one result per prompt, in input order or as they complete.
+     */
+    public Flux<CozeAiBatchResult> execute(Publisher<Prompt> prompts, CozeAiBatchOptions options) {
+        Assert.notNull(prompts, "prompts must not be null");
+        Assert.notNull(options, "options must not be null");
+        return Flux.defer(() -> {
+            Batch batch = new Batch(options.getProgressListener(), this.metrics.startBatch());
+            Flux<Tuple2<Long, Prompt>> indexed = Flux.from(prompts).index();
+            Flux<CozeAiBatchResult> results = options.isOrdered()
+                    ? indexed.flatMapSequential(item -> callOne(item.getT1(), item.getT2(), options, batch),
+                            options.getMaxConcurrency(), 1)
+                    : indexed.flatMap(item -> callOne(item.getT1(), item.getT2(), options, batch),
+                            options.getMaxConcurrency(), 1);
+            return results
+                    .doOnComplete(batch.observation::complete)
+                    .doOnError(batch.observation::error)
+                    .doOnCancel(batch.observation::cancel);
+        });
+    }
+
+    private Mono<CozeAiBatchResult> callOne(long index, Prompt prompt, CozeAiBatchOptions options, Batch batch) {
+        batch.submitted.increment();
+        batch.observation.onItemStart();
+        AtomicInteger attempts = new AtomicInteger();
+        Retry retry = Retry.backoff(options.getMaxAttempts() - 1, options.getMinBackoff())
+                .maxBackoff(options.getMaxBackoff())
+                .filter(CozeAiBatchExecutor::isRetryable)
+                .doBeforeRetry(signal -> batch.retried(signal.failure()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+        return Mono.fromCallable(() -> {
+                    attempts.incrementAndGet();
+                    return this.call.apply(prompt);
+                })
+                .subscribeOn(options.getScheduler())
+                .retryWhen(retry)
+                .map(response -> {
+                    batch.succeeded();
+                    return new CozeAiBatchResult(index, prompt, response, null, attempts.get());
+                })
+                .onErrorResume(ex -> {
+                    batch.failed(ex);
+                    return Mono.just(new CozeAiBatchResult(index, prompt, null, ex, attempts.get()));
+                })
+                .doOnCancel(() -> batch.observation.onItemFailure(new CancellationException("Batch cancelled")));
+    }
+
+    /**
+     * Only a rejection of the client-side limiter is retried here: transient upstream
+     * errors have already been retried by the retry template of the call.
+     */
+    private static boolean isRetryable(Throwable error) {
+        return (error instanceof CozeAiLimitExceededException);
+    }
+
+    /**
+     * Counters of one batch.
+     */
+    private static final class Batch {
+
+        private final Consumer<CozeAiBatchProgress> progressListener;
+
+        private final CozeAiMetrics.BatchObservation observation;
+
+        private final long start = System.nanoTime();
+
+        private final LongAdder submitted = new LongAdder();
+
+        private final LongAdder succeeded = new LongAdder();
+
+        private final LongAdder failed = new LongAdder();
+
+        private final LongAdder retried = new LongAdder();
+
+        Batch(Consumer<CozeAiBatchProgress> progressListener, CozeAiMetrics.BatchObservation observation) {
+            this.progressListener = progressListener;
+            this.observation = observation;
+        }
+
+        void succeeded() {
+            this.succeeded.increment();
+            this.observation.onItemSuccess();
+            notifyProgress();
+        }
+
+        void failed(Throwable error) {
+            this.failed.increment();
+            this.observation.onItemFailure(error);
+            notifyProgress();
+        }
+
+        void retried(Throwable error) {
+            this.retried.increment();
+            this.observation.onItemRetry(error);
+        }
+
+        private void notifyProgress() {
+            if (this.progressListener != null) {
+                this.progressListener.accept(new CozeAiBatchProgress(this.submitted.sum(), this.succeeded.sum(),
+                        this.failed.sum(), this.retried.sum(), Duration.ofNanos(System.nanoTime() - this.start)));
+            }
+        }
+
+    }
+
+}
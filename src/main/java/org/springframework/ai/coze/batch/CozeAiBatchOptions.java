@@ -0,0 +1,127 @@
+package org.springframework.ai.coze.batch;
+
+import org.springframework.util.Assert;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Options of a batch of chat calls.
+ */
+public class CozeAiBatchOptions {
+
+    /**
+     * Prompts in flight at the same time.
+     */
+    private int maxConcurrency = 16;
+
+    /**
+     * Emit results in input order, otherwise as they complete.
+     */
+    private boolean ordered = true;
+
+    /**
+     * Attempts per prompt rejected by the client-side limiter. Other errors are retried by
+     * the call itself and not again per prompt.
+     */
+    private int maxAttempts = 3;
+
+    private Duration minBackoff = Duration.ofSeconds(1);
+
+    private Duration maxBackoff = Duration.ofSeconds(30);
+
+    /**
+     * Runs the blocking calls.
+     */
+    private Scheduler scheduler = Schedulers.boundedElastic();
+
+    /**
+     * Notified after every completed prompt.
+     */
+    private Consumer<CozeAiBatchProgress> progressListener;
+
+    public static CozeAiBatchOptions defaults() {
+        return new CozeAiBatchOptions();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    public boolean isOrdered() {
+        return this.ordered;
+    }
+
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    public Duration getMinBackoff() {
+        return this.minBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return this.maxBackoff;
+    }
+
+    public Scheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    public Consumer<CozeAiBatchProgress> getProgressListener() {
+        return this.progressListener;
+    }
+
+    public static class Builder {
+
+        private final CozeAiBatchOptions options = new CozeAiBatchOptions();
+
+        public Builder withMaxConcurrency(int maxConcurrency) {
+            Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be positive");
+            this.options.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder withOrdered(boolean ordered) {
+            this.options.ordered = ordered;
+            return this;
+        }
+
+        public Builder withMaxAttempts(int maxAttempts) {
+            Assert.isTrue(maxAttempts > 0, "maxAttempts must be positive");
+            this.options.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder withBackoff(Duration minBackoff, Duration maxBackoff) {
+            Assert.notNull(minBackoff, "minBackoff must not be null");
+            Assert.notNull(maxBackoff, "maxBackoff must not be null");
+            this.options.minBackoff = minBackoff;
+            this.options.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        public Builder withScheduler(Scheduler scheduler) {
+            Assert.notNull(scheduler, "scheduler must not be null");
+            this.options.scheduler = scheduler;
+            return this;
+        }
+
+        public Builder withProgressListener(Consumer<CozeAiBatchProgress> progressListener) {
+            this.options.progressListener = progressListener;
+            return this;
+        }
+
+        public CozeAiBatchOptions build() {
+            return this.options;
+        }
+
+    }
+
+}
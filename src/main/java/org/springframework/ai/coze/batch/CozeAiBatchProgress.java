@@ -0,0 +1,31 @@
+package org.springframework.ai.coze.batch;
+
+import java.time.Duration;
+
+/**
+ * Progress of a running batch.
+ *
+ * @param submitted prompts taken from the input so far.
+ * @param succeeded prompts answered.
+ * @param failed prompts that failed after their last attempt.
+ * @param retried attempts repeated after a failure.
+ * @param elapsed time since the batch started.
+ */
+public record CozeAiBatchProgress(long submitted, long succeeded, long failed, long retried, Duration elapsed) {
+
+    /**
+     * @return the prompts answered or failed.
+     */
+    public long completed() {
+        return this.succeeded + this.failed;
+    }
+
+    /**
+     * @return completed prompts per second since the start.
+     */
+    public double itemsPerSecond() {
+        long nanos = this.elapsed.toNanos();
+        return (nanos > 0 ? completed() * 1e9 / nanos : 0);
+    }
+
+}
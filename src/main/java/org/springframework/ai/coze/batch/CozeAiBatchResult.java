@@ -0,0 +1,21 @@
+package org.springframework.ai.coze.batch;
+
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+
+/**
+ * Outcome of one prompt of a batch. A failed prompt does not fail the batch.
+ *
+ * @param index position of the prompt in the input.
+ * @param prompt the prompt.
+ * @param response the response, {@code null} if the prompt failed.
+ * @param error the last failure, {@code null} if the prompt succeeded.
+ * @param attempts the number of attempts made.
+ */
+public record CozeAiBatchResult(long index, Prompt prompt, ChatResponse response, Throwable error, int attempts) {
+
+    public boolean isSuccess() {
+        return this.error == null;
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.springframework.ai.coze.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.ai.coze.api.CozeAiApi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Canonical identity of a fully merged {@link CozeAiApi.ChatCompletionRequest}: the
+ * leading 128 bits of the SHA-256 of its JSON form with properties and map entries in
+ * sorted order. The per-call {@code request_id} and the {@code stream} flag are left out,
+ * so the same prompt with the same options always maps to the same key.
+ *
+ * @param mostSignificantBits first 64 bits of the digest.
+ * @param leastSignificantBits next 64 bits of the digest.
+ */
+public record ChatRequestKey(long mostSignificantBits, long leastSignificantBits) {
+
+    private static final ObjectWriter CANONICAL_WRITER = JsonMapper.builder()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .addMixIn(CozeAiApi.ChatCompletionRequest.class, VolatileRequestFields.class)
+            .build()
+            .writerFor(CozeAiApi.ChatCompletionRequest.class);
+
+    /**
+     * Compute the key of the given request.
+     * @param request the fully merged request.
+     * @return the canonical key.
+     */
+    public static ChatRequestKey of(CozeAiApi.ChatCompletionRequest request) {
+        MessageDigest digest = sha256();
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            CANONICAL_WRITER.writeValue(out, request);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Failed to hash chat completion request", ex);
+        }
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new ChatRequestKey(hash.getLong(), hash.getLong());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return HexFormat.of().toHexDigits(this.mostSignificantBits) + HexFormat.of().toHexDigits(this.leastSignificantBits);
+    }
+
+    @JsonIgnoreProperties({ "request_id", "stream" })
+    private interface VolatileRequestFields {
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.springframework.ai.coze.cache;
+
+import org.springframework.ai.chat.ChatResponse;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical in-flight requests. While a request with a given
+ * {@link ChatRequestKey} is in flight, further identical blocking calls wait for and share
+ * its response, and further identical streams subscribe to the same upstream {@link Flux},
+ * which replays from the start for late joiners. Nothing is retained once the upstream
+ * exchange has finished, see {@link CozeAiResponseCache} for that.
+ */
+public class CozeAiRequestCoalescer {
+
+    private final ConcurrentHashMap<ChatRequestKey, CompletableFuture<ChatResponse>> inFlightCalls = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<ChatRequestKey, Flux<ChatResponse>> inFlightStreams = new ConcurrentHashMap<>();
+
+    private final LongAdder coalescedCalls = new LongAdder();
+
+    private final LongAdder coalescedStreams = new LongAdder();
+
+    /**
+     * Run the given blocking call, or wait for the identical call already in flight.
+     * @param key the request key.
+     * @param upstream performs the upstream exchange.
+     * @return the (possibly shared) response.
+     */
+    public ChatResponse call(ChatRequestKey key, Supplier<ChatResponse> upstream) {
+        CompletableFuture<ChatResponse> leader = new CompletableFuture<>();
+        CompletableFuture<ChatResponse> inFlight = this.inFlightCalls.putIfAbsent(key, leader);
+        if (inFlight != null) {
+            this.coalescedCalls.increment();
+            return await(inFlight);
+        }
+        try {
+            ChatResponse response = upstream.get();
+            leader.complete(response);
+            return response;
+        }
+        catch (RuntimeException | Error ex) {
+            leader.completeExceptionally(ex);
+            throw ex;
+        }
+        finally {
+            this.inFlightCalls.remove(key, leader);
+        }
+    }
+
+    /**
+     * Share the given stream with identical streams subscribed while it is in flight.
+     * @param key the request key.
+     * @param upstream creates the upstream stream, only invoked for the first subscriber.
+     * @return the (possibly shared) stream.
+     */
+    public Flux<ChatResponse> stream(ChatRequestKey key, Supplier<Flux<ChatResponse>> upstream) {
+        return Flux.defer(() -> {
+            boolean[] created = new boolean[1];
+            Flux<ChatResponse> shared = this.inFlightStreams.computeIfAbsent(key, k -> {
+                created[0] = true;
+                AtomicReference<Flux<ChatResponse>> self = new AtomicReference<>();
+                Flux<ChatResponse> flux = upstream.get()
+                        .doFinally(signal -> this.inFlightStreams.remove(k, self.get()))
+                        .replay()
+                        .refCount();
+                self.set(flux);
+                return flux;
+            });
+            if (!created[0]) {
+                this.coalescedStreams.increment();
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * @return number of blocking calls that were served by another in-flight call.
+     */
+    public long getCoalescedCalls() {
+        return this.coalescedCalls.sum();
+    }
+
+    /**
+     * @return number of streams that joined another in-flight stream.
+     */
+    public long getCoalescedStreams() {
+        return this.coalescedStreams.sum();
+    }
+
+    /**
+     * @return number of distinct requests currently in flight.
+     */
+    public int getInFlight() {
+        return this.inFlightCalls.size() + this.inFlightStreams.size();
+    }
+
+    private static ChatResponse await(CompletableFuture<ChatResponse> inFlight) {
+        try {
+            return inFlight.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced chat request", ex);
+        }
+        catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+}
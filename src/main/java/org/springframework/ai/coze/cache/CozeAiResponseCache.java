@@ -0,0 +1,145 @@
+package org.springframework.ai.coze.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact-match cache for blocking chat responses, keyed by the {@link ChatRequestKey} of the
+ * fully merged request. Backed by Caffeine, so eviction is size (or weight) bounded with
+ * W-TinyLFU admission and entries expire after a fixed time to live.
+ * <p>
+ * Requests that sample ({@code do_sample} true or unset, which is the server default) are
+ * not deterministic and bypass the cache unless {@code cacheSampled} is enabled.
+ */
+public class CozeAiResponseCache {
+
+    /**
+     * Fixed per-entry overhead used by the weigher: key, entry, response and generation objects.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final Cache<ChatRequestKey, ChatResponse> cache;
+
+    private final boolean cacheSampled;
+
+    private final LongAdder bypassCount = new LongAdder();
+
+    /**
+     * Create a cache bounded by number of entries.
+     * @param maxEntries maximum number of cached responses.
+     * @param timeToLive time after which a cached response expires.
+     * @param cacheSampled also cache responses of sampling requests.
+     */
+    public CozeAiResponseCache(long maxEntries, Duration timeToLive, boolean cacheSampled) {
+        this(maxEntries, -1, timeToLive, cacheSampled);
+    }
+
+    /**
+     * Create a cache.
+     * @param maxEntries maximum number of cached responses, ignored when {@code maxBytes} is set.
+     * @param maxBytes maximum estimated size of all cached responses, or a negative value to
+     * bound by entries only.
+     * @param timeToLive time after which a cached response expires.
+     * @param cacheSampled also cache responses of sampling requests.
+     */
+    public CozeAiResponseCache(long maxEntries, long maxBytes, Duration timeToLive, boolean cacheSampled) {
+        Assert.isTrue(maxEntries > 0 || maxBytes > 0, "Either maxEntries or maxBytes must be positive");
+        Assert.notNull(timeToLive, "timeToLive must not be null");
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().expireAfterWrite(timeToLive).recordStats();
+        if (maxBytes > 0) {
+            this.cache = builder.maximumWeight(maxBytes)
+                    .weigher((ChatRequestKey key, ChatResponse response) -> weigh(response))
+                    .build();
+        }
+        else {
+            this.cache = builder.maximumSize(maxEntries).build();
+        }
+        this.cacheSampled = cacheSampled;
+    }
+
+    /**
+     * @param request the fully merged request.
+     * @return whether the response of this request may be served from and stored in the cache.
+     */
+    public boolean isCacheable(CozeAiApi.ChatCompletionRequest request) {
+        if (this.cacheSampled || Boolean.FALSE.equals(request.doSample())) {
+            return true;
+        }
+        this.bypassCount.increment();
+        return false;
+    }
+
+    /**
+     * @param key the request key.
+     * @return the cached response, or {@code null} on a miss.
+     */
+    public ChatResponse get(ChatRequestKey key) {
+        return this.cache.getIfPresent(key);
+    }
+
+    /**
+     * Store a response. Empty responses are not cached.
+     * @param key the request key.
+     * @param response the response to cache.
+     */
+    public void put(ChatRequestKey key, ChatResponse response) {
+        if (response != null && !CollectionUtils.isEmpty(response.getResults())) {
+            this.cache.put(key, response);
+        }
+    }
+
+    /**
+     * Drop all cached responses.
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * @return hit, miss and eviction statistics.
+     */
+    public CacheStats getStats() {
+        return this.cache.stats();
+    }
+
+    /**
+     * @return number of requests that skipped the cache because they sample.
+     */
+    public long getBypassCount() {
+        return this.bypassCount.sum();
+    }
+
+    /**
+     * @return the approximate number of cached responses.
+     */
+    public long getSize() {
+        return this.cache.estimatedSize();
+    }
+
+    /**
+     * Exposes the underlying cache, for example to bind it to a metrics registry.
+     * @return the Caffeine cache.
+     */
+    public Cache<ChatRequestKey, ChatResponse> getNativeCache() {
+        return this.cache;
+    }
+
+    private static int weigh(ChatResponse response) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (Generation generation : response.getResults()) {
+            String text = generation.getOutput().getContent();
+            bytes += ENTRY_OVERHEAD_BYTES + (text != null ? 2L * text.length() : 0);
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+}
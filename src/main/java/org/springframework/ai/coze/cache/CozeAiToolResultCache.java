@@ -0,0 +1,236 @@
+package org.springframework.ai.coze.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.ai.coze.tool.CozeAiToolInvocation;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Memoizes tool call results by function name and arguments. Arguments are normalized to
+ * canonical JSON (sorted keys, no insignificant whitespace), so argument order chosen by
+ * the model does not matter.
+ * <p>
+ * Only functions declared idempotent are cached, each function may have its own time to
+ * live. Identical calls of an idempotent function within one model turn are executed once.
+ */
+public class CozeAiToolResultCache {
+
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final Cache<ToolCallKey, String> cache;
+
+    private final Duration defaultTimeToLive;
+
+    private final boolean defaultIdempotent;
+
+    private final Map<String, Policy> policies;
+
+    private final Map<String, FunctionCounters> counters = new ConcurrentHashMap<>();
+
+    private final LongAdder dedupedCount = new LongAdder();
+
+    /**
+     * @param maxEntries maximum number of cached results.
+     * @param defaultTimeToLive time to live of functions without their own policy.
+     * @param defaultIdempotent whether functions without their own policy are cached.
+     * @param policies per-function policies by function name.
+     */
+    public CozeAiToolResultCache(long maxEntries, Duration defaultTimeToLive, boolean defaultIdempotent,
+                                 Map<String, Policy> policies) {
+        Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+        Assert.notNull(defaultTimeToLive, "defaultTimeToLive must not be null");
+        this.defaultTimeToLive = defaultTimeToLive;
+        this.defaultIdempotent = defaultIdempotent;
+        this.policies = (policies != null ? Map.copyOf(policies) : Map.of());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<ToolCallKey, String>() {
+
+                    @Override
+                    public long expireAfterCreate(ToolCallKey key, String value, long currentTime) {
+                        return getTimeToLive(key.name()).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ToolCallKey key, String value, long currentTime, long currentDuration) {
+                        return getTimeToLive(key.name()).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(ToolCallKey key, String value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param functionName the function name.
+     * @return whether results of this function may be cached and deduplicated.
+     */
+    public boolean isCacheable(String functionName) {
+        Policy policy = this.policies.get(functionName);
+        boolean idempotent = (policy != null && policy.idempotent() != null) ? policy.idempotent() : this.defaultIdempotent;
+        return idempotent && !getTimeToLive(functionName).isZero();
+    }
+
+    /**
+     * Answer cached calls, run the others through {@code invoker} once per distinct call
+     * and store their results.
+     * @param invocations the tool calls of one model turn.
+     * @param invoker runs the remaining calls, returning responses in the order given.
+     * @return the responses, in the order of the calls.
+     */
+    public List<String> invokeAll(List<CozeAiToolInvocation> invocations,
+                                  Function<List<CozeAiToolInvocation>, List<String>> invoker) {
+        String[] responses = new String[invocations.size()];
+        ToolCallKey[] keys = new ToolCallKey[invocations.size()];
+        // Index of the invocation actually executed for each call.
+        int[] source = new int[invocations.size()];
+        Arrays.fill(source, -1);
+        Map<ToolCallKey, Integer> firstIndex = new HashMap<>();
+        List<CozeAiToolInvocation> pending = new ArrayList<>(invocations.size());
+        List<Integer> pendingIndex = new ArrayList<>(invocations.size());
+
+        for (int i = 0; i < invocations.size(); i++) {
+            CozeAiToolInvocation invocation = invocations.get(i);
+            if (isCacheable(invocation.name())) {
+                ToolCallKey key = new ToolCallKey(invocation.name(), canonicalize(invocation.arguments()));
+                keys[i] = key;
+                String cached = this.cache.getIfPresent(key);
+                if (cached != null) {
+                    countersFor(invocation.name()).hits.increment();
+                    responses[i] = cached;
+                    continue;
+                }
+                Integer first = firstIndex.putIfAbsent(key, i);
+                if (first != null) {
+                    this.dedupedCount.increment();
+                    source[i] = first;
+                    continue;
+                }
+                countersFor(invocation.name()).misses.increment();
+            }
+            pending.add(invocation);
+            pendingIndex.add(i);
+        }
+
+        if (!pending.isEmpty()) {
+            List<String> results = invoker.apply(pending);
+            for (int j = 0; j < pending.size(); j++) {
+                int i = pendingIndex.get(j);
+                String result = results.get(j);
+                responses[i] = result;
+                if (keys[i] != null && result != null) {
+                    this.cache.put(keys[i], result);
+                }
+            }
+        }
+        for (int i = 0; i < responses.length; i++) {
+            if (source[i] >= 0) {
+                responses[i] = responses[source[i]];
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * @return Caffeine statistics of the cache lookups.
+     */
+    public CacheStats getStats() {
+        return this.cache.stats();
+    }
+
+    /**
+     * @return cache hit rate per function name, over the calls of cacheable functions.
+     */
+    public Map<String, Double> getHitRates() {
+        Map<String, Double> hitRates = new HashMap<>();
+        this.counters.forEach((name, counters) -> {
+            long hits = counters.hits.sum();
+            long total = hits + counters.misses.sum();
+            hitRates.put(name, (total == 0 ? 0.0 : (double) hits / total));
+        });
+        return hitRates;
+    }
+
+    /**
+     * @return number of calls answered by an identical call of the same model turn.
+     */
+    public long getDedupedCount() {
+        return this.dedupedCount.sum();
+    }
+
+    public long getSize() {
+        return this.cache.estimatedSize();
+    }
+
+    private Duration getTimeToLive(String functionName) {
+        Policy policy = this.policies.get(functionName);
+        return (policy != null && policy.timeToLive() != null) ? policy.timeToLive() : this.defaultTimeToLive;
+    }
+
+    private FunctionCounters countersFor(String functionName) {
+        return this.counters.computeIfAbsent(functionName, name -> new FunctionCounters());
+    }
+
+    /**
+     * Re-serialize the arguments with sorted keys. Arguments that are not valid JSON are
+     * used verbatim.
+     */
+    static String canonicalize(String arguments) {
+        if (arguments == null) {
+            return "";
+        }
+        try {
+            Object tree = CANONICAL_MAPPER.readValue(arguments, Object.class);
+            return CANONICAL_MAPPER.writeValueAsString(tree);
+        }
+        catch (JsonProcessingException ex) {
+            return arguments.trim();
+        }
+    }
+
+    /**
+     * Caching policy of one function.
+     *
+     * @param timeToLive time to live of its results, {@code null} for the default.
+     * @param idempotent whether its results may be cached, {@code null} for the default.
+     */
+    public record Policy(Duration timeToLive, Boolean idempotent) {
+    }
+
+    private record ToolCallKey(String name, String arguments) {
+    }
+
+    private static final class FunctionCounters {
+
+        private final LongAdder hits = new LongAdder();
+
+        private final LongAdder misses = new LongAdder();
+
+    }
+
+}
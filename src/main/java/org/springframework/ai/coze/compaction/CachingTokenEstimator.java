@@ -0,0 +1,39 @@
+package org.springframework.ai.coze.compaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.util.Assert;
+
+/**
+ * Caches the estimates of another estimator by text instance. The messages of a
+ * conversation hand the same content instances to every turn, so their text is scanned
+ * once; entries go away with the texts.
+ */
+public class CachingTokenEstimator implements CozeAiTokenEstimator {
+
+    private final CozeAiTokenEstimator delegate;
+
+    private final Cache<String, Integer> estimates;
+
+    /**
+     * @param delegate the estimator to cache.
+     * @param maxEntries maximum number of cached estimates.
+     */
+    public CachingTokenEstimator(CozeAiTokenEstimator delegate, long maxEntries) {
+        Assert.notNull(delegate, "delegate must not be null");
+        Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+        this.delegate = delegate;
+        // Weak keys compare by identity, equal texts of different messages are estimated
+        // again rather than hashed on every lookup.
+        this.estimates = Caffeine.newBuilder().weakKeys().maximumSize(maxEntries).build();
+    }
+
+    @Override
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return this.estimates.get(text, this.delegate::estimate);
+    }
+
+}
@@ -0,0 +1,32 @@
+package org.springframework.ai.coze.compaction;
+
+import org.springframework.util.Assert;
+
+/**
+ * Estimates tokens from the number of characters: one token for every
+ * {@code charactersPerToken} code points, about 1.6 for the GLM models.
+ */
+public class CharacterRatioTokenEstimator implements CozeAiTokenEstimator {
+
+    public static final double DEFAULT_CHARACTERS_PER_TOKEN = 1.6;
+
+    private final double charactersPerToken;
+
+    public CharacterRatioTokenEstimator() {
+        this(DEFAULT_CHARACTERS_PER_TOKEN);
+    }
+
+    public CharacterRatioTokenEstimator(double charactersPerToken) {
+        Assert.isTrue(charactersPerToken > 0, "charactersPerToken must be positive");
+        this.charactersPerToken = charactersPerToken;
+    }
+
+    @Override
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (int) Math.ceil(text.codePointCount(0, text.length()) / this.charactersPerToken);
+    }
+
+}
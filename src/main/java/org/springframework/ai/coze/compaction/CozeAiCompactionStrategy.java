@@ -0,0 +1,141 @@
+package org.springframework.ai.coze.compaction;
+
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Shrinks the older part of a conversation to a token budget. An assistant message with
+ * tool calls and the tool messages answering it are kept or dropped together, the server
+ * rejects a history holding only one side.
+ */
+@FunctionalInterface
+public interface CozeAiCompactionStrategy {
+
+    /**
+     * @param candidates the messages that may be compacted, oldest first, without system
+     * messages and recent turns.
+     * @param budget the tokens available to the returned messages.
+     * @param estimator the token estimator.
+     * @return the messages to send in place of the candidates, oldest first.
+     */
+    List<CozeAiApi.ChatCompletionMessage> compact(List<CozeAiApi.ChatCompletionMessage> candidates, int budget,
+                                                  CozeAiTokenEstimator estimator);
+
+    /**
+     * Drop the oldest messages.
+     * @return the strategy.
+     */
+    static CozeAiCompactionStrategy drop() {
+        return (candidates, budget, estimator) -> candidates.subList(fittingSuffix(candidates, budget, estimator),
+                candidates.size());
+    }
+
+    /**
+     * Drop the oldest messages, cutting the newest of the dropped ones to the remaining
+     * budget when at least {@code minTokens} remain.
+     * @param minTokens the smallest useful truncated message.
+     * @return the strategy.
+     */
+    static CozeAiCompactionStrategy truncate(int minTokens) {
+        return (candidates, budget, estimator) -> {
+            int start = fittingSuffix(candidates, budget, estimator);
+            List<CozeAiApi.ChatCompletionMessage> kept = candidates.subList(start, candidates.size());
+            int remaining = budget - estimate(kept, estimator) - CozeAiTokenEstimator.MESSAGE_OVERHEAD;
+            if (start == 0 || remaining < minTokens) {
+                return kept;
+            }
+            CozeAiApi.ChatCompletionMessage cut = candidates.get(start - 1);
+            if (isToolExchange(cut)) {
+                // Part of a tool call group, a truncated copy would stand alone.
+                return kept;
+            }
+            String content = truncate(cut.content(), remaining, estimator);
+            List<CozeAiApi.ChatCompletionMessage> messages = new ArrayList<>(kept.size() + 1);
+            messages.add(new CozeAiApi.ChatCompletionMessage(content, cut.role(), cut.name(), null));
+            messages.addAll(kept);
+            return messages;
+        };
+    }
+
+    /**
+     * Replace the oldest messages by a system message carrying their summary, dropping
+     * further messages if the summary does not fit.
+     * @param summarizer summarizes the replaced messages, e.g. with a cheaper model.
+     * @return the strategy.
+     */
+    static CozeAiCompactionStrategy summarize(Function<List<CozeAiApi.ChatCompletionMessage>, String> summarizer) {
+        Assert.notNull(summarizer, "summarizer must not be null");
+        return (candidates, budget, estimator) -> {
+            int start = fittingSuffix(candidates, budget, estimator);
+            if (start == 0) {
+                return candidates;
+            }
+            var summary = new CozeAiApi.ChatCompletionMessage(summarizer.apply(candidates.subList(0, start)),
+                    CozeAiApi.ChatCompletionMessage.Role.SYSTEM);
+            start = fittingSuffix(candidates.subList(start, candidates.size()), budget - estimator.estimate(summary),
+                    estimator) + start;
+            List<CozeAiApi.ChatCompletionMessage> messages = new ArrayList<>(candidates.size() - start + 1);
+            messages.add(summary);
+            messages.addAll(candidates.subList(start, candidates.size()));
+            return messages;
+        };
+    }
+
+    /**
+     * @return the index of the oldest message of the longest suffix fitting the budget that
+     * does not start with the tool messages of a dropped tool call.
+     */
+    private static int fittingSuffix(List<CozeAiApi.ChatCompletionMessage> messages, int budget,
+                                     CozeAiTokenEstimator estimator) {
+        int used = 0;
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            used += estimator.estimate(messages.get(i));
+            if (used > budget) {
+                return skipToolResults(messages, i + 1);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Move a cut forward past tool messages, whose tool call message is before the cut.
+     */
+    private static int skipToolResults(List<CozeAiApi.ChatCompletionMessage> messages, int start) {
+        while (start < messages.size() && messages.get(start).role() == CozeAiApi.ChatCompletionMessage.Role.TOOL) {
+            start++;
+        }
+        return start;
+    }
+
+    private static boolean isToolExchange(CozeAiApi.ChatCompletionMessage message) {
+        return (message.role() == CozeAiApi.ChatCompletionMessage.Role.TOOL
+                || (message.toolCalls() != null && !message.toolCalls().isEmpty()));
+    }
+
+    private static int estimate(List<CozeAiApi.ChatCompletionMessage> messages, CozeAiTokenEstimator estimator) {
+        int tokens = 0;
+        for (CozeAiApi.ChatCompletionMessage message : messages) {
+            tokens += estimator.estimate(message);
+        }
+        return tokens;
+    }
+
+    /**
+     * Keep the head of the text, shortening in proportion to the estimate until it fits.
+     */
+    private static String truncate(String text, int budget, CozeAiTokenEstimator estimator) {
+        String truncated = text;
+        int tokens = estimator.estimate(truncated);
+        while (tokens > budget && !truncated.isEmpty()) {
+            int length = (int) ((long) truncated.length() * budget / tokens * 9 / 10);
+            truncated = truncated.substring(0, Math.max(0, Math.min(length, truncated.length() - 1)));
+            tokens = estimator.estimate(truncated);
+        }
+        return truncated;
+    }
+
+}
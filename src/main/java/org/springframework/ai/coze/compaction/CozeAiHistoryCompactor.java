@@ -0,0 +1,162 @@
+package org.springframework.ai.coze.compaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.api.CozeAiRequestMerger;
+import org.springframework.ai.coze.util.ApiUtils;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fits the messages of a request into the context window of its model before it is sent,
+ * instead of letting the server reject an over-long prompt. The window must hold the
+ * prompt, the tool definitions and {@code max_tokens} of output.
+ * <p>
+ * System messages and the most recent messages are always kept, extended back to the tool
+ * call message when they start with tool messages; the messages in between are handed to a
+ * {@link CozeAiCompactionStrategy} once the estimate exceeds the budget.
+ */
+public class CozeAiHistoryCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CozeAiHistoryCompactor.class);
+
+    private final CozeAiTokenEstimator estimator;
+
+    private final CozeAiCompactionStrategy strategy;
+
+    private final int defaultContextWindow;
+
+    private final Map<String, Integer> contextWindows;
+
+    private final int keepRecentMessages;
+
+    private final LongAdder compactedCount = new LongAdder();
+
+    /**
+     * Tool token estimates by tool list instance. The chat client reuses one tool list per
+     * function set, so the schemas are serialized and scanned once.
+     */
+    private final Cache<List<CozeAiApi.FunctionTool>, Integer> toolEstimates = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(256)
+            .build();
+
+    private final LongAdder removedTokens = new LongAdder();
+
+    /**
+     * @param estimator the token estimator.
+     * @param strategy the compaction strategy.
+     * @param defaultContextWindow the context window of models without their own.
+     * @param contextWindows context windows by model.
+     * @param keepRecentMessages the number of most recent messages always kept.
+     */
+    public CozeAiHistoryCompactor(CozeAiTokenEstimator estimator, CozeAiCompactionStrategy strategy,
+                                  int defaultContextWindow, Map<String, Integer> contextWindows, int keepRecentMessages) {
+        Assert.notNull(estimator, "estimator must not be null");
+        Assert.notNull(strategy, "strategy must not be null");
+        Assert.isTrue(defaultContextWindow > 0, "defaultContextWindow must be positive");
+        Assert.isTrue(keepRecentMessages >= 1, "keepRecentMessages must be at least 1");
+        this.estimator = estimator;
+        this.strategy = strategy;
+        this.defaultContextWindow = defaultContextWindow;
+        this.contextWindows = (contextWindows != null ? Map.copyOf(contextWindows) : Map.of());
+        this.keepRecentMessages = keepRecentMessages;
+    }
+
+    /**
+     * @param request the request.
+     * @return the request itself if it fits, otherwise a copy with compacted messages.
+     */
+    public CozeAiApi.ChatCompletionRequest compact(CozeAiApi.ChatCompletionRequest request) {
+        List<CozeAiApi.ChatCompletionMessage> messages = request.messages();
+        if (CollectionUtils.isEmpty(messages) || messages.size() <= this.keepRecentMessages) {
+            return request;
+        }
+        int budget = getBudget(request);
+        int total = estimate(messages);
+        if (total <= budget) {
+            return request;
+        }
+
+        int recentStart = messages.size() - this.keepRecentMessages;
+        // Keep a tool call together with the tool messages answering it.
+        while (recentStart > 0 && messages.get(recentStart).role() == CozeAiApi.ChatCompletionMessage.Role.TOOL) {
+            recentStart--;
+        }
+        List<CozeAiApi.ChatCompletionMessage> head = new ArrayList<>();
+        List<CozeAiApi.ChatCompletionMessage> candidates = new ArrayList<>(recentStart);
+        for (int i = 0; i < recentStart; i++) {
+            CozeAiApi.ChatCompletionMessage message = messages.get(i);
+            if (message.role() == CozeAiApi.ChatCompletionMessage.Role.SYSTEM) {
+                head.add(message);
+            }
+            else {
+                candidates.add(message);
+            }
+        }
+        List<CozeAiApi.ChatCompletionMessage> recent = messages.subList(recentStart, messages.size());
+        int candidateBudget = budget - estimate(head) - estimate(recent);
+        if (candidateBudget < 0) {
+            logger.warn("System messages and the last {} messages exceed the budget of {} tokens",
+                    recent.size(), budget);
+            candidateBudget = 0;
+        }
+
+        List<CozeAiApi.ChatCompletionMessage> compacted = new ArrayList<>(messages.size());
+        compacted.addAll(head);
+        compacted.addAll(this.strategy.compact(candidates, candidateBudget, this.estimator));
+        compacted.addAll(recent);
+
+        this.compactedCount.increment();
+        this.removedTokens.add(Math.max(0, total - estimate(compacted)));
+        logger.debug("Compacted {} messages to {} for a budget of {} tokens", messages.size(), compacted.size(), budget);
+
+        return CozeAiRequestMerger.withMessages(request, null, compacted, null);
+    }
+
+    /**
+     * @return the tokens available to the messages of the request.
+     */
+    int getBudget(CozeAiApi.ChatCompletionRequest request) {
+        int window = (request.model() != null)
+                ? this.contextWindows.getOrDefault(request.model(), this.defaultContextWindow)
+                : this.defaultContextWindow;
+        int maxTokens = (request.maxTokens() != null ? request.maxTokens() : ApiUtils.DEFAULT_MAX_TOKENS);
+        int tools = CollectionUtils.isEmpty(request.tools()) ? 0
+                : this.toolEstimates.get(request.tools(),
+                        toolList -> this.estimator.estimate(ModelOptionsUtils.toJsonString(toolList)));
+        return window - maxTokens - tools;
+    }
+
+    private int estimate(List<CozeAiApi.ChatCompletionMessage> messages) {
+        int tokens = 0;
+        for (CozeAiApi.ChatCompletionMessage message : messages) {
+            tokens += this.estimator.estimate(message);
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the number of compacted requests.
+     */
+    public long getCompactedCount() {
+        return this.compactedCount.sum();
+    }
+
+    /**
+     * @return the estimated tokens removed from the compacted requests.
+     */
+    public long getRemovedTokens() {
+        return this.removedTokens.sum();
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.springframework.ai.coze.compaction;
+
+import org.springframework.ai.coze.api.CozeAiApi;
+
+/**
+ * Local estimate of the number of tokens of a text, used to fit a prompt into the context
+ * window without a round trip. Plug in a real tokenizer for exact counts.
+ */
+@FunctionalInterface
+public interface CozeAiTokenEstimator {
+
+    /**
+     * Tokens taken by the role and framing of one message.
+     */
+    int MESSAGE_OVERHEAD = 4;
+
+    /**
+     * @param text the text, may be {@code null}.
+     * @return the estimated number of tokens.
+     */
+    int estimate(String text);
+
+    /**
+     * @param message the message.
+     * @return the estimated number of tokens of the message, framing included.
+     */
+    default int estimate(CozeAiApi.ChatCompletionMessage message) {
+        return MESSAGE_OVERHEAD + estimate(message.content());
+    }
+
+}
@@ -0,0 +1,165 @@
+package org.springframework.ai.coze.conversation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers which messages of a server-side conversation ({@code conversation_id}) the
+ * server already holds, so a turn only sends the messages it has not seen yet. Messages
+ * are compared by a 64-bit hash of their role, name and content.
+ * <p>
+ * When the prompt history no longer starts with the messages the server holds (an edited
+ * or truncated history, an unknown or expired conversation), the full history is sent
+ * and the conversation is tracked from scratch.
+ */
+public class CozeAiConversationTracker {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final Cache<String, long[]> conversations;
+
+    private final LongAdder deltaCount = new LongAdder();
+
+    private final LongAdder fullCount = new LongAdder();
+
+    private final LongAdder skippedMessages = new LongAdder();
+
+    /**
+     * @param maxConversations maximum number of tracked conversations.
+     * @param timeToLive how long an idle conversation is tracked, should not exceed the
+     * server-side retention of conversations.
+     */
+    public CozeAiConversationTracker(long maxConversations, Duration timeToLive) {
+        Assert.isTrue(maxConversations > 0, "maxConversations must be positive");
+        Assert.isTrue(timeToLive != null && !timeToLive.isNegative() && !timeToLive.isZero(),
+                "timeToLive must be positive");
+        this.conversations = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterAccess(timeToLive)
+                .build();
+    }
+
+    /**
+     * Select the messages to send for a turn.
+     * @param conversationId the conversation id.
+     * @param messages the full history of the turn, oldest first.
+     * @return the messages the server does not hold yet.
+     */
+    public Delta prepare(String conversationId, List<CozeAiApi.ChatCompletionMessage> messages) {
+        long[] known = this.conversations.getIfPresent(conversationId);
+        if (known == null || known.length == 0 || known.length >= messages.size() || !startsWith(messages, known)) {
+            this.fullCount.increment();
+            return new Delta(messages, true);
+        }
+        this.deltaCount.increment();
+        this.skippedMessages.add(known.length);
+        return new Delta(messages.subList(known.length, messages.size()), false);
+    }
+
+    /**
+     * Record a completed turn: the server now holds the full history and the reply.
+     * @param conversationId the conversation id.
+     * @param messages the full history of the turn, oldest first.
+     * @param reply the content of the assistant reply.
+     */
+    public void commit(String conversationId, List<CozeAiApi.ChatCompletionMessage> messages, String reply) {
+        long[] hashes = new long[messages.size() + 1];
+        for (int i = 0; i < messages.size(); i++) {
+            hashes[i] = hash(messages.get(i));
+        }
+        hashes[messages.size()] = hash(CozeAiApi.ChatCompletionMessage.Role.ASSISTANT, null, reply);
+        this.conversations.asMap().merge(conversationId, hashes,
+                // A concurrent turn may have committed a longer history, keep it.
+                (current, committed) -> (current.length > committed.length ? current : committed));
+    }
+
+    /**
+     * Forget a conversation, its next turn sends the full history.
+     * @param conversationId the conversation id.
+     */
+    public void invalidate(String conversationId) {
+        this.conversations.invalidate(conversationId);
+    }
+
+    /**
+     * @param conversationId the conversation id.
+     * @return the number of messages the server is known to hold.
+     */
+    public int getKnownMessageCount(String conversationId) {
+        return this.conversations.asMap().getOrDefault(conversationId, EMPTY).length;
+    }
+
+    public long getConversationCount() {
+        return this.conversations.estimatedSize();
+    }
+
+    public long getDeltaCount() {
+        return this.deltaCount.sum();
+    }
+
+    public long getFullCount() {
+        return this.fullCount.sum();
+    }
+
+    /**
+     * @return the messages not resent thanks to the server-side conversations.
+     */
+    public long getSkippedMessageCount() {
+        return this.skippedMessages.sum();
+    }
+
+    private static boolean startsWith(List<CozeAiApi.ChatCompletionMessage> messages, long[] known) {
+        for (int i = 0; i < known.length; i++) {
+            if (hash(messages.get(i)) != known[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long hash(CozeAiApi.ChatCompletionMessage message) {
+        return hash(message.role(), message.name(), message.content());
+    }
+
+    /**
+     * FNV-1a over the role, name and content.
+     */
+    private static long hash(CozeAiApi.ChatCompletionMessage.Role role, String name, String content) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, (role != null ? role.name() : ""));
+        hash = fnv(hash, (name != null ? name : ""));
+        return fnv(hash, (content != null ? content : ""));
+    }
+
+    private static long fnv(long hash, String value) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        // Separator, so that ("ab", "c") and ("a", "bc") differ.
+        hash ^= 0xff;
+        return hash * 0x100000001b3L;
+    }
+
+    /**
+     * The messages to send for a turn.
+     * @param messages the messages the server does not hold yet.
+     * @param full whether the full history is sent.
+     */
+    public record Delta(List<CozeAiApi.ChatCompletionMessage> messages, boolean full) {
+
+        @Override
+        public String toString() {
+            return "Delta{messages=" + this.messages.size() + ", full=" + this.full + "}";
+        }
+
+    }
+
+}
@@ -0,0 +1,341 @@
+package org.springframework.ai.coze.credential;
+
+import org.springframework.ai.coze.util.ApiUtils;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads requests over several Coze API keys. Each request leases a key, the lease
+ * reports the outcome back so that keys answering {@code 429} or {@code 401} are taken
+ * out of rotation for a while. Keys can carry a weight (share of the concurrent load) and
+ * a per-minute request quota.
+ * <p>
+ * A single key is simply a pool of one.
+ */
+public class CozeAiApiKeyPool {
+
+    /**
+     * How the next key is chosen among the available ones.
+     */
+    public enum Selection {
+
+        /**
+         * Fewest outstanding requests relative to the key weight.
+         */
+        LEAST_OUTSTANDING,
+
+        /**
+         * The key that was throttled longest ago (or never), ties broken by outstanding
+         * requests.
+         */
+        LEAST_RECENTLY_THROTTLED
+
+    }
+
+    private static final long QUOTA_WINDOW_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final List<KeyState> keys;
+
+    private final Selection selection;
+
+    private final Duration throttleCooldown;
+
+    private final Duration unauthorizedCooldown;
+
+    private int nextIndex;
+
+    public CozeAiApiKeyPool(List<ApiKey> keys, Selection selection, Duration throttleCooldown,
+                            Duration unauthorizedCooldown) {
+        Assert.notEmpty(keys, "At least one API key must be set");
+        Assert.notNull(selection, "selection must not be null");
+        Assert.notNull(throttleCooldown, "throttleCooldown must not be null");
+        Assert.notNull(unauthorizedCooldown, "unauthorizedCooldown must not be null");
+        this.keys = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            ApiKey key = keys.get(i);
+            Assert.hasText(key.key(), "API key must not be empty");
+            Assert.isTrue(key.weight() > 0, "API key weight must be positive");
+            this.keys.add(new KeyState(key, (key.name() != null ? key.name() : "key-" + i)));
+        }
+        this.selection = selection;
+        this.throttleCooldown = throttleCooldown;
+        this.unauthorizedCooldown = unauthorizedCooldown;
+    }
+
+    /**
+     * Create a pool with a single key and default cooldowns.
+     * @param apiKey the API key.
+     * @return the pool.
+     */
+    public static CozeAiApiKeyPool of(String apiKey) {
+        return new CozeAiApiKeyPool(List.of(new ApiKey(apiKey)), Selection.LEAST_OUTSTANDING,
+                Duration.ofSeconds(10), Duration.ofMinutes(5));
+    }
+
+    /**
+     * Lease a key for one request. If every key is cooling down or out of quota the key
+     * that becomes available first is returned anyway, the server has the final word.
+     * @return the lease, which must be released through one of its {@code on*} methods.
+     */
+    public Lease acquire() {
+        KeyState chosen;
+        synchronized (this) {
+            long now = System.nanoTime();
+            chosen = select(now, true);
+            if (chosen == null) {
+                chosen = select(now, false);
+            }
+            chosen.outstanding.incrementAndGet();
+            chosen.countRequest(now);
+        }
+        chosen.requests.increment();
+        return new Lease(chosen);
+    }
+
+    /**
+     * @return a snapshot of the per-key counters.
+     */
+    public List<KeyStats> getKeyStats() {
+        long now = System.nanoTime();
+        List<KeyStats> stats = new ArrayList<>(this.keys.size());
+        for (KeyState key : this.keys) {
+            stats.add(new KeyStats(key.name, key.apiKey.weight(), key.outstanding.get(), key.requests.sum(),
+                    key.throttled.sum(), key.unauthorized.sum(), key.failures.sum(), key.isAvailable(now)));
+        }
+        return stats;
+    }
+
+    /**
+     * @return number of keys in the pool.
+     */
+    public int size() {
+        return this.keys.size();
+    }
+
+    private KeyState select(long now, boolean availableOnly) {
+        KeyState best = null;
+        int size = this.keys.size();
+        // Start at a rotating offset so that ties are spread round-robin.
+        int start = this.nextIndex;
+        this.nextIndex = (start + 1) % size;
+        for (int i = 0; i < size; i++) {
+            KeyState candidate = this.keys.get((start + i) % size);
+            if (availableOnly) {
+                if (!candidate.isAvailable(now) || !candidate.hasQuota(now)) {
+                    continue;
+                }
+            }
+            if (best == null || better(candidate, best, now, availableOnly)) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private boolean better(KeyState candidate, KeyState best, long now, boolean availableOnly) {
+        if (!availableOnly) {
+            // Everything is blocked, prefer the key that is released first.
+            return candidate.availableAt(now) < best.availableAt(now);
+        }
+        if (this.selection == Selection.LEAST_RECENTLY_THROTTLED && candidate.lastThrottledNanos != best.lastThrottledNanos) {
+            if (candidate.lastThrottledNanos == 0 || best.lastThrottledNanos == 0) {
+                return candidate.lastThrottledNanos == 0;
+            }
+            return candidate.lastThrottledNanos - best.lastThrottledNanos < 0;
+        }
+        return candidate.load() < best.load();
+    }
+
+    private void release(KeyState key, Throwable error) {
+        key.outstanding.decrementAndGet();
+        if (error == null) {
+            return;
+        }
+        int status = ApiUtils.getStatusCode(error);
+        long now = System.nanoTime();
+        if (status == 429) {
+            key.throttled.increment();
+            Duration retryAfter = ApiUtils.getRetryAfter(error);
+            Duration cooldown = (retryAfter != null ? retryAfter : this.throttleCooldown);
+            synchronized (this) {
+                key.lastThrottledNanos = now;
+                key.coolDown(now, cooldown);
+            }
+        }
+        else if (status == 401) {
+            key.unauthorized.increment();
+            synchronized (this) {
+                key.coolDown(now, this.unauthorizedCooldown);
+            }
+        }
+        else {
+            key.failures.increment();
+        }
+    }
+
+    /**
+     * An API key with its share of the load.
+     *
+     * @param key the API key.
+     * @param name name used in statistics instead of the key itself, may be {@code null}.
+     * @param weight relative share of the concurrent requests.
+     * @param quota maximum requests per minute, {@code 0} for unlimited.
+     */
+    public record ApiKey(String key, String name, int weight, int quota) {
+
+        public ApiKey(String key) {
+            this(key, null, 1, 0);
+        }
+
+        @Override
+        public String toString() {
+            return "ApiKey[name=" + this.name + ", weight=" + this.weight + ", quota=" + this.quota + "]";
+        }
+
+    }
+
+    /**
+     * Counters of one key.
+     *
+     * @param name the key name.
+     * @param weight the key weight.
+     * @param outstanding requests currently using the key.
+     * @param requests total requests sent with the key.
+     * @param throttled requests answered with {@code 429}.
+     * @param unauthorized requests answered with {@code 401}.
+     * @param failures other failed requests.
+     * @param available whether the key is currently in rotation.
+     */
+    public record KeyStats(String name, int weight, int outstanding, long requests, long throttled, long unauthorized,
+                           long failures, boolean available) {
+    }
+
+    /**
+     * A key leased for one request. Only the first release call takes effect.
+     */
+    public final class Lease {
+
+        private final KeyState key;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(KeyState key) {
+            this.key = key;
+        }
+
+        /**
+         * @return the API key to authenticate the request with.
+         */
+        public String apiKey() {
+            return this.key.apiKey.key();
+        }
+
+        /**
+         * @return the key name.
+         */
+        public String name() {
+            return this.key.name;
+        }
+
+        public void onSuccess() {
+            if (this.released.compareAndSet(false, true)) {
+                release(this.key, null);
+            }
+        }
+
+        /**
+         * Release after a failed request, throttled or rejected keys are rested.
+         * @param error the failure.
+         */
+        public void onError(Throwable error) {
+            if (this.released.compareAndSet(false, true)) {
+                release(this.key, error);
+            }
+        }
+
+        public void onCancel() {
+            if (this.released.compareAndSet(false, true)) {
+                release(this.key, null);
+            }
+        }
+
+    }
+
+    private static final class KeyState {
+
+        private final ApiKey apiKey;
+
+        private final String name;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final LongAdder requests = new LongAdder();
+
+        private final LongAdder throttled = new LongAdder();
+
+        private final LongAdder unauthorized = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        // Guarded by the pool monitor.
+        private long lastThrottledNanos;
+
+        private long blockedUntilNanos;
+
+        private boolean blocked;
+
+        private long windowStartNanos;
+
+        private int windowCount;
+
+        KeyState(ApiKey apiKey, String name) {
+            this.apiKey = apiKey;
+            this.name = name;
+        }
+
+        double load() {
+            return (double) this.outstanding.get() / this.apiKey.weight();
+        }
+
+        boolean isAvailable(long now) {
+            return !this.blocked || now - this.blockedUntilNanos >= 0;
+        }
+
+        boolean hasQuota(long now) {
+            return this.apiKey.quota() <= 0 || now - this.windowStartNanos >= QUOTA_WINDOW_NANOS
+                    || this.windowCount < this.apiKey.quota();
+        }
+
+        long availableAt(long now) {
+            long at = (isAvailable(now) ? now : this.blockedUntilNanos);
+            if (!hasQuota(now)) {
+                at = Math.max(at, this.windowStartNanos + QUOTA_WINDOW_NANOS);
+            }
+            return at - now;
+        }
+
+        void countRequest(long now) {
+            if (now - this.windowStartNanos >= QUOTA_WINDOW_NANOS || this.windowStartNanos == 0) {
+                this.windowStartNanos = now;
+                this.windowCount = 0;
+            }
+            this.windowCount++;
+        }
+
+        void coolDown(long now, Duration cooldown) {
+            long until = now + cooldown.toNanos();
+            if (!this.blocked || until - this.blockedUntilNanos > 0) {
+                this.blockedUntilNanos = until;
+            }
+            this.blocked = true;
+        }
+
+    }
+
+}
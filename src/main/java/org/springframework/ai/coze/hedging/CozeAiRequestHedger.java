@@ -0,0 +1,314 @@
+package org.springframework.ai.coze.hedging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hedges blocking calls: when the first attempt has not answered after a delay, an
+ * identical second attempt is started and whichever succeeds first wins, the other one
+ * is cancelled (its thread is interrupted, which aborts the blocking exchange).
+ * <p>
+ * The delay is either fixed or follows a percentile of the observed latencies, so that
+ * only the slowest calls are hedged. A budget caps the share of hedged calls: every call
+ * earns {@code maxHedgeRatio} of a hedge, a hedge costs one.
+ */
+public class CozeAiRequestHedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(CozeAiRequestHedger.class);
+
+    /**
+     * Recompute the percentile delay after this many new samples.
+     */
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    /**
+     * Upper bound of the saved-up hedge budget, keeps bursts after quiet periods short.
+     */
+    private static final double MAX_BUDGET = 10;
+
+    private final ExecutorService executor;
+
+    private final Duration fixedDelay;
+
+    private final double percentile;
+
+    private final int minSamples;
+
+    private final double maxHedgeRatio;
+
+    private final long[] samples;
+
+    private int sampleCount;
+
+    private int sampleIndex;
+
+    private int samplesSinceRecompute;
+
+    private volatile long percentileDelayNanos = -1;
+
+    private double budget = 1;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder hedgedCalls = new LongAdder();
+
+    private final LongAdder hedgeWins = new LongAdder();
+
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * @param executor runs both attempts, a rejected submission runs the call unhedged on
+     * the caller thread.
+     * @param fixedDelay delay before hedging, also used until enough samples exist for the
+     * percentile.
+     * @param percentile latency percentile in (0, 1) to use as delay, or {@code 0} to always
+     * use the fixed delay.
+     * @param minSamples samples required before the percentile is trusted.
+     * @param maxHedgeRatio maximum share of calls that may be hedged.
+     */
+    public CozeAiRequestHedger(ExecutorService executor, Duration fixedDelay, double percentile, int minSamples,
+                               double maxHedgeRatio) {
+        Assert.notNull(executor, "executor must not be null");
+        Assert.notNull(fixedDelay, "fixedDelay must not be null");
+        Assert.isTrue(percentile >= 0 && percentile < 1, "percentile must be in [0, 1)");
+        Assert.isTrue(maxHedgeRatio >= 0 && maxHedgeRatio <= 1, "maxHedgeRatio must be in [0, 1]");
+        this.executor = executor;
+        this.fixedDelay = fixedDelay;
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, minSamples);
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.samples = new long[Math.max(this.minSamples, 1024)];
+    }
+
+    /**
+     * Run the call, hedging it if it is slow.
+     * @param call the (idempotent) blocking call.
+     * @param <T> the result type.
+     * @return the result of the first successful attempt.
+     */
+    public <T> T execute(Supplier<T> call) {
+        this.calls.increment();
+        earnBudget();
+
+        long primaryStart = System.nanoTime();
+        CompletableFuture<T> primary = new CompletableFuture<>();
+        Future<?> primaryTask;
+        try {
+            primaryTask = this.executor.submit(() -> run(call, primary));
+        }
+        catch (RejectedExecutionException ex) {
+            return call.get();
+        }
+
+        try {
+            T result = await(primary, getDelayNanos());
+            if (result != null || primary.isDone()) {
+                recordLatency(System.nanoTime() - primaryStart);
+                return result;
+            }
+        }
+        catch (RuntimeException | Error ex) {
+            primaryTask.cancel(true);
+            throw ex;
+        }
+
+        if (!trySpendBudget()) {
+            this.budgetExhausted.increment();
+            return join(primary, primaryTask);
+        }
+
+        long hedgeStart = System.nanoTime();
+        CompletableFuture<T> hedge = new CompletableFuture<>();
+        Future<?> hedgeTask;
+        try {
+            hedgeTask = this.executor.submit(() -> run(call, hedge));
+        }
+        catch (RejectedExecutionException ex) {
+            return join(primary, primaryTask);
+        }
+        this.hedgedCalls.increment();
+        logger.debug("Hedging call still running after {} ms", (hedgeStart - primaryStart) / 1_000_000);
+
+        // First success wins, a failure only counts once both attempts failed.
+        CompletableFuture<Object> firstSuccess = new CompletableFuture<>();
+        primary.thenAccept(firstSuccess::complete);
+        hedge.thenAccept(firstSuccess::complete);
+        CompletableFuture.allOf(primary, hedge).whenComplete((ignored, error) -> {
+            if (error != null) {
+                firstSuccess.completeExceptionally(primary.isCompletedExceptionally() ? unwrap(primary) : error);
+            }
+        });
+
+        try {
+            Object result = join(firstSuccess, null);
+            boolean hedgeWon = hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.getNow(null) == result;
+            if (hedgeWon) {
+                this.hedgeWins.increment();
+                recordLatency(System.nanoTime() - hedgeStart);
+            }
+            else {
+                recordLatency(System.nanoTime() - primaryStart);
+            }
+            @SuppressWarnings("unchecked")
+            T value = (T) result;
+            return value;
+        }
+        finally {
+            primaryTask.cancel(true);
+            hedgeTask.cancel(true);
+        }
+    }
+
+    /**
+     * @return the delay currently used before hedging.
+     */
+    public Duration getCurrentDelay() {
+        return Duration.ofNanos(getDelayNanos());
+    }
+
+    public long getCallCount() {
+        return this.calls.sum();
+    }
+
+    /**
+     * @return number of calls for which a second attempt was started.
+     */
+    public long getHedgedCount() {
+        return this.hedgedCalls.sum();
+    }
+
+    /**
+     * @return number of hedged calls answered first by the second attempt.
+     */
+    public long getHedgeWinCount() {
+        return this.hedgeWins.sum();
+    }
+
+    /**
+     * @return number of slow calls that were not hedged because the budget was spent.
+     */
+    public long getBudgetExhaustedCount() {
+        return this.budgetExhausted.sum();
+    }
+
+    private static <T> void run(Supplier<T> call, CompletableFuture<T> result) {
+        try {
+            result.complete(call.get());
+        }
+        catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Wait up to the delay. Returns {@code null} without the future being done on timeout.
+     */
+    private static <T> T await(CompletableFuture<T> future, long delayNanos) {
+        try {
+            return future.get(delayNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException ex) {
+            return null;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the Coze API");
+        }
+        catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        }
+    }
+
+    /**
+     * Wait for the outcome, cancelling the task if the caller is interrupted.
+     */
+    private static <T> T join(CompletableFuture<T> future, Future<?> task) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException ex) {
+            if (task != null) {
+                task.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the Coze API");
+        }
+        catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        }
+    }
+
+    private static Throwable unwrap(CompletableFuture<?> failed) {
+        try {
+            failed.join();
+            return new IllegalStateException("Future did not fail");
+        }
+        catch (CompletionException | CancellationException ex) {
+            return (ex.getCause() != null ? ex.getCause() : ex);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException ex) {
+            return ex;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+
+    private long getDelayNanos() {
+        long delay = this.percentileDelayNanos;
+        return (delay >= 0 ? delay : this.fixedDelay.toNanos());
+    }
+
+    private synchronized void earnBudget() {
+        this.budget = Math.min(MAX_BUDGET, this.budget + this.maxHedgeRatio);
+    }
+
+    private synchronized boolean trySpendBudget() {
+        if (this.budget < 1) {
+            return false;
+        }
+        this.budget -= 1;
+        return true;
+    }
+
+    private void recordLatency(long latencyNanos) {
+        if (this.percentile <= 0) {
+            return;
+        }
+        long[] snapshot = null;
+        synchronized (this) {
+            this.samples[this.sampleIndex] = latencyNanos;
+            this.sampleIndex = (this.sampleIndex + 1) % this.samples.length;
+            this.sampleCount = Math.min(this.sampleCount + 1, this.samples.length);
+            if (this.sampleCount >= this.minSamples && ++this.samplesSinceRecompute >= RECOMPUTE_INTERVAL) {
+                this.samplesSinceRecompute = 0;
+                snapshot = Arrays.copyOf(this.samples, this.sampleCount);
+            }
+        }
+        if (snapshot != null) {
+            // Sorting a copy outside the lock, a few hundred microseconds every 64 calls.
+            Arrays.sort(snapshot);
+            this.percentileDelayNanos = snapshot[Math.min(snapshot.length - 1, (int) (snapshot.length * this.percentile))];
+        }
+    }
+
+}
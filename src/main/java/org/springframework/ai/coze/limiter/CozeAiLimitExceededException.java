@@ -0,0 +1,14 @@
+package org.springframework.ai.coze.limiter;
+
+/**
+ * Thrown when a request could not obtain a permit from the client-side limiter within its
+ * bounded wait, or when the wait queue is full. Deliberately not a
+ * {@code TransientAiException}: retrying immediately would only add to the overload.
+ */
+public class CozeAiLimitExceededException extends RuntimeException {
+
+    public CozeAiLimitExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,612 @@
+package org.springframework.ai.coze.limiter;
+
+import org.springframework.ai.coze.util.ApiUtils;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Client-side limiter for Coze API calls. A request needs both a token from a token
+ * bucket (fixed QPS with burst) and a slot below an adaptive concurrency limit. The limit
+ * grows additively while calls succeed and shrinks multiplicatively on {@code 429} /
+ * {@code 503} answers or when latency climbs well above the observed no-load latency
+ * (AIMD, with a Vegas-style latency signal).
+ * <p>
+ * Requests that cannot start right away wait in a bounded FIFO queue for at most
+ * {@code maxWait}. Blocking callers park on a future, reactive callers get a
+ * {@link Mono} that completes from whichever thread frees capacity, so event-loop threads
+ * are never blocked.
+ */
+public class CozeAiRateLimiter {
+
+    private static final int WAITING = 0;
+
+    private static final int GRANTED = 1;
+
+    private static final int CANCELLED = 2;
+
+    /**
+     * Number of latency samples after which the no-load latency is re-probed.
+     */
+    private static final int MIN_LATENCY_WINDOW = 500;
+
+    private final double permitsPerSecond;
+
+    private final double burst;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final double latencyTolerance;
+
+    private final int maxQueueSize;
+
+    private final Duration maxWait;
+
+    private final Duration decreaseCooldown;
+
+    private final Scheduler scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    private double limit;
+
+    private int inFlight;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    private long lastDecreaseNanos;
+
+    private long minLatencyNanos = Long.MAX_VALUE;
+
+    private int latencySamples;
+
+    private boolean drainScheduled;
+
+    private final LongAdder throttledCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder queuedCount = new LongAdder();
+
+    private CozeAiRateLimiter(Builder builder) {
+        this.permitsPerSecond = builder.permitsPerSecond;
+        this.burst = Math.max(1, builder.burst);
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyTolerance = builder.latencyTolerance;
+        this.maxQueueSize = builder.maxQueueSize;
+        this.maxWait = builder.maxWait;
+        this.decreaseCooldown = builder.decreaseCooldown;
+        this.scheduler = builder.scheduler;
+        this.limit = Math.min(Math.max(builder.initialLimit, builder.minLimit), builder.maxLimit);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Obtain a permit, blocking the calling thread for at most {@code maxWait}.
+     * @return the permit, which must be released through one of its {@code on*} methods.
+     * @throws CozeAiLimitExceededException if no permit became available in time.
+     */
+    public Permit acquire() {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        Waiter waiter = enqueue(future::complete);
+        if (waiter.permit != null) {
+            return waiter.permit;
+        }
+        try {
+            return future.get(this.maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException ex) {
+            if (cancel(waiter)) {
+                throw timeout();
+            }
+            // Granted concurrently with the timeout, keep it.
+            return future.join();
+        }
+        catch (InterruptedException ex) {
+            if (!cancel(waiter)) {
+                future.join().onCancel();
+            }
+            Thread.currentThread().interrupt();
+            throw new CozeAiLimitExceededException("Interrupted while waiting for a Coze API permit");
+        }
+        catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Obtain a permit without blocking.
+     * @return a {@link Mono} emitting the permit, or failing with
+     * {@link CozeAiLimitExceededException} after {@code maxWait}.
+     */
+    public Mono<Permit> acquireReactive() {
+        return Mono.<Permit>create(sink -> {
+            Waiter waiter = enqueue(sink::success);
+            if (waiter.permit != null) {
+                sink.success(waiter.permit);
+            }
+            else {
+                sink.onCancel(() -> cancel(waiter));
+            }
+        })
+        .timeout(this.maxWait, Mono.error(this::timeout))
+        .doOnDiscard(Permit.class, Permit::onCancel);
+    }
+
+    /**
+     * Run the given (cold) stream under a permit: the permit is obtained before subscribing
+     * to the source and released when the stream terminates or is cancelled. Latency is
+     * measured up to the first element.
+     * @param source the stream to limit.
+     * @param <T> the element type.
+     * @return the limited stream.
+     */
+    public <T> Flux<T> limit(Flux<T> source) {
+        return Flux.usingWhen(acquireReactive(),
+                permit -> source.doOnNext(element -> permit.onResponse()),
+                permit -> Mono.fromRunnable(permit::onSuccess),
+                (permit, error) -> Mono.fromRunnable(() -> permit.onError(error)),
+                permit -> Mono.fromRunnable(permit::onCancel));
+    }
+
+    /**
+     * Run the given (cold) call under a permit, released when the call terminates or is
+     * cancelled.
+     * @param source the call to limit.
+     * @param <T> the result type.
+     * @return the limited call.
+     */
+    public <T> Mono<T> limit(Mono<T> source) {
+        return Mono.usingWhen(acquireReactive(),
+                permit -> source,
+                permit -> Mono.fromRunnable(permit::onSuccess),
+                (permit, error) -> Mono.fromRunnable(() -> permit.onError(error)),
+                permit -> Mono.fromRunnable(permit::onCancel));
+    }
+
+    /**
+     * @return the current adaptive concurrency limit.
+     */
+    public int getLimit() {
+        this.lock.lock();
+        try {
+            return (int) this.limit;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests currently holding a permit.
+     */
+    public int getInFlight() {
+        this.lock.lock();
+        try {
+            return this.inFlight;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests waiting for a permit.
+     */
+    public int getQueueDepth() {
+        this.lock.lock();
+        try {
+            return this.waiters.size();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of calls answered with a throttling status.
+     */
+    public long getThrottledCount() {
+        return this.throttledCount.sum();
+    }
+
+    /**
+     * @return number of requests rejected because the queue was full or the wait timed out.
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    /**
+     * @return number of requests that had to wait for a permit.
+     */
+    public long getQueuedCount() {
+        return this.queuedCount.sum();
+    }
+
+    private Waiter enqueue(Consumer<Permit> onGrant) {
+        Waiter waiter = new Waiter(onGrant);
+        List<Waiter> granted;
+        this.lock.lock();
+        try {
+            if (this.waiters.isEmpty() && tryStart()) {
+                // Fast path, nobody is waiting and there is capacity.
+                waiter.state.set(GRANTED);
+                waiter.permit = new Permit();
+                return waiter;
+            }
+            if (this.maxQueueSize >= 0 && this.waiters.size() >= this.maxQueueSize) {
+                this.rejectedCount.increment();
+                throw new CozeAiLimitExceededException("Coze API limiter queue is full (" + this.maxQueueSize + " waiting)");
+            }
+            this.queuedCount.increment();
+            this.waiters.addLast(waiter);
+            granted = drainLocked();
+        }
+        finally {
+            this.lock.unlock();
+        }
+        complete(granted);
+        return waiter;
+    }
+
+    private boolean cancel(Waiter waiter) {
+        if (!waiter.state.compareAndSet(WAITING, CANCELLED)) {
+            return false;
+        }
+        this.lock.lock();
+        try {
+            this.waiters.remove(waiter);
+        }
+        finally {
+            this.lock.unlock();
+        }
+        return true;
+    }
+
+    private CozeAiLimitExceededException timeout() {
+        this.rejectedCount.increment();
+        return new CozeAiLimitExceededException("Timed out after " + this.maxWait + " waiting for a Coze API permit");
+    }
+
+    private void release(Permit permit, Signal signal) {
+        long now = System.nanoTime();
+        List<Waiter> granted;
+        this.lock.lock();
+        try {
+            int utilization = this.inFlight--;
+            switch (signal) {
+                case SUCCESS -> onSample((permit.respondedNanos != 0 ? permit.respondedNanos : now) - permit.startNanos,
+                        utilization, now);
+                case OVERLOAD -> decrease(now);
+                default -> {
+                }
+            }
+            granted = drainLocked();
+        }
+        finally {
+            this.lock.unlock();
+        }
+        complete(granted);
+    }
+
+    private void onSample(long latencyNanos, int utilization, long now) {
+        if (++this.latencySamples >= MIN_LATENCY_WINDOW) {
+            // Re-probe the no-load latency, the upstream may have become faster or slower.
+            this.latencySamples = 0;
+            this.minLatencyNanos = latencyNanos;
+        }
+        this.minLatencyNanos = Math.min(this.minLatencyNanos, latencyNanos);
+        if (this.latencyTolerance > 0 && latencyNanos > this.minLatencyNanos * this.latencyTolerance) {
+            decrease(now);
+        }
+        else if (utilization * 2 >= this.limit) {
+            // Only grow while the current limit is actually being used.
+            this.limit = Math.min(this.maxLimit, this.limit + 1.0 / this.limit);
+        }
+    }
+
+    private void decrease(long now) {
+        if (now - this.lastDecreaseNanos < this.decreaseCooldown.toNanos()) {
+            return;
+        }
+        this.lastDecreaseNanos = now;
+        this.limit = Math.max(this.minLimit, this.limit * this.backoffRatio);
+    }
+
+    private boolean tryStart() {
+        if (this.inFlight >= (int) this.limit) {
+            return false;
+        }
+        if (this.permitsPerSecond > 0) {
+            long now = System.nanoTime();
+            this.tokens = Math.min(this.burst, this.tokens + (now - this.lastRefillNanos) * this.permitsPerSecond / 1e9);
+            this.lastRefillNanos = now;
+            if (this.tokens < 1) {
+                scheduleDrain((long) Math.ceil((1 - this.tokens) * 1e9 / this.permitsPerSecond));
+                return false;
+            }
+            this.tokens -= 1;
+        }
+        this.inFlight++;
+        return true;
+    }
+
+    private List<Waiter> drainLocked() {
+        List<Waiter> granted = null;
+        while (!this.waiters.isEmpty()) {
+            Waiter waiter = this.waiters.peekFirst();
+            if (waiter.state.get() == CANCELLED) {
+                this.waiters.pollFirst();
+                continue;
+            }
+            if (!tryStart()) {
+                break;
+            }
+            this.waiters.pollFirst();
+            if (!waiter.state.compareAndSet(WAITING, GRANTED)) {
+                // Cancelled in the meantime, hand the slot back.
+                this.inFlight--;
+                continue;
+            }
+            waiter.permit = new Permit();
+            if (granted == null) {
+                granted = new ArrayList<>(2);
+            }
+            granted.add(waiter);
+        }
+        return granted;
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (this.drainScheduled) {
+            return;
+        }
+        this.drainScheduled = true;
+        this.scheduler.schedule(() -> {
+            List<Waiter> granted;
+            this.lock.lock();
+            try {
+                this.drainScheduled = false;
+                granted = drainLocked();
+            }
+            finally {
+                this.lock.unlock();
+            }
+            complete(granted);
+        }, Math.max(delayNanos, 1_000), TimeUnit.NANOSECONDS);
+    }
+
+    private static void complete(List<Waiter> granted) {
+        if (granted != null) {
+            for (Waiter waiter : granted) {
+                waiter.onGrant.accept(waiter.permit);
+            }
+        }
+    }
+
+    private enum Signal {
+
+        SUCCESS, OVERLOAD, IGNORE
+
+    }
+
+    private static final class Waiter {
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private final Consumer<Permit> onGrant;
+
+        private volatile Permit permit;
+
+        Waiter(Consumer<Permit> onGrant) {
+            this.onGrant = onGrant;
+        }
+
+    }
+
+    /**
+     * Permission to run one request. Exactly one of the {@code on*} release methods takes
+     * effect, later calls are ignored.
+     */
+    public final class Permit {
+
+        private final long startNanos = System.nanoTime();
+
+        private volatile long respondedNanos;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        /**
+         * Mark the arrival of the first response bytes, the latency sample ends here.
+         */
+        public void onResponse() {
+            if (this.respondedNanos == 0) {
+                this.respondedNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * Release after a successful call.
+         */
+        public void onSuccess() {
+            if (this.released.compareAndSet(false, true)) {
+                release(this, Signal.SUCCESS);
+            }
+        }
+
+        /**
+         * Release after a failed call; throttling answers shrink the limit.
+         * @param error the failure.
+         */
+        public void onError(Throwable error) {
+            if (this.released.compareAndSet(false, true)) {
+                int status = ApiUtils.getStatusCode(error);
+                boolean overload = (status == 429 || status == 503);
+                if (overload) {
+                    throttledCount.increment();
+                }
+                release(this, overload ? Signal.OVERLOAD : Signal.IGNORE);
+            }
+        }
+
+        /**
+         * Release without feeding the outcome into the limit, e.g. on cancellation.
+         */
+        public void onCancel() {
+            if (this.released.compareAndSet(false, true)) {
+                release(this, Signal.IGNORE);
+            }
+        }
+
+    }
+
+    public static class Builder {
+
+        private double permitsPerSecond = 0;
+
+        private double burst = 1;
+
+        private int initialLimit = 20;
+
+        private int minLimit = 1;
+
+        private int maxLimit = 200;
+
+        private double backoffRatio = 0.9;
+
+        private double latencyTolerance = 0;
+
+        private int maxQueueSize = 1000;
+
+        private Duration maxWait = Duration.ofSeconds(30);
+
+        private Duration decreaseCooldown = Duration.ofMillis(500);
+
+        private Scheduler scheduler = Schedulers.parallel();
+
+        /**
+         * @param permitsPerSecond token bucket rate, {@code 0} disables the bucket.
+         * @return this builder.
+         */
+        public Builder withPermitsPerSecond(double permitsPerSecond) {
+            Assert.isTrue(permitsPerSecond >= 0, "permitsPerSecond must not be negative");
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param burst token bucket capacity.
+         * @return this builder.
+         */
+        public Builder withBurst(double burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        public Builder withInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder withMinLimit(int minLimit) {
+            Assert.isTrue(minLimit >= 1, "minLimit must be at least 1");
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public Builder withMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * @param backoffRatio factor applied to the limit on overload, in (0, 1).
+         * @return this builder.
+         */
+        public Builder withBackoffRatio(double backoffRatio) {
+            Assert.isTrue(backoffRatio > 0 && backoffRatio < 1, "backoffRatio must be in (0, 1)");
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * @param latencyTolerance shrink the limit when a call takes longer than this
+         * multiple of the no-load latency, {@code 0} disables the latency signal.
+         * @return this builder.
+         */
+        public Builder withLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        /**
+         * @param maxQueueSize maximum number of waiting requests, {@code -1} for unbounded.
+         * @return this builder.
+         */
+        public Builder withMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        public Builder withMaxWait(Duration maxWait) {
+            Assert.notNull(maxWait, "maxWait must not be null");
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public Builder withDecreaseCooldown(Duration decreaseCooldown) {
+            Assert.notNull(decreaseCooldown, "decreaseCooldown must not be null");
+            this.decreaseCooldown = decreaseCooldown;
+            return this;
+        }
+
+        public Builder withScheduler(Scheduler scheduler) {
+            Assert.notNull(scheduler, "scheduler must not be null");
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public CozeAiRateLimiter build() {
+            Assert.isTrue(this.maxLimit >= this.minLimit, "maxLimit must not be below minLimit");
+            return new CozeAiRateLimiter(this);
+        }
+
+    }
+
+}
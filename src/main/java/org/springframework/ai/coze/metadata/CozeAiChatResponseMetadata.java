@@ -0,0 +1,60 @@
+package org.springframework.ai.coze.metadata;
+
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.EmptyRateLimit;
+import org.springframework.ai.chat.metadata.EmptyUsage;
+import org.springframework.ai.chat.metadata.RateLimit;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.coze.api.CozeAiApi;
+
+/**
+ * {@link ChatResponseMetadata} implementation for CozeAI: the completion id, token usage
+ * and the rate limit reported in the response headers.
+ */
+public class CozeAiChatResponseMetadata implements ChatResponseMetadata {
+
+    protected static final String AI_METADATA_STRING = "{ @type: %1$s, id: %2$s, usage: %3$s, rateLimit: %4$s }";
+
+    /**
+     * Create the metadata of a completion.
+     * @param chatCompletion the completion.
+     * @param rateLimit the rate limit, may be {@code null}.
+     * @return the metadata.
+     */
+    public static CozeAiChatResponseMetadata from(CozeAiApi.ChatCompletion chatCompletion, RateLimit rateLimit) {
+        Usage usage = (chatCompletion.usage() != null ? CozeAiUsage.from(chatCompletion.usage()) : new EmptyUsage());
+        return new CozeAiChatResponseMetadata(chatCompletion.id(), usage, rateLimit);
+    }
+
+    private final String id;
+
+    private final Usage usage;
+
+    private final RateLimit rateLimit;
+
+    protected CozeAiChatResponseMetadata(String id, Usage usage, RateLimit rateLimit) {
+        this.id = id;
+        this.usage = (usage != null ? usage : new EmptyUsage());
+        this.rateLimit = (rateLimit != null ? rateLimit : new EmptyRateLimit());
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    @Override
+    public Usage getUsage() {
+        return this.usage;
+    }
+
+    @Override
+    public RateLimit getRateLimit() {
+        return this.rateLimit;
+    }
+
+    @Override
+    public String toString() {
+        return AI_METADATA_STRING.formatted(getClass().getName(), getId(), getUsage(), getRateLimit());
+    }
+
+}
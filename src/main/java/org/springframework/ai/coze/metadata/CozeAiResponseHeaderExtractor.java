@@ -0,0 +1,139 @@
+package org.springframework.ai.coze.metadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads rate limit information from the response headers. Understands the
+ * {@code x-ratelimit-*-requests} / {@code x-ratelimit-*-tokens} family as well as the
+ * generic {@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining} and
+ * {@code X-RateLimit-Reset} headers, which are taken as request limits. A
+ * {@code Retry-After} in seconds stands in for a missing request reset.
+ */
+public final class CozeAiResponseHeaderExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CozeAiResponseHeaderExtractor.class);
+
+    public static final String REQUESTS_LIMIT_HEADER = "x-ratelimit-limit-requests";
+
+    public static final String REQUESTS_REMAINING_HEADER = "x-ratelimit-remaining-requests";
+
+    public static final String REQUESTS_RESET_HEADER = "x-ratelimit-reset-requests";
+
+    public static final String TOKENS_LIMIT_HEADER = "x-ratelimit-limit-tokens";
+
+    public static final String TOKENS_REMAINING_HEADER = "x-ratelimit-remaining-tokens";
+
+    public static final String TOKENS_RESET_HEADER = "x-ratelimit-reset-tokens";
+
+    public static final String LIMIT_HEADER = "x-ratelimit-limit";
+
+    public static final String REMAINING_HEADER = "x-ratelimit-remaining";
+
+    public static final String RESET_HEADER = "x-ratelimit-reset";
+
+    /**
+     * Durations such as {@code 6m0s}, {@code 1.5s} or {@code 20ms}.
+     */
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private CozeAiResponseHeaderExtractor() {
+    }
+
+    /**
+     * @param response the response.
+     * @return the rate limit, or {@code null} if the response carries no rate limit header.
+     */
+    public static CozeAiRateLimit extractRateLimit(ResponseEntity<?> response) {
+        return (response != null ? extractRateLimit(response.getHeaders()) : null);
+    }
+
+    /**
+     * @param headers the response headers.
+     * @return the rate limit, or {@code null} if the headers carry no rate limit header.
+     */
+    public static CozeAiRateLimit extractRateLimit(HttpHeaders headers) {
+        if (headers == null || headers.isEmpty()) {
+            return null;
+        }
+        Long requestsLimit = getLong(headers, REQUESTS_LIMIT_HEADER, LIMIT_HEADER);
+        Long requestsRemaining = getLong(headers, REQUESTS_REMAINING_HEADER, REMAINING_HEADER);
+        Duration requestsReset = getDuration(headers, REQUESTS_RESET_HEADER, RESET_HEADER);
+        if (requestsReset == null) {
+            requestsReset = getDuration(headers, HttpHeaders.RETRY_AFTER, null);
+        }
+        Long tokensLimit = getLong(headers, TOKENS_LIMIT_HEADER, null);
+        Long tokensRemaining = getLong(headers, TOKENS_REMAINING_HEADER, null);
+        Duration tokensReset = getDuration(headers, TOKENS_RESET_HEADER, null);
+        if (requestsLimit == null && requestsRemaining == null && requestsReset == null && tokensLimit == null
+                && tokensRemaining == null && tokensReset == null) {
+            return null;
+        }
+        return new CozeAiRateLimit(requestsLimit, requestsRemaining, requestsReset, tokensLimit, tokensRemaining,
+                tokensReset);
+    }
+
+    private static String getHeader(HttpHeaders headers, String name, String fallbackName) {
+        String value = headers.getFirst(name);
+        if (!StringUtils.hasText(value) && fallbackName != null) {
+            value = headers.getFirst(fallbackName);
+        }
+        return (StringUtils.hasText(value) ? value.trim() : null);
+    }
+
+    private static Long getLong(HttpHeaders headers, String name, String fallbackName) {
+        String value = getHeader(headers, name, fallbackName);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException ex) {
+            logger.debug("Ignoring non-numeric rate limit header {}: {}", name, value);
+            return null;
+        }
+    }
+
+    /**
+     * Reset values are either plain seconds or Go-style durations ({@code 1m30s}).
+     */
+    private static Duration getDuration(HttpHeaders headers, String name, String fallbackName) {
+        String value = getHeader(headers, name, fallbackName);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis(Math.round(Double.parseDouble(value) * 1000));
+        }
+        catch (NumberFormatException ex) {
+            // not plain seconds
+        }
+        Matcher matcher = DURATION_PART.matcher(value);
+        long millis = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> Math.round(amount * 3_600_000);
+                case "m" -> Math.round(amount * 60_000);
+                case "s" -> Math.round(amount * 1_000);
+                default -> Math.round(amount);
+            };
+            end = matcher.end();
+        }
+        if (end != value.length() || end == 0) {
+            logger.debug("Ignoring unparsable rate limit header {}: {}", name, value);
+            return null;
+        }
+        return Duration.ofMillis(millis);
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.springframework.ai.coze.metadata;
+
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.util.Assert;
+
+/**
+ * {@link Usage} implementation for CozeAI.
+ */
+public class CozeAiUsage implements Usage {
+
+    public static CozeAiUsage from(CozeAiApi.Usage usage) {
+        return new CozeAiUsage(usage);
+    }
+
+    private final CozeAiApi.Usage usage;
+
+    protected CozeAiUsage(CozeAiApi.Usage usage) {
+        Assert.notNull(usage, "CozeAI Usage must not be null");
+        this.usage = usage;
+    }
+
+    protected CozeAiApi.Usage getUsage() {
+        return this.usage;
+    }
+
+    @Override
+    public Long getPromptTokens() {
+        return toLong(getUsage().promptTokens());
+    }
+
+    @Override
+    public Long getGenerationTokens() {
+        return toLong(getUsage().completionTokens());
+    }
+
+    public Long getTotalTokens() {
+        Integer totalTokens = getUsage().totalTokens();
+        if (totalTokens != null) {
+            return totalTokens.longValue();
+        }
+        return getPromptTokens() + getGenerationTokens();
+    }
+
+    private static Long toLong(Integer value) {
+        return (value != null ? value.longValue() : 0L);
+    }
+
+    @Override
+    public String toString() {
+        return getUsage().toString();
+    }
+
+}
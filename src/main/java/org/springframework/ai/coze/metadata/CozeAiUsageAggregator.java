@@ -0,0 +1,127 @@
+package org.springframework.ai.coze.metadata;
+
+import org.springframework.ai.coze.api.CozeAiApi;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process totals of the token usage reported by the API, per model and per user. Recording
+ * is contention free, the totals are read as snapshots.
+ */
+public class CozeAiUsageAggregator {
+
+    /**
+     * Key of the calls made without a model or a user.
+     */
+    public static final String UNKNOWN = "unknown";
+
+    private final ConcurrentMap<String, Counters> models = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Counters> users = new ConcurrentHashMap<>();
+
+    private final Counters total = new Counters();
+
+    /**
+     * Add the usage of one completion.
+     * @param model the model, may be {@code null}.
+     * @param user the user, may be {@code null}.
+     * @param usage the usage, ignored when {@code null}.
+     */
+    public void record(String model, String user, CozeAiApi.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        long promptTokens = (usage.promptTokens() != null ? usage.promptTokens() : 0);
+        long completionTokens = (usage.completionTokens() != null ? usage.completionTokens() : 0);
+        long totalTokens = (usage.totalTokens() != null ? usage.totalTokens() : promptTokens + completionTokens);
+        this.total.add(promptTokens, completionTokens, totalTokens);
+        this.models.computeIfAbsent(keyOf(model), k -> new Counters()).add(promptTokens, completionTokens, totalTokens);
+        this.users.computeIfAbsent(keyOf(user), k -> new Counters()).add(promptTokens, completionTokens, totalTokens);
+    }
+
+    /**
+     * @return the totals of all calls.
+     */
+    public UsageTotals getTotal() {
+        return this.total.snapshot();
+    }
+
+    /**
+     * @return the totals per model, sorted by model.
+     */
+    public Map<String, UsageTotals> getTotalsByModel() {
+        return snapshot(this.models);
+    }
+
+    /**
+     * @return the totals per user, sorted by user.
+     */
+    public Map<String, UsageTotals> getTotalsByUser() {
+        return snapshot(this.users);
+    }
+
+    /**
+     * Forget all totals.
+     */
+    public void reset() {
+        this.models.clear();
+        this.users.clear();
+        this.total.reset();
+    }
+
+    private static String keyOf(String name) {
+        return (name != null && !name.isBlank() ? name : UNKNOWN);
+    }
+
+    private static Map<String, UsageTotals> snapshot(ConcurrentMap<String, Counters> counters) {
+        Map<String, UsageTotals> snapshot = new TreeMap<>();
+        counters.forEach((name, c) -> snapshot.put(name, c.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * Snapshot of the usage totals.
+     * @param calls the completions that reported usage.
+     * @param promptTokens the prompt tokens.
+     * @param completionTokens the completion tokens.
+     * @param totalTokens the total tokens.
+     */
+    public record UsageTotals(long calls, long promptTokens, long completionTokens, long totalTokens) {
+    }
+
+    private static final class Counters {
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder promptTokens = new LongAdder();
+
+        private final LongAdder completionTokens = new LongAdder();
+
+        private final LongAdder totalTokens = new LongAdder();
+
+        void add(long prompt, long completion, long total) {
+            this.calls.increment();
+            this.promptTokens.add(prompt);
+            this.completionTokens.add(completion);
+            this.totalTokens.add(total);
+        }
+
+        UsageTotals snapshot() {
+            return new UsageTotals(this.calls.sum(), this.promptTokens.sum(), this.completionTokens.sum(),
+                    this.totalTokens.sum());
+        }
+
+        void reset() {
+            this.calls.reset();
+            this.promptTokens.reset();
+            this.completionTokens.reset();
+            this.totalTokens.reset();
+        }
+
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.springframework.ai.coze.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.coze.cache.CozeAiRequestCoalescer;
+import org.springframework.ai.coze.cache.CozeAiResponseCache;
+import org.springframework.ai.coze.cache.CozeAiToolResultCache;
+import org.springframework.ai.coze.credential.CozeAiApiKeyPool;
+import org.springframework.ai.coze.hedging.CozeAiRequestHedger;
+import org.springframework.ai.coze.limiter.CozeAiRateLimiter;
+
+import java.util.List;
+
+/**
+ * Exposes the state of the optional client components (caches, limiter, key pool,
+ * hedger, coalescer) as gauges and function counters. Components that are {@code null}
+ * are skipped.
+ */
+public class CozeAiMeterBinder implements MeterBinder {
+
+    private final CozeAiResponseCache responseCache;
+
+    private final CozeAiToolResultCache toolResultCache;
+
+    private final CozeAiRateLimiter rateLimiter;
+
+    private final CozeAiApiKeyPool apiKeyPool;
+
+    private final CozeAiRequestHedger requestHedger;
+
+    private final CozeAiRequestCoalescer requestCoalescer;
+
+    public CozeAiMeterBinder(CozeAiResponseCache responseCache, CozeAiToolResultCache toolResultCache,
+                             CozeAiRateLimiter rateLimiter, CozeAiApiKeyPool apiKeyPool,
+                             CozeAiRequestHedger requestHedger, CozeAiRequestCoalescer requestCoalescer) {
+        this.responseCache = responseCache;
+        this.toolResultCache = toolResultCache;
+        this.rateLimiter = rateLimiter;
+        this.apiKeyPool = apiKeyPool;
+        this.requestHedger = requestHedger;
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (this.responseCache != null) {
+            CozeAiResponseCache cache = this.responseCache;
+            Gauge.builder("coze.ai.cache.size", cache, CozeAiResponseCache::getSize).tag("cache", "response").register(registry);
+            FunctionCounter.builder("coze.ai.cache.requests", cache, c -> c.getStats().hitCount())
+                    .tags("cache", "response", "result", "hit").register(registry);
+            FunctionCounter.builder("coze.ai.cache.requests", cache, c -> c.getStats().missCount())
+                    .tags("cache", "response", "result", "miss").register(registry);
+            FunctionCounter.builder("coze.ai.cache.requests", cache, CozeAiResponseCache::getBypassCount)
+                    .tags("cache", "response", "result", "bypass").register(registry);
+        }
+        if (this.toolResultCache != null) {
+            CozeAiToolResultCache cache = this.toolResultCache;
+            Gauge.builder("coze.ai.cache.size", cache, CozeAiToolResultCache::getSize).tag("cache", "tool").register(registry);
+            FunctionCounter.builder("coze.ai.cache.requests", cache, c -> c.getStats().hitCount())
+                    .tags("cache", "tool", "result", "hit").register(registry);
+            FunctionCounter.builder("coze.ai.cache.requests", cache, c -> c.getStats().missCount())
+                    .tags("cache", "tool", "result", "miss").register(registry);
+            FunctionCounter.builder("coze.ai.cache.requests", cache, CozeAiToolResultCache::getDedupedCount)
+                    .tags("cache", "tool", "result", "deduped").register(registry);
+        }
+        if (this.rateLimiter != null) {
+            CozeAiRateLimiter limiter = this.rateLimiter;
+            Gauge.builder("coze.ai.limiter.limit", limiter, CozeAiRateLimiter::getLimit).register(registry);
+            Gauge.builder("coze.ai.limiter.in.flight", limiter, CozeAiRateLimiter::getInFlight).register(registry);
+            Gauge.builder("coze.ai.limiter.queue.depth", limiter, CozeAiRateLimiter::getQueueDepth).register(registry);
+            FunctionCounter.builder("coze.ai.limiter.throttled", limiter, CozeAiRateLimiter::getThrottledCount).register(registry);
+            FunctionCounter.builder("coze.ai.limiter.rejected", limiter, CozeAiRateLimiter::getRejectedCount).register(registry);
+        }
+        if (this.apiKeyPool != null) {
+            CozeAiApiKeyPool pool = this.apiKeyPool;
+            List<CozeAiApiKeyPool.KeyStats> keys = pool.getKeyStats();
+            for (int i = 0; i < keys.size(); i++) {
+                int index = i;
+                String key = keys.get(i).name();
+                Gauge.builder("coze.ai.keys.outstanding", pool, p -> p.getKeyStats().get(index).outstanding())
+                        .tag("key", key).register(registry);
+                Gauge.builder("coze.ai.keys.available", pool, p -> p.getKeyStats().get(index).available() ? 1 : 0)
+                        .tag("key", key).register(registry);
+                FunctionCounter.builder("coze.ai.keys.requests", pool, p -> p.getKeyStats().get(index).requests())
+                        .tags("key", key, "result", "sent").register(registry);
+                FunctionCounter.builder("coze.ai.keys.requests", pool, p -> p.getKeyStats().get(index).throttled())
+                        .tags("key", key, "result", "throttled").register(registry);
+                FunctionCounter.builder("coze.ai.keys.requests", pool, p -> p.getKeyStats().get(index).unauthorized())
+                        .tags("key", key, "result", "unauthorized").register(registry);
+            }
+        }
+        if (this.requestHedger != null) {
+            CozeAiRequestHedger hedger = this.requestHedger;
+            FunctionCounter.builder("coze.ai.hedging.calls", hedger, CozeAiRequestHedger::getHedgedCount)
+                    .tag("result", "hedged").register(registry);
+            FunctionCounter.builder("coze.ai.hedging.calls", hedger, CozeAiRequestHedger::getHedgeWinCount)
+                    .tag("result", "won").register(registry);
+            FunctionCounter.builder("coze.ai.hedging.calls", hedger, CozeAiRequestHedger::getBudgetExhaustedCount)
+                    .tag("result", "budget.exhausted").register(registry);
+        }
+        if (this.requestCoalescer != null) {
+            CozeAiRequestCoalescer coalescer = this.requestCoalescer;
+            Gauge.builder("coze.ai.coalescing.in.flight", coalescer, CozeAiRequestCoalescer::getInFlight).register(registry);
+            FunctionCounter.builder("coze.ai.coalescing.joined", coalescer, CozeAiRequestCoalescer::getCoalescedCalls)
+                    .tag("type", "call").register(registry);
+            FunctionCounter.builder("coze.ai.coalescing.joined", coalescer, CozeAiRequestCoalescer::getCoalescedStreams)
+                    .tag("type", "stream").register(registry);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package org.springframework.ai.coze.metrics;
+
+import org.springframework.ai.coze.api.CozeAiApi;
+
+/**
+ * Recording hooks for chat and embedding calls. The default methods record nothing, so
+ * the client does not depend on a metrics library; see {@link MicrometerCozeAiMetrics}.
+ */
+public interface CozeAiMetrics {
+
+    /**
+     * Metrics recording nothing.
+     */
+    CozeAiMetrics NOOP = new CozeAiMetrics() {
+    };
+
+    /**
+     * Start observing a blocking chat call.
+     * @param model the model, may be {@code null}.
+     * @param botId the bot id, may be {@code null}.
+     * @return the observation.
+     */
+    default CallObservation startChatCall(String model, String botId) {
+        return CallObservation.NOOP;
+    }
+
+    /**
+     * Start observing a streamed chat call.
+     * @param model the model, may be {@code null}.
+     * @param botId the bot id, may be {@code null}.
+     * @return the observation.
+     */
+    default StreamObservation startChatStream(String model, String botId) {
+        return StreamObservation.NOOP;
+    }
+
+    /**
+     * Start observing an embedding call.
+     * @param model the model, may be {@code null}.
+     * @return the observation.
+     */
+    default CallObservation startEmbedding(String model) {
+        return CallObservation.NOOP;
+    }
+
+    /**
+     * Start observing a batch of chat calls.
+     * @return the observation.
+     */
+    default BatchObservation startBatch() {
+        return BatchObservation.NOOP;
+    }
+
+    /**
+     * A blocking call in progress. Exactly one of the terminal methods is called.
+     */
+    interface CallObservation {
+
+        CallObservation NOOP = new CallObservation() {
+        };
+
+        /**
+         * @param finishReason the finish reason, may be {@code null}.
+         * @param usage the token usage, may be {@code null}.
+         */
+        default void success(String finishReason, CozeAiApi.Usage usage) {
+        }
+
+        default void error(Throwable error) {
+        }
+
+    }
+
+    /**
+     * A stream in progress. {@link #onToken()} is called for every content chunk, then
+     * exactly one of the terminal methods.
+     */
+    interface StreamObservation {
+
+        StreamObservation NOOP = new StreamObservation() {
+        };
+
+        default void onToken() {
+        }
+
+        /**
+         * @param finishReason the finish reason of the stream.
+         */
+        default void onFinishReason(String finishReason) {
+        }
+
+        /**
+         * @param usage the token usage reported for the stream.
+         */
+        default void onUsage(CozeAiApi.Usage usage) {
+        }
+
+        default void complete() {
+        }
+
+        default void error(Throwable error) {
+        }
+
+        default void cancel() {
+        }
+
+    }
+
+    /**
+     * A batch in progress. The item methods are called once per prompt, then exactly one
+     * of the terminal methods.
+     */
+    interface BatchObservation {
+
+        BatchObservation NOOP = new BatchObservation() {
+        };
+
+        /**
+         * A prompt was taken from the input.
+         */
+        default void onItemStart() {
+        }
+
+        default void onItemSuccess() {
+        }
+
+        /**
+         * @param error the last failure of the prompt.
+         */
+        default void onItemFailure(Throwable error) {
+        }
+
+        /**
+         * @param error the failure of the attempt being retried.
+         */
+        default void onItemRetry(Throwable error) {
+        }
+
+        default void complete() {
+        }
+
+        default void error(Throwable error) {
+        }
+
+        default void cancel() {
+        }
+
+    }
+
+}
@@ -0,0 +1,347 @@
+package org.springframework.ai.coze.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer implementation of {@link CozeAiMetrics}.
+ * <p>
+ * Meters are resolved once per model / bot pair and cached, so a call only looks up its
+ * outcome-tagged timer when it ends, and recording a streamed token is a clock read plus
+ * one timer update without allocation.
+ * <ul>
+ * <li>{@code coze.ai.chat.calls}: blocking chat calls, tagged model, bot.id, outcome, finish.reason</li>
+ * <li>{@code coze.ai.chat.stream.duration}: streams, same tags</li>
+ * <li>{@code coze.ai.chat.stream.ttft}: time to first token</li>
+ * <li>{@code coze.ai.chat.stream.inter.token}: time between two tokens</li>
+ * <li>{@code coze.ai.chat.stream.tokens.per.second}: throughput after the first token</li>
+ * <li>{@code coze.ai.tokens}: token usage, tagged model, bot.id, type (prompt, completion)</li>
+ * <li>{@code coze.ai.embedding.calls}: embedding calls, tagged model, outcome</li>
+ * <li>{@code coze.ai.batch.items}: completed batch prompts, tagged outcome; its rate is the batch throughput</li>
+ * <li>{@code coze.ai.batch.retries}: retried batch prompt attempts</li>
+ * <li>{@code coze.ai.batch.active.items}: batch prompts in flight</li>
+ * <li>{@code coze.ai.batch.duration}: whole batches, tagged outcome</li>
+ * </ul>
+ */
+public class MicrometerCozeAiMetrics implements CozeAiMetrics {
+
+    private static final String UNKNOWN = "none";
+
+    private final MeterRegistry registry;
+
+    private final Map<MeterKey, Meters> meters = new ConcurrentHashMap<>();
+
+    private final Counter batchSuccesses;
+
+    private final Counter batchRetries;
+
+    private final AtomicLong batchActiveItems = new AtomicLong();
+
+    public MicrometerCozeAiMetrics(MeterRegistry registry) {
+        Assert.notNull(registry, "registry must not be null");
+        this.registry = registry;
+        this.batchSuccesses = Counter.builder("coze.ai.batch.items")
+                .description("Completed batch prompts")
+                .tag("outcome", outcome(null))
+                .register(registry);
+        this.batchRetries = Counter.builder("coze.ai.batch.retries")
+                .description("Retried batch prompt attempts")
+                .register(registry);
+        Gauge.builder("coze.ai.batch.active.items", this.batchActiveItems, AtomicLong::get)
+                .description("Batch prompts in flight")
+                .register(registry);
+    }
+
+    @Override
+    public CallObservation startChatCall(String model, String botId) {
+        return new ChatCallObservation(metersFor(model, botId), System.nanoTime());
+    }
+
+    @Override
+    public StreamObservation startChatStream(String model, String botId) {
+        return new ChatStreamObservation(metersFor(model, botId), System.nanoTime());
+    }
+
+    @Override
+    public CallObservation startEmbedding(String model) {
+        return new EmbeddingObservation(metersFor(model, null), System.nanoTime());
+    }
+
+    @Override
+    public BatchObservation startBatch() {
+        return new MicrometerBatchObservation(System.nanoTime());
+    }
+
+    private Meters metersFor(String model, String botId) {
+        MeterKey key = new MeterKey(model != null ? model : UNKNOWN, botId != null ? botId : UNKNOWN);
+        Meters cached = this.meters.get(key);
+        return (cached != null ? cached : this.meters.computeIfAbsent(key, Meters::new));
+    }
+
+    private static String outcome(Throwable error) {
+        return (error == null ? "success" : error.getClass().getSimpleName());
+    }
+
+    private record MeterKey(String model, String botId) {
+    }
+
+    /**
+     * Meters of one model / bot pair that do not depend on the outcome.
+     */
+    private final class Meters {
+
+        private final MeterKey key;
+
+        private final Timer timeToFirstToken;
+
+        private final Timer interToken;
+
+        private final DistributionSummary tokensPerSecond;
+
+        private final Counter promptTokens;
+
+        private final Counter completionTokens;
+
+        Meters(MeterKey key) {
+            this.key = key;
+            this.timeToFirstToken = Timer.builder("coze.ai.chat.stream.ttft")
+                    .description("Time from request to the first streamed token")
+                    .tags("model", key.model(), "bot.id", key.botId())
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.interToken = Timer.builder("coze.ai.chat.stream.inter.token")
+                    .description("Time between two streamed tokens")
+                    .tags("model", key.model(), "bot.id", key.botId())
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.tokensPerSecond = DistributionSummary.builder("coze.ai.chat.stream.tokens.per.second")
+                    .description("Streamed tokens per second after the first token")
+                    .tags("model", key.model(), "bot.id", key.botId())
+                    .register(registry);
+            this.promptTokens = Counter.builder("coze.ai.tokens")
+                    .tags("model", key.model(), "bot.id", key.botId(), "type", "prompt")
+                    .register(registry);
+            this.completionTokens = Counter.builder("coze.ai.tokens")
+                    .tags("model", key.model(), "bot.id", key.botId(), "type", "completion")
+                    .register(registry);
+        }
+
+        void recordUsage(CozeAiApi.Usage usage) {
+            if (usage == null) {
+                return;
+            }
+            if (usage.promptTokens() != null) {
+                this.promptTokens.increment(usage.promptTokens());
+            }
+            if (usage.completionTokens() != null) {
+                this.completionTokens.increment(usage.completionTokens());
+            }
+        }
+
+        Timer timer(String name, String outcome, String finishReason) {
+            return Timer.builder(name)
+                    .tags("model", this.key.model(), "bot.id", this.key.botId(), "outcome", outcome,
+                            "finish.reason", (finishReason != null ? finishReason : UNKNOWN))
+                    .register(registry);
+        }
+
+        Timer embeddingTimer(Throwable error) {
+            return Timer.builder("coze.ai.embedding.calls")
+                    .tags("model", this.key.model(), "outcome", outcome(error))
+                    .register(registry);
+        }
+
+    }
+
+    private final class MicrometerBatchObservation implements BatchObservation {
+
+        private final long start;
+
+        MicrometerBatchObservation(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void onItemStart() {
+            batchActiveItems.incrementAndGet();
+        }
+
+        @Override
+        public void onItemSuccess() {
+            batchActiveItems.decrementAndGet();
+            batchSuccesses.increment();
+        }
+
+        @Override
+        public void onItemFailure(Throwable error) {
+            batchActiveItems.decrementAndGet();
+            Counter.builder("coze.ai.batch.items").tag("outcome", outcome(error)).register(registry).increment();
+        }
+
+        @Override
+        public void onItemRetry(Throwable error) {
+            batchRetries.increment();
+        }
+
+        @Override
+        public void complete() {
+            finish("success");
+        }
+
+        @Override
+        public void error(Throwable error) {
+            finish(outcome(error));
+        }
+
+        @Override
+        public void cancel() {
+            finish("cancelled");
+        }
+
+        private void finish(String outcome) {
+            Timer.builder("coze.ai.batch.duration")
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(System.nanoTime() - this.start, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+    private static final class ChatCallObservation implements CallObservation {
+
+        private final Meters meters;
+
+        private final long start;
+
+        ChatCallObservation(Meters meters, long start) {
+            this.meters = meters;
+            this.start = start;
+        }
+
+        @Override
+        public void success(String finishReason, CozeAiApi.Usage usage) {
+            this.meters.timer("coze.ai.chat.calls", outcome(null), finishReason)
+                    .record(System.nanoTime() - this.start, TimeUnit.NANOSECONDS);
+            this.meters.recordUsage(usage);
+        }
+
+        @Override
+        public void error(Throwable error) {
+            this.meters.timer("coze.ai.chat.calls", outcome(error), null)
+                    .record(System.nanoTime() - this.start, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+    private static final class EmbeddingObservation implements CallObservation {
+
+        private final Meters meters;
+
+        private final long start;
+
+        EmbeddingObservation(Meters meters, long start) {
+            this.meters = meters;
+            this.start = start;
+        }
+
+        @Override
+        public void success(String finishReason, CozeAiApi.Usage usage) {
+            record(null);
+            this.meters.recordUsage(usage);
+        }
+
+        @Override
+        public void error(Throwable error) {
+            record(error);
+        }
+
+        private void record(Throwable error) {
+            this.meters.embeddingTimer(error).record(System.nanoTime() - this.start, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+    private static final class ChatStreamObservation implements StreamObservation {
+
+        private final Meters meters;
+
+        private final long start;
+
+        private long firstToken;
+
+        private long lastToken;
+
+        private long tokens;
+
+        private String finishReason;
+
+        private CozeAiApi.Usage usage;
+
+        ChatStreamObservation(Meters meters, long start) {
+            this.meters = meters;
+            this.start = start;
+        }
+
+        @Override
+        public void onToken() {
+            long now = System.nanoTime();
+            if (this.tokens++ == 0) {
+                this.firstToken = now;
+                this.meters.timeToFirstToken.record(now - this.start, TimeUnit.NANOSECONDS);
+            }
+            else {
+                this.meters.interToken.record(now - this.lastToken, TimeUnit.NANOSECONDS);
+            }
+            this.lastToken = now;
+        }
+
+        @Override
+        public void onFinishReason(String finishReason) {
+            this.finishReason = finishReason;
+        }
+
+        @Override
+        public void onUsage(CozeAiApi.Usage usage) {
+            this.usage = usage;
+        }
+
+        @Override
+        public void complete() {
+            finish("success");
+        }
+
+        @Override
+        public void error(Throwable error) {
+            finish(outcome(error));
+        }
+
+        @Override
+        public void cancel() {
+            finish("cancelled");
+        }
+
+        private void finish(String outcome) {
+            long end = System.nanoTime();
+            this.meters.timer("coze.ai.chat.stream.duration", outcome, this.finishReason)
+                    .record(end - this.start, TimeUnit.NANOSECONDS);
+            long generated = (this.usage != null && this.usage.completionTokens() != null)
+                    ? this.usage.completionTokens() : this.tokens;
+            if (this.tokens > 1 && this.lastToken > this.firstToken) {
+                this.meters.tokensPerSecond.record(generated * 1e9 / (this.lastToken - this.firstToken));
+            }
+            this.meters.recordUsage(this.usage);
+        }
+
+    }
+
+}
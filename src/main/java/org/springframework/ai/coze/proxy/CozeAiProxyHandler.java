@@ -0,0 +1,193 @@
+package org.springframework.ai.coze.proxy;
+
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.api.CozeAiChatOptions;
+import org.springframework.ai.coze.limiter.CozeAiLimitExceededException;
+import org.springframework.ai.coze.metadata.CozeAiUsageAggregator;
+import org.springframework.ai.coze.metrics.CozeAiMetrics;
+import org.springframework.ai.coze.util.ApiUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * WebFlux handler relaying a Coze chat stream to the client as it arrives. The request
+ * body is a {@link CozeAiApi.ChatCompletionRequest}; the upstream SSE buffers are written
+ * to the response without being decoded or copied, see
+ * {@link CozeAiApi#chatCompletionStreamRaw(CozeAiApi.ChatCompletionRequest, Consumer)}.
+ * <p>
+ * The endpoint spends the API keys of the application, so the request body is not
+ * trusted: the model and bot id are those of the default options, another value is only
+ * accepted if it is allowed explicitly ({@link #setAllowedModels}, {@link #setAllowedBotIds})
+ * and otherwise rejected with 403. The user and conversation ids of the body are dropped
+ * unless a {@link CozeAiProxyIdentityResolver} supplies them. The route itself still has
+ * to be secured.
+ * <p>
+ * A failure before the first buffer is answered with the upstream status, a failure after
+ * it aborts the response.
+ */
+public class CozeAiProxyHandler implements HandlerFunction<ServerResponse> {
+
+    private static final CozeAiProxyIdentityResolver.Identity NO_IDENTITY = new CozeAiProxyIdentityResolver.Identity(null, null);
+
+    private final CozeAiApi cozeAiApi;
+
+    private final CozeAiChatOptions defaultOptions;
+
+    private CozeAiUsageAggregator usageAggregator;
+
+    private CozeAiMetrics metrics = CozeAiMetrics.NOOP;
+
+    private Set<String> allowedModels = Set.of();
+
+    private Set<String> allowedBotIds = Set.of();
+
+    private CozeAiProxyIdentityResolver identityResolver;
+
+    /**
+     * @param cozeAiApi the api used for the upstream calls.
+     * @param defaultOptions supplies the model and bot id a request does not set, may be
+     * {@code null}.
+     */
+    public CozeAiProxyHandler(CozeAiApi cozeAiApi, CozeAiChatOptions defaultOptions) {
+        Assert.notNull(cozeAiApi, "CozeAiApi must not be null");
+        this.cozeAiApi = cozeAiApi;
+        this.defaultOptions = defaultOptions;
+    }
+
+    /**
+     * Add the token usage of the relayed streams to the given aggregator, read from the
+     * last event only. {@code null} skips the usage inspection.
+     * @param usageAggregator the aggregator.
+     */
+    public void setUsageAggregator(CozeAiUsageAggregator usageAggregator) {
+        this.usageAggregator = usageAggregator;
+    }
+
+    /**
+     * Record duration and outcome of the relayed streams.
+     * @param metrics the metrics, {@code null} to record nothing.
+     */
+    public void setMetrics(CozeAiMetrics metrics) {
+        this.metrics = (metrics != null ? metrics : CozeAiMetrics.NOOP);
+    }
+
+    /**
+     * Models a request may ask for besides the one of the default options.
+     * @param allowedModels the models, {@code null} or empty to pin the default one.
+     */
+    public void setAllowedModels(Set<String> allowedModels) {
+        this.allowedModels = (allowedModels != null ? Set.copyOf(allowedModels) : Set.of());
+    }
+
+    /**
+     * Bots a request may ask for besides the one of the default options.
+     * @param allowedBotIds the bot ids, {@code null} or empty to pin the default one.
+     */
+    public void setAllowedBotIds(Set<String> allowedBotIds) {
+        this.allowedBotIds = (allowedBotIds != null ? Set.copyOf(allowedBotIds) : Set.of());
+    }
+
+    /**
+     * Supply the user and conversation ids of the relayed requests, {@code null} to send
+     * neither.
+     * @param identityResolver the resolver.
+     */
+    public void setIdentityResolver(CozeAiProxyIdentityResolver identityResolver) {
+        this.identityResolver = identityResolver;
+    }
+
+    @Override
+    public Mono<ServerResponse> handle(ServerRequest request) {
+        return request.bodyToMono(CozeAiApi.ChatCompletionRequest.class)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing request body")))
+                .flatMap(body -> resolveIdentity(request, body)
+                        .map(identity -> toStreamRequest(body, identity)))
+                .flatMap(upstreamRequest -> ServerResponse.ok()
+                        .contentType(MediaType.TEXT_EVENT_STREAM)
+                        .body(BodyInserters.fromDataBuffers(relay(upstreamRequest))));
+    }
+
+    private Mono<CozeAiProxyIdentityResolver.Identity> resolveIdentity(ServerRequest request,
+                                                                        CozeAiApi.ChatCompletionRequest body) {
+        if (this.identityResolver == null) {
+            return Mono.just(NO_IDENTITY);
+        }
+        return this.identityResolver.resolve(request, body).defaultIfEmpty(NO_IDENTITY);
+    }
+
+    private Flux<DataBuffer> relay(CozeAiApi.ChatCompletionRequest request) {
+        return Flux.defer(() -> {
+            CozeAiMetrics.StreamObservation observation = this.metrics.startChatStream(request.model(), request.botId());
+            Consumer<CozeAiApi.Usage> usageListener = usage -> {
+                observation.onUsage(usage);
+                if (this.usageAggregator != null) {
+                    this.usageAggregator.record(request.model(), request.user(), usage);
+                }
+            };
+            boolean inspectUsage = (this.usageAggregator != null || this.metrics != CozeAiMetrics.NOOP);
+            return this.cozeAiApi.chatCompletionStreamRaw(request, inspectUsage ? usageListener : null)
+                    .doOnError(observation::error)
+                    .doFinally(signal -> {
+                        if (signal == SignalType.ON_COMPLETE) {
+                            observation.complete();
+                        }
+                        else if (signal == SignalType.CANCEL) {
+                            observation.cancel();
+                        }
+                    });
+        }).onErrorMap(CozeAiProxyHandler::toResponseStatus);
+    }
+
+    private CozeAiApi.ChatCompletionRequest toStreamRequest(CozeAiApi.ChatCompletionRequest request,
+                                                            CozeAiProxyIdentityResolver.Identity identity) {
+        String model = pin("model", request.model(), this.defaultOptions != null ? this.defaultOptions.getModel() : null,
+                this.allowedModels);
+        String botId = pin("bot_id", request.botId(), this.defaultOptions != null ? this.defaultOptions.getBotId() : null,
+                this.allowedBotIds);
+        return new CozeAiApi.ChatCompletionRequest(request.requestId(), model, request.messages(), request.doSample(),
+                Boolean.TRUE, request.temperature(), request.topP(), request.maxTokens(), request.stop(),
+                request.tools(), request.toolChoice(), identity.user(), botId, identity.conversationId());
+    }
+
+    /**
+     * The configured value, or the requested one if it is allowed.
+     */
+    private static String pin(String name, String requested, String configured, Set<String> allowed) {
+        if (requested == null || requested.equals(configured)) {
+            return configured;
+        }
+        if (allowed.contains(requested)) {
+            return requested;
+        }
+        throw new ResponseStatusException(HttpStatus.FORBIDDEN, name + " '" + requested + "' is not allowed");
+    }
+
+    /**
+     * Hand the upstream status to the client while the response is not committed yet.
+     */
+    private static Throwable toResponseStatus(Throwable error) {
+        if (error instanceof ResponseStatusException) {
+            return error;
+        }
+        if (error instanceof CozeAiLimitExceededException) {
+            return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, error.getMessage(), error);
+        }
+        int status = ApiUtils.getStatusCode(error);
+        HttpStatus httpStatus = (status > 0 ? HttpStatus.resolve(status) : null);
+        return new ResponseStatusException(httpStatus != null ? httpStatus : HttpStatus.BAD_GATEWAY, error.getMessage(), error);
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.springframework.ai.coze.proxy;
+
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+/**
+ * Supplies the {@code user_id} and {@code conversation_id} of a relayed request, typically
+ * from the authenticated principal. Without a resolver the passthrough endpoint drops both
+ * values of the request body, a client must not pick the user or conversation it writes
+ * into.
+ */
+@FunctionalInterface
+public interface CozeAiProxyIdentityResolver {
+
+    /**
+     * @param request the incoming request.
+     * @param body the chat completion request sent by the client, its user and
+     * conversation ids are not trusted.
+     * @return the identity to send upstream, empty to send neither id.
+     */
+    Mono<Identity> resolve(ServerRequest request, CozeAiApi.ChatCompletionRequest body);
+
+    /**
+     * @param user the user id, may be {@code null}.
+     * @param conversationId the conversation id, may be {@code null}.
+     */
+    record Identity(String user, String conversationId) {
+    }
+
+}
@@ -0,0 +1,409 @@
+package org.springframework.ai.coze.replay;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.cache.ChatRequestKey;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Record/replay layer of {@link CozeAiApi}, for load tests and tests without network
+ * access or token costs.
+ * <p>
+ * In {@link Mode#RECORD} every successful exchange is passed through and appended to the
+ * {@link CozeAiReplayStore}: the status, headers, body and latency of blocking calls, and
+ * every chunk of a stream with its offset from the start of the stream. In
+ * {@link Mode#REPLAY} the exchanges are answered from the store only, the transport, key
+ * pool and limiter are never touched; a request that was not recorded fails with a
+ * {@link CozeAiReplayMissException}.
+ * <p>
+ * Requests are matched by their canonical key, see {@link ChatRequestKey}: the per-call
+ * request id and the stream flag do not take part. Recorded latencies are replayed divided
+ * by the {@link #setSpeed(double) speed}.
+ */
+public class CozeAiRecordReplay {
+
+    private static final Logger logger = LoggerFactory.getLogger(CozeAiRecordReplay.class);
+
+    private static final byte CHAT_COMPLETION = 1;
+
+    private static final byte CHAT_COMPLETION_STREAM = 2;
+
+    private static final byte EMBEDDINGS = 3;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final ObjectReader CHUNK_READER = OBJECT_MAPPER.readerFor(CozeAiApi.ChatCompletionChunk.class);
+
+    private static final ObjectWriter CHUNK_WRITER = OBJECT_MAPPER.writerFor(CozeAiApi.ChatCompletionChunk.class);
+
+    private static final JavaType CHAT_COMPLETION_TYPE = OBJECT_MAPPER.constructType(CozeAiApi.ChatCompletion.class);
+
+    private static final JavaType EMBEDDINGS_TYPE = OBJECT_MAPPER.getTypeFactory()
+            .constructParametricType(CozeAiApi.EmbeddingList.class, CozeAiApi.Embedding.class);
+
+    private static final ObjectWriter CANONICAL_WRITER = JsonMapper.builder()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .build()
+            .writer();
+
+    /**
+     * Whether the exchanges are captured or served.
+     */
+    public enum Mode {
+
+        /**
+         * Pass the exchanges through and append them to the store.
+         */
+        RECORD,
+
+        /**
+         * Serve the exchanges from the store.
+         */
+        REPLAY
+
+    }
+
+    private final CozeAiReplayStore store;
+
+    private final Mode mode;
+
+    private volatile double speed = 1.0;
+
+    private final LongAdder recordedCount = new LongAdder();
+
+    private final LongAdder replayedCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * @param store the store the exchanges are appended to or served from.
+     * @param mode whether to record or to replay.
+     */
+    public CozeAiRecordReplay(CozeAiReplayStore store, Mode mode) {
+        Assert.notNull(store, "store must not be null");
+        Assert.notNull(mode, "mode must not be null");
+        this.store = store;
+        this.mode = mode;
+    }
+
+    /**
+     * Replay speed relative to the recording: {@code 1} keeps the recorded latencies,
+     * {@code 10} replays ten times faster, {@code 0} without any delay.
+     * @param speed the speed factor.
+     */
+    public void setSpeed(double speed) {
+        Assert.isTrue(speed >= 0, "speed must not be negative");
+        this.speed = speed;
+    }
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public CozeAiReplayStore getStore() {
+        return this.store;
+    }
+
+    /**
+     * @return the number of exchanges appended to the store.
+     */
+    public long getRecordedCount() {
+        return this.recordedCount.sum();
+    }
+
+    /**
+     * @return the number of exchanges served from the store.
+     */
+    public long getReplayedCount() {
+        return this.replayedCount.sum();
+    }
+
+    /**
+     * @return the number of replayed requests that were not recorded.
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * Record or replay a blocking chat completion.
+     * @param request the request.
+     * @param exchange performs the actual exchange.
+     * @return the response.
+     */
+    public ResponseEntity<CozeAiApi.ChatCompletion> chatCompletion(CozeAiApi.ChatCompletionRequest request,
+                                                                   Supplier<ResponseEntity<CozeAiApi.ChatCompletion>> exchange) {
+        return exchange(CHAT_COMPLETION, ChatRequestKey.of(request), CHAT_COMPLETION_TYPE, exchange);
+    }
+
+    /**
+     * Record or replay a non-blocking chat completion, shares its recordings with
+     * {@link #chatCompletion}.
+     * @param request the request.
+     * @param exchange performs the actual exchange.
+     * @return the response.
+     */
+    public Mono<ResponseEntity<CozeAiApi.ChatCompletion>> chatCompletionReactive(CozeAiApi.ChatCompletionRequest request,
+                                                                                 Supplier<Mono<ResponseEntity<CozeAiApi.ChatCompletion>>> exchange) {
+        return Mono.defer(() -> {
+            ChatRequestKey key = ChatRequestKey.of(request);
+            if (this.mode == Mode.REPLAY) {
+                RecordedEntity recorded = findEntity(CHAT_COMPLETION, key);
+                long delay = scaled(recorded.latencyNanos());
+                Mono<ResponseEntity<CozeAiApi.ChatCompletion>> response = Mono
+                        .fromCallable(() -> toResponseEntity(recorded, CHAT_COMPLETION_TYPE));
+                return (delay > 0 ? Mono.delay(Duration.ofNanos(delay)).then(response) : response);
+            }
+            long start = System.nanoTime();
+            return exchange.get().doOnNext(response -> recordEntity(CHAT_COMPLETION, key, response, System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Record or replay a chat completion stream.
+     * @param request the request.
+     * @param exchange performs the actual exchange.
+     * @return the chunks, replayed at their recorded offsets.
+     */
+    public Flux<CozeAiApi.ChatCompletionChunk> chatCompletionStream(CozeAiApi.ChatCompletionRequest request,
+                                                                    Supplier<Flux<CozeAiApi.ChatCompletionChunk>> exchange) {
+        return Flux.defer(() -> {
+            ChatRequestKey key = ChatRequestKey.of(request);
+            if (this.mode == Mode.REPLAY) {
+                return replayStream(key);
+            }
+            long start = System.nanoTime();
+            List<RecordedChunk> chunks = new ArrayList<>();
+            return exchange.get()
+                    .doOnNext(chunk -> chunks.add(new RecordedChunk(System.nanoTime() - start, writeChunk(chunk))))
+                    .doOnComplete(() -> recordStream(key, chunks));
+        });
+    }
+
+    /**
+     * Record or replay an embedding call.
+     * @param request the request.
+     * @param exchange performs the actual exchange.
+     * @return the response.
+     */
+    public ResponseEntity<CozeAiApi.EmbeddingList<CozeAiApi.Embedding>> embeddings(CozeAiApi.EmbeddingRequest request,
+                                                                                   Supplier<ResponseEntity<CozeAiApi.EmbeddingList<CozeAiApi.Embedding>>> exchange) {
+        return exchange(EMBEDDINGS, canonicalKey(request), EMBEDDINGS_TYPE, exchange);
+    }
+
+    private <T> ResponseEntity<T> exchange(byte kind, ChatRequestKey key, JavaType responseType, Supplier<ResponseEntity<T>> exchange) {
+        if (this.mode == Mode.REPLAY) {
+            RecordedEntity recorded = findEntity(kind, key);
+            sleep(scaled(recorded.latencyNanos()));
+            return toResponseEntity(recorded, responseType);
+        }
+        long start = System.nanoTime();
+        ResponseEntity<T> response = exchange.get();
+        recordEntity(kind, key, response, System.nanoTime() - start);
+        return response;
+    }
+
+    private Flux<CozeAiApi.ChatCompletionChunk> replayStream(ChatRequestKey key) {
+        byte[] payload = find(CHAT_COMPLETION_STREAM, key);
+        List<RecordedChunk> chunks = readStream(payload);
+        long start = System.nanoTime();
+        return Flux.fromIterable(chunks).concatMap(recorded -> {
+            long due = scaled(recorded.offsetNanos()) - (System.nanoTime() - start);
+            Mono<CozeAiApi.ChatCompletionChunk> chunk = Mono.fromCallable(() -> CHUNK_READER.readValue(recorded.json()));
+            return (due > 0 ? Mono.delay(Duration.ofNanos(due)).then(chunk) : chunk);
+        });
+    }
+
+    private RecordedEntity findEntity(byte kind, ChatRequestKey key) {
+        return readEntity(find(kind, key));
+    }
+
+    private byte[] find(byte kind, ChatRequestKey key) {
+        byte[] payload = this.store.find(kind, key.mostSignificantBits(), key.leastSignificantBits());
+        if (payload == null) {
+            this.missCount.increment();
+            throw new CozeAiReplayMissException("No recorded exchange for request " + key);
+        }
+        this.replayedCount.increment();
+        return payload;
+    }
+
+    private void recordEntity(byte kind, ChatRequestKey key, ResponseEntity<?> response, long latencyNanos) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(latencyNanos);
+            out.writeInt(response.getStatusCode().value());
+            HttpHeaders headers = response.getHeaders();
+            out.writeInt(headers.size());
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeInt(header.getValue().size());
+                for (String value : header.getValue()) {
+                    out.writeUTF(value);
+                }
+            }
+            byte[] body = (response.getBody() != null ? OBJECT_MAPPER.writeValueAsBytes(response.getBody()) : new byte[0]);
+            out.writeInt(body.length);
+            out.write(body);
+            append(kind, key, bytes.toByteArray());
+        }
+        catch (IOException | RuntimeException ex) {
+            logger.warn("Failed to record exchange {}", key, ex);
+        }
+    }
+
+    private void recordStream(ChatRequestKey key, List<RecordedChunk> chunks) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(chunks.size() * 256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(chunks.size());
+            for (RecordedChunk chunk : chunks) {
+                out.writeLong(chunk.offsetNanos());
+                out.writeInt(chunk.json().length);
+                out.write(chunk.json());
+            }
+            append(CHAT_COMPLETION_STREAM, key, bytes.toByteArray());
+        }
+        catch (IOException | RuntimeException ex) {
+            logger.warn("Failed to record stream {}", key, ex);
+        }
+    }
+
+    private void append(byte kind, ChatRequestKey key, byte[] payload) {
+        this.store.append(kind, key.mostSignificantBits(), key.leastSignificantBits(), payload);
+        this.recordedCount.increment();
+    }
+
+    private static RecordedEntity readEntity(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long latencyNanos = in.readLong();
+            int status = in.readInt();
+            HttpHeaders headers = new HttpHeaders();
+            int headerCount = in.readInt();
+            for (int i = 0; i < headerCount; i++) {
+                String name = in.readUTF();
+                int valueCount = in.readInt();
+                for (int j = 0; j < valueCount; j++) {
+                    headers.add(name, in.readUTF());
+                }
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new RecordedEntity(latencyNanos, status, headers, body);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read recorded exchange", ex);
+        }
+    }
+
+    private static List<RecordedChunk> readStream(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            List<RecordedChunk> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long offsetNanos = in.readLong();
+                byte[] json = new byte[in.readInt()];
+                in.readFully(json);
+                chunks.add(new RecordedChunk(offsetNanos, json));
+            }
+            return chunks;
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read recorded stream", ex);
+        }
+    }
+
+    private static <T> ResponseEntity<T> toResponseEntity(RecordedEntity recorded, JavaType responseType) {
+        try {
+            T body = (recorded.body().length > 0 ? OBJECT_MAPPER.readValue(recorded.body(), responseType) : null);
+            return new ResponseEntity<>(body, recorded.headers(), HttpStatusCode.valueOf(recorded.status()));
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read recorded response body", ex);
+        }
+    }
+
+    private static byte[] writeChunk(CozeAiApi.ChatCompletionChunk chunk) {
+        try {
+            return CHUNK_WRITER.writeValueAsBytes(chunk);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Failed to record stream chunk", ex);
+        }
+    }
+
+    /**
+     * Same digest as {@link ChatRequestKey} for requests other than chat completions.
+     */
+    private static ChatRequestKey canonicalKey(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(CANONICAL_WRITER.writeValueAsBytes(request)));
+            return new ChatRequestKey(hash.getLong(), hash.getLong());
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Failed to hash request", ex);
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private long scaled(long nanos) {
+        double speed = this.speed;
+        return (speed > 0 ? (long) (nanos / speed) : 0);
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record RecordedEntity(long latencyNanos, int status, HttpHeaders headers, byte[] body) {
+    }
+
+    private record RecordedChunk(long offsetNanos, byte[] json) {
+    }
+
+}
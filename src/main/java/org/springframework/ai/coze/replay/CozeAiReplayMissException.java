@@ -0,0 +1,15 @@
+package org.springframework.ai.coze.replay;
+
+import org.springframework.ai.retry.NonTransientAiException;
+
+/**
+ * Thrown in replay mode for a request that has no recorded exchange. Not transient: the
+ * store will not learn the answer by retrying.
+ */
+public class CozeAiReplayMissException extends NonTransientAiException {
+
+    public CozeAiReplayMissException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,391 @@
+package org.springframework.ai.coze.replay;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only store of recorded exchanges in memory-mapped segment files. Each entry is
+ * addressed by a kind and a 128-bit request key; the latest entry of a key wins.
+ * <p>
+ * Entries live off-heap in the mapped segments, the only heap structure is an
+ * open-addressing index of two {@code long} arrays, so millions of entries cost a few
+ * dozen megabytes and no per-entry objects. The index is rebuilt by scanning the segments
+ * when the store is opened; an entry only counts once its length is written, after its
+ * checksum and payload, so a torn tail left by a crash is ignored.
+ * <p>
+ * Entry layout: {@code int length, int crc32c, byte kind, long keyHigh, long keyLow,
+ * byte[length] payload}.
+ */
+public class CozeAiReplayStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CozeAiReplayStore.class);
+
+    /**
+     * Default size of a segment file.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8 + 8;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final LongIndex index = new LongIndex(1024);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private boolean closed;
+
+    /**
+     * Open the store in the given directory, creating it if needed.
+     * @param directory the directory of the segment files.
+     */
+    public CozeAiReplayStore(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open the store in the given directory, creating it if needed.
+     * @param directory the directory of the segment files.
+     * @param segmentSize size of a new segment file, an entry larger than this gets a
+     * segment of its own.
+     */
+    public CozeAiReplayStore(Path directory, int segmentSize) {
+        Assert.notNull(directory, "directory must not be null");
+        Assert.isTrue(segmentSize > HEADER_SIZE, "segmentSize must be larger than " + HEADER_SIZE);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            for (Path path : listSegments(directory)) {
+                Segment segment = Segment.open(path, this.segments.size());
+                this.segments.add(segment);
+                load(segment);
+            }
+        }
+        catch (IOException ex) {
+            close();
+            throw new UncheckedIOException("Failed to open replay store in " + directory, ex);
+        }
+        logger.debug("Opened replay store {} with {} entries in {} segments", directory, this.index.size(),
+                this.segments.size());
+    }
+
+    /**
+     * Append an entry.
+     * @param kind the kind of exchange.
+     * @param keyHigh first 64 bits of the request key.
+     * @param keyLow last 64 bits of the request key.
+     * @param payload the recorded exchange.
+     */
+    public void append(byte kind, long keyHigh, long keyLow, byte[] payload) {
+        Assert.notNull(payload, "payload must not be null");
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        int entrySize = HEADER_SIZE + payload.length;
+        this.lock.writeLock().lock();
+        try {
+            Assert.state(!this.closed, "Replay store is closed");
+            Segment segment = segmentFor(entrySize);
+            MappedByteBuffer buffer = segment.buffer;
+            int position = segment.writePosition;
+            buffer.putInt(position + 4, (int) crc.getValue());
+            buffer.put(position + 8, kind);
+            buffer.putLong(position + 9, keyHigh);
+            buffer.putLong(position + 17, keyLow);
+            buffer.put(position + HEADER_SIZE, payload);
+            // The length commits the entry, a reader scanning the segment stops at 0.
+            buffer.putInt(position, payload.length);
+            segment.writePosition = position + entrySize;
+            this.index.put(indexHash(kind, keyHigh, keyLow), location(segment.number, position));
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the latest entry of the given key.
+     * @param kind the kind of exchange.
+     * @param keyHigh first 64 bits of the request key.
+     * @param keyLow last 64 bits of the request key.
+     * @return a copy of the payload, {@code null} if there is none.
+     */
+    public byte[] find(byte kind, long keyHigh, long keyLow) {
+        this.lock.readLock().lock();
+        try {
+            Assert.state(!this.closed, "Replay store is closed");
+            long location = this.index.get(indexHash(kind, keyHigh, keyLow));
+            if (location < 0) {
+                return null;
+            }
+            MappedByteBuffer buffer = this.segments.get((int) (location >>> 32)).buffer;
+            int position = (int) location;
+            if (buffer.get(position + 8) != kind || buffer.getLong(position + 9) != keyHigh
+                    || buffer.getLong(position + 17) != keyLow) {
+                // Two keys sharing the 64-bit index hash, treat as not recorded.
+                return null;
+            }
+            byte[] payload = new byte[buffer.getInt(position)];
+            buffer.get(position + HEADER_SIZE, payload);
+            return payload;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct keys.
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.size();
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of segment files.
+     */
+    public int getSegmentCount() {
+        this.lock.readLock().lock();
+        try {
+            return this.segments.size();
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Flush the segments to disk and release them.
+     */
+    @Override
+    public void close() {
+        this.lock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            for (Segment segment : this.segments) {
+                segment.close();
+            }
+            this.segments.clear();
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private Segment segmentFor(int entrySize) {
+        Segment last = (this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1));
+        // Keep 4 bytes after the entry for the 0 length that ends the scan.
+        if (last != null && last.writePosition + entrySize + 4 <= last.buffer.capacity()) {
+            return last;
+        }
+        int number = this.segments.size();
+        Path path = this.directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        try {
+            Segment segment = Segment.create(path, number, Math.max(this.segmentSize, entrySize + 4));
+            this.segments.add(segment);
+            return segment;
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Failed to create replay segment " + path, ex);
+        }
+    }
+
+    private void load(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        CRC32C crc = new CRC32C();
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(position + HEADER_SIZE, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                logger.warn("Ignoring the corrupt tail of replay segment {} from offset {}", segment.path, position);
+                break;
+            }
+            byte kind = buffer.get(position + 8);
+            this.index.put(indexHash(kind, buffer.getLong(position + 9), buffer.getLong(position + 17)),
+                    location(segment.number, position));
+            position += HEADER_SIZE + length;
+        }
+        segment.writePosition = position;
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static long location(int segment, int position) {
+        return ((long) segment << 32) | (position & 0xFFFFFFFFL);
+    }
+
+    private static long indexHash(byte kind, long keyHigh, long keyLow) {
+        // The key is already a digest, mixing in the kind is enough.
+        long hash = keyHigh ^ Long.rotateLeft(keyLow, 17) ^ (kind * 0x9E3779B97F4A7C15L);
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+
+        private final int number;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private int writePosition;
+
+        private Segment(Path path, int number, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.number = number;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, int number) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, number, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+
+        static Segment create(Path path, int number, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segment(path, number, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        void close() {
+            try {
+                this.buffer.force();
+                this.channel.close();
+            }
+            catch (IOException | UncheckedIOException ex) {
+                logger.warn("Failed to close replay segment {}", this.path, ex);
+            }
+        }
+
+    }
+
+    /**
+     * Open-addressing hash table from a 64-bit hash to a 64-bit location, with linear
+     * probing. {@code 0} marks a free slot, a hash of {@code 0} is stored as {@code 1}.
+     */
+    static final class LongIndex {
+
+        private long[] keys;
+
+        private long[] values;
+
+        private int size;
+
+        LongIndex(int initialCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(initialCapacity, 16) - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        long get(long hash) {
+            long key = (hash != 0 ? hash : 1);
+            int mask = this.keys.length - 1;
+            for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+                long candidate = this.keys[slot];
+                if (candidate == key) {
+                    return this.values[slot];
+                }
+                if (candidate == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long hash, long value) {
+            if ((this.size + 1) * 2 > this.keys.length) {
+                resize(this.keys.length * 2);
+            }
+            if (insert(this.keys, this.values, hash != 0 ? hash : 1, value)) {
+                this.size++;
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] newKeys = new long[capacity];
+            long[] newValues = new long[capacity];
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i] != 0) {
+                    insert(newKeys, newValues, this.keys[i], this.values[i]);
+                }
+            }
+            this.keys = newKeys;
+            this.values = newValues;
+        }
+
+        private static boolean insert(long[] keys, long[] values, long key, long value) {
+            int mask = keys.length - 1;
+            for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return false;
+                }
+                if (keys[slot] == 0) {
+                    keys[slot] = key;
+                    values[slot] = value;
+                    return true;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,196 @@
+package org.springframework.ai.coze.retry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.api.CozeAiRequestMerger;
+import org.springframework.ai.coze.util.ApiUtils;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Retries streamed chat completions on the subscription itself, with jittered
+ * exponential backoff. Failures before the first chunk are always retried when they are
+ * transient; once chunks have been emitted the {@link ResumeStrategy} decides.
+ */
+public class CozeAiStreamRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(CozeAiStreamRetry.class);
+
+    /**
+     * What to do when a stream fails after chunks have already been emitted.
+     */
+    public enum ResumeStrategy {
+
+        /**
+         * Propagate the failure.
+         */
+        FAIL,
+
+        /**
+         * Send the request again. Subscribers receive the answer from the start a second
+         * time.
+         */
+        RESTART,
+
+        /**
+         * Send the request again with the partial answer appended as an assistant message
+         * and ask the model to continue it. Subscribers only receive the continuation.
+         */
+        CONTINUE
+
+    }
+
+    public static final String DEFAULT_CONTINUE_PROMPT = "Continue exactly where your previous answer stopped. Do not repeat any text that was already written.";
+
+    private final int maxAttempts;
+
+    private final Duration minBackoff;
+
+    private final Duration maxBackoff;
+
+    private final double jitter;
+
+    private final ResumeStrategy resumeStrategy;
+
+    private final String continuePrompt;
+
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * @param maxAttempts total number of attempts, including the first one.
+     * @param minBackoff backoff before the first retry.
+     * @param maxBackoff upper bound of the backoff.
+     * @param jitter jitter factor in [0, 1] applied to each backoff.
+     * @param resumeStrategy what to do when a stream fails after chunks were emitted.
+     * @param continuePrompt user message asking the model to continue, used by
+     * {@link ResumeStrategy#CONTINUE}.
+     */
+    public CozeAiStreamRetry(int maxAttempts, Duration minBackoff, Duration maxBackoff, double jitter,
+                             ResumeStrategy resumeStrategy, String continuePrompt) {
+        Assert.isTrue(maxAttempts >= 1, "maxAttempts must be at least 1");
+        Assert.notNull(minBackoff, "minBackoff must not be null");
+        Assert.notNull(maxBackoff, "maxBackoff must not be null");
+        Assert.isTrue(jitter >= 0 && jitter <= 1, "jitter must be in [0, 1]");
+        Assert.notNull(resumeStrategy, "resumeStrategy must not be null");
+        this.maxAttempts = maxAttempts;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.resumeStrategy = resumeStrategy;
+        this.continuePrompt = (continuePrompt != null ? continuePrompt : DEFAULT_CONTINUE_PROMPT);
+    }
+
+    /**
+     * Stream the request, retrying according to this policy.
+     * @param request the streaming request.
+     * @param call opens the upstream stream for a request, e.g.
+     * {@link CozeAiApi#chatCompletionStream}.
+     * @return the resilient stream.
+     */
+    public Flux<CozeAiApi.ChatCompletionChunk> execute(CozeAiApi.ChatCompletionRequest request,
+                                                      Function<CozeAiApi.ChatCompletionRequest, Flux<CozeAiApi.ChatCompletionChunk>> call) {
+        if (this.maxAttempts == 1) {
+            return call.apply(request);
+        }
+        return Flux.defer(() -> {
+            Attempts attempts = new Attempts(request);
+            return Flux.defer(() -> call.apply(attempts.nextRequest()))
+                    .doOnNext(attempts::record)
+                    .retryWhen(Retry.backoff(this.maxAttempts - 1, this.minBackoff)
+                            .maxBackoff(this.maxBackoff)
+                            .jitter(this.jitter)
+                            .filter(error -> shouldRetry(error, attempts))
+                            .doBeforeRetry(signal -> {
+                                this.retries.increment();
+                                logger.debug("Retrying chat stream (attempt {}) after: {}", signal.totalRetries() + 2,
+                                        signal.failure().toString());
+                            })
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        });
+    }
+
+    /**
+     * @return number of retries performed.
+     */
+    public long getRetryCount() {
+        return this.retries.sum();
+    }
+
+    public ResumeStrategy getResumeStrategy() {
+        return this.resumeStrategy;
+    }
+
+    private boolean shouldRetry(Throwable error, Attempts attempts) {
+        if (!isTransient(error)) {
+            return false;
+        }
+        return !attempts.emitted || this.resumeStrategy != ResumeStrategy.FAIL;
+    }
+
+    /**
+     * @param error a stream failure.
+     * @return whether the failure is worth another attempt.
+     */
+    public static boolean isTransient(Throwable error) {
+        int status = ApiUtils.getStatusCode(error);
+        if (status > 0) {
+            return status == 408 || status == 429 || status >= 500;
+        }
+        return (error instanceof TransientAiException || error instanceof WebClientRequestException
+                || error instanceof IOException || error instanceof TimeoutException
+                || error.getCause() instanceof IOException);
+    }
+
+    /**
+     * State of one subscription across its attempts.
+     */
+    private final class Attempts {
+
+        private final CozeAiApi.ChatCompletionRequest request;
+
+        private final StringBuilder partial = new StringBuilder();
+
+        private boolean emitted;
+
+        Attempts(CozeAiApi.ChatCompletionRequest request) {
+            this.request = request;
+        }
+
+        void record(CozeAiApi.ChatCompletionChunk chunk) {
+            this.emitted = true;
+            if (resumeStrategy == ResumeStrategy.CONTINUE && !CollectionUtils.isEmpty(chunk.choices())) {
+                CozeAiApi.ChatCompletionMessage delta = chunk.choices().get(0).delta();
+                if (delta != null && delta.content() != null) {
+                    this.partial.append(delta.content());
+                }
+            }
+        }
+
+        CozeAiApi.ChatCompletionRequest nextRequest() {
+            if (!this.emitted || this.partial.isEmpty() || resumeStrategy != ResumeStrategy.CONTINUE) {
+                return this.request;
+            }
+            List<CozeAiApi.ChatCompletionMessage> messages = new ArrayList<>(this.request.messages().size() + 2);
+            messages.addAll(this.request.messages());
+            messages.add(new CozeAiApi.ChatCompletionMessage(this.partial.toString(),
+                    CozeAiApi.ChatCompletionMessage.Role.ASSISTANT));
+            messages.add(new CozeAiApi.ChatCompletionMessage(continuePrompt, CozeAiApi.ChatCompletionMessage.Role.USER));
+            return CozeAiRequestMerger.withMessages(this.request, null, messages, true);
+        }
+
+    }
+
+}
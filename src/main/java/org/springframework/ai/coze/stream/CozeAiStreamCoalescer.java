@@ -0,0 +1,232 @@
+package org.springframework.ai.coze.stream;
+
+import org.reactivestreams.Subscription;
+import org.springframework.ai.coze.api.CozeAiApi;
+import org.springframework.ai.coze.api.CozeAiStreamFunctionCallingHelper;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups consecutive content chunks of a stream into one chunk, so a relay writes and
+ * flushes once per group instead of once per token. A group is emitted when its oldest
+ * chunk is {@code maxLatency} old, when it holds {@code maxCharacters} characters or
+ * {@code maxChunks} chunks, and whenever the stream ends.
+ * <p>
+ * Tool call chunks and chunks without choices (usage) are never merged: the pending group
+ * is emitted first and they pass through alone. A chunk with a finish reason closes its
+ * group, so the finish reason is always on the last chunk of the answer.
+ * <p>
+ * Upstream demand follows downstream demand in batches of {@code prefetch}, like
+ * {@link Flux#limitRate(int)}.
+ */
+public class CozeAiStreamCoalescer {
+
+    private final CozeAiStreamFunctionCallingHelper chunkMerger = new CozeAiStreamFunctionCallingHelper();
+
+    private final Duration maxLatency;
+
+    private final int maxCharacters;
+
+    private final int maxChunks;
+
+    private final int prefetch;
+
+    private final Scheduler scheduler;
+
+    /**
+     * @param maxLatency how long the first chunk of a group may wait.
+     * @param maxCharacters emit a group once it holds this many characters.
+     * @param maxChunks emit a group once it holds this many chunks.
+     * @param prefetch chunks requested from the upstream at a time.
+     */
+    public CozeAiStreamCoalescer(Duration maxLatency, int maxCharacters, int maxChunks, int prefetch) {
+        this(maxLatency, maxCharacters, maxChunks, prefetch, Schedulers.parallel());
+    }
+
+    /**
+     * @param maxLatency how long the first chunk of a group may wait.
+     * @param maxCharacters emit a group once it holds this many characters.
+     * @param maxChunks emit a group once it holds this many chunks.
+     * @param prefetch chunks requested from the upstream at a time.
+     * @param scheduler runs the latency timers.
+     */
+    public CozeAiStreamCoalescer(Duration maxLatency, int maxCharacters, int maxChunks, int prefetch,
+                                 Scheduler scheduler) {
+        Assert.isTrue(maxLatency != null && !maxLatency.isNegative() && !maxLatency.isZero(),
+                "maxLatency must be positive");
+        Assert.isTrue(maxCharacters > 0, "maxCharacters must be positive");
+        Assert.isTrue(maxChunks > 0, "maxChunks must be positive");
+        Assert.isTrue(prefetch > 0, "prefetch must be positive");
+        Assert.notNull(scheduler, "scheduler must not be null");
+        this.maxLatency = maxLatency;
+        this.maxCharacters = maxCharacters;
+        this.maxChunks = maxChunks;
+        this.prefetch = prefetch;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param chunks the decoded chunks, tool call windows already merged.
+     * @return the coalesced chunks.
+     */
+    public Flux<CozeAiApi.ChatCompletionChunk> coalesce(Flux<CozeAiApi.ChatCompletionChunk> chunks) {
+        return Flux.create(sink -> {
+            Coalescing coalescing = new Coalescing(sink);
+            sink.onRequest(coalescing::onDownstreamRequest);
+            sink.onDispose(coalescing::dispose);
+            chunks.subscribe(coalescing);
+        });
+    }
+
+    private static boolean isBoundary(CozeAiApi.ChatCompletionChunk chunk) {
+        if (CollectionUtils.isEmpty(chunk.choices())) {
+            return true;
+        }
+        var delta = chunk.choices().get(0).delta();
+        return (delta != null && !CollectionUtils.isEmpty(delta.toolCalls()));
+    }
+
+    private static int length(CozeAiApi.ChatCompletionChunk chunk) {
+        var delta = chunk.choices().get(0).delta();
+        return (delta != null && delta.content() != null ? delta.content().length() : 0);
+    }
+
+    /**
+     * One subscription. All state is guarded by {@code this}: upstream signals, downstream
+     * requests and timers may arrive on different threads.
+     */
+    private final class Coalescing extends BaseSubscriber<CozeAiApi.ChatCompletionChunk> {
+
+        private final FluxSink<CozeAiApi.ChatCompletionChunk> sink;
+
+        private CozeAiStreamFunctionCallingHelper.ChunkAccumulator group;
+
+        private String groupId;
+
+        private int groupChunks;
+
+        private int groupCharacters;
+
+        private Disposable timer;
+
+        /**
+         * Requested from the upstream and not received yet.
+         */
+        private long outstanding;
+
+        Coalescing(FluxSink<CozeAiApi.ChatCompletionChunk> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            synchronized (this) {
+                if (this.sink.requestedFromDownstream() > 0) {
+                    requestMore();
+                }
+            }
+        }
+
+        synchronized void onDownstreamRequest(long n) {
+            if (this.outstanding == 0 && upstream() != null) {
+                requestMore();
+            }
+        }
+
+        @Override
+        protected synchronized void hookOnNext(CozeAiApi.ChatCompletionChunk chunk) {
+            this.outstanding--;
+            if (isBoundary(chunk)) {
+                flush();
+                this.sink.next(chunk);
+            }
+            else {
+                if (this.group != null && !Objects.equals(this.groupId, chunk.id())) {
+                    flush();
+                }
+                append(chunk);
+                if (chunk.choices().get(0).finishReason() != null || this.groupChunks >= maxChunks
+                        || this.groupCharacters >= maxCharacters) {
+                    flush();
+                }
+            }
+            // Keep pulling while someone downstream waits, a group may need several chunks.
+            if (this.outstanding == 0 && (this.sink.requestedFromDownstream() > 0 || this.group != null)) {
+                requestMore();
+            }
+        }
+
+        @Override
+        protected synchronized void hookOnComplete() {
+            flush();
+            this.sink.complete();
+        }
+
+        @Override
+        protected synchronized void hookOnError(Throwable throwable) {
+            flush();
+            this.sink.error(throwable);
+        }
+
+        @Override
+        protected synchronized void hookFinally(SignalType type) {
+            cancelTimer();
+        }
+
+        private void requestMore() {
+            this.outstanding += prefetch;
+            request(prefetch);
+        }
+
+        private void append(CozeAiApi.ChatCompletionChunk chunk) {
+            if (this.group == null) {
+                this.group = chunkMerger.accumulator();
+                this.groupId = chunk.id();
+                this.timer = scheduler.schedule(this::onTimeout, maxLatency.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            this.group.append(chunk);
+            this.groupChunks++;
+            this.groupCharacters += length(chunk);
+        }
+
+        private synchronized void onTimeout() {
+            this.timer = null;
+            flush();
+        }
+
+        private void flush() {
+            if (this.group == null) {
+                return;
+            }
+            cancelTimer();
+            CozeAiApi.ChatCompletionChunk merged = this.group.toChunk();
+            this.group = null;
+            this.groupId = null;
+            this.groupChunks = 0;
+            this.groupCharacters = 0;
+            if (merged != null) {
+                this.sink.next(merged);
+            }
+        }
+
+        private void cancelTimer() {
+            if (this.timer != null) {
+                this.timer.dispose();
+                this.timer = null;
+            }
+        }
+
+    }
+
+}
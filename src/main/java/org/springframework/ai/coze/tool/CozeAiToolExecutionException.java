@@ -0,0 +1,16 @@
+package org.springframework.ai.coze.tool;
+
+/**
+ * Thrown when a tool call times out or is interrupted.
+ */
+public class CozeAiToolExecutionException extends RuntimeException {
+
+    public CozeAiToolExecutionException(String message) {
+        super(message);
+    }
+
+    public CozeAiToolExecutionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,128 @@
+package org.springframework.ai.coze.tool;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the tool calls of one model turn concurrently. Results are returned in the order
+ * of the calls, so the TOOL messages end up in the conversation in a deterministic order
+ * no matter which tool finishes first.
+ */
+public class CozeAiToolExecutor {
+
+    private final ExecutorService executor;
+
+    private final Duration defaultTimeout;
+
+    private final Map<String, Duration> timeouts;
+
+    /**
+     * @param executor runs the tool calls.
+     * @param defaultTimeout timeout of a single tool call, {@code null} for none.
+     * @param timeouts timeouts by function name, overriding the default.
+     */
+    public CozeAiToolExecutor(ExecutorService executor, Duration defaultTimeout, Map<String, Duration> timeouts) {
+        Assert.notNull(executor, "executor must not be null");
+        this.executor = executor;
+        this.defaultTimeout = defaultTimeout;
+        this.timeouts = (timeouts != null ? Map.copyOf(timeouts) : Map.of());
+    }
+
+    /**
+     * Create the default executor: a virtual thread per task when running on Java 21 or
+     * later, otherwise a pool of at most {@code maxThreads} daemon threads.
+     * @param maxThreads size of the fallback pool.
+     * @return the executor.
+     */
+    public static ExecutorService createDefaultExecutor(int maxThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException ex) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("coze-tool-");
+            threadFactory.setDaemon(true);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Run all calls and wait for them.
+     * @param invocations the tool calls of one turn.
+     * @return the responses, in the order of the calls.
+     */
+    public List<String> invokeAll(List<CozeAiToolInvocation> invocations) {
+        if (invocations.size() == 1 && getTimeout(invocations.get(0).name()) == null) {
+            // Nothing to overlap with, skip the thread hand-off.
+            return List.of(invocations.get(0).call());
+        }
+
+        long start = System.nanoTime();
+        List<Future<String>> futures = new ArrayList<>(invocations.size());
+        for (CozeAiToolInvocation invocation : invocations) {
+            futures.add(this.executor.submit(invocation::call));
+        }
+
+        List<String> responses = new ArrayList<>(invocations.size());
+        try {
+            for (int i = 0; i < invocations.size(); i++) {
+                responses.add(await(invocations.get(i), futures.get(i), start));
+            }
+            return responses;
+        }
+        finally {
+            if (responses.size() < invocations.size()) {
+                // One call failed, the others' answers are useless now.
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    private String await(CozeAiToolInvocation invocation, Future<String> future, long start) {
+        Duration timeout = getTimeout(invocation.name());
+        try {
+            if (timeout == null) {
+                return future.get();
+            }
+            long remaining = timeout.toNanos() - (System.nanoTime() - start);
+            return future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException ex) {
+            throw new CozeAiToolExecutionException("Function " + invocation.name() + " did not answer within " + timeout);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CozeAiToolExecutionException("Interrupted while waiting for function " + invocation.name(), ex);
+        }
+        catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new CozeAiToolExecutionException("Function " + invocation.name() + " failed", ex.getCause());
+        }
+    }
+
+    private Duration getTimeout(String name) {
+        Duration timeout = this.timeouts.get(name);
+        return (timeout != null ? timeout : this.defaultTimeout);
+    }
+
+}
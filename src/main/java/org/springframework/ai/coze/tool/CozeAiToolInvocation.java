@@ -0,0 +1,22 @@
+package org.springframework.ai.coze.tool;
+
+import org.springframework.ai.model.function.FunctionCallback;
+
+/**
+ * One tool call requested by the model.
+ *
+ * @param name the function name.
+ * @param arguments the function arguments, as JSON.
+ * @param callback the callback implementing the function.
+ */
+public record CozeAiToolInvocation(String name, String arguments, FunctionCallback callback) {
+
+    /**
+     * Run the function on the calling thread.
+     * @return the function response.
+     */
+    public String call() {
+        return this.callback.call(this.arguments);
+    }
+
+}
@@ -2,7 +2,10 @@ package org.springframework.ai.coze.util;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.time.Duration;
 import java.util.function.Consumer;
 
 public class ApiUtils {
@@ -22,4 +25,70 @@ public class ApiUtils {
         };
     };
 
+    /**
+     * JSON content headers without authentication, the API key is set per request.
+     * @return the header customizer.
+     */
+    public static Consumer<HttpHeaders> getJsonContentHeaders() {
+        return (headers) -> headers.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Extract the HTTP status code of a failed call. Understands the Spring client
+     * exceptions as well as the Spring AI error handler messages ({@code "429 - ..."}).
+     * @param throwable the failure.
+     * @return the status code, or -1 if the failure carries none.
+     */
+    public static int getStatusCode(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RestClientResponseException ex) {
+                return ex.getStatusCode().value();
+            }
+            if (cause instanceof WebClientResponseException ex) {
+                return ex.getStatusCode().value();
+            }
+            String message = cause.getMessage();
+            if (message != null && message.length() > 4 && message.charAt(3) == ' '
+                    && Character.isDigit(message.charAt(0)) && Character.isDigit(message.charAt(1))
+                    && Character.isDigit(message.charAt(2))) {
+                return Integer.parseInt(message, 0, 3, 10);
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Extract the {@code Retry-After} delay (in seconds) of a failed call.
+     * @param throwable the failure.
+     * @return the delay, or {@code null} if the failure carries none.
+     */
+    public static Duration getRetryAfter(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null && cause.getCause() != cause; cause = cause.getCause()) {
+            HttpHeaders headers = null;
+            if (cause instanceof RestClientResponseException ex) {
+                headers = ex.getResponseHeaders();
+            }
+            else if (cause instanceof WebClientResponseException ex) {
+                headers = ex.getHeaders();
+            }
+            if (headers != null) {
+                String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+                if (retryAfter != null) {
+                    try {
+                        return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+                    }
+                    catch (NumberFormatException ex) {
+                        // HTTP-date form, not used by Coze
+                        return null;
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
 }
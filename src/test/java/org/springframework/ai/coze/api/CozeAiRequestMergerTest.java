@@ -0,0 +1,233 @@
+package org.springframework.ai.coze.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.ModelOptionsUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that {@link CozeAiRequestMerger} assembles the same requests as the
+ * {@code ModelOptionsUtils.merge} / {@code copyToTarget} chain the chat client used
+ * before: default options, then runtime options, then the function tools.
+ */
+class CozeAiRequestMergerTest {
+
+    private static final List<CozeAiApi.ChatCompletionMessage> MESSAGES = List.of(
+            new CozeAiApi.ChatCompletionMessage("You are a weather bot", CozeAiApi.ChatCompletionMessage.Role.SYSTEM),
+            new CozeAiApi.ChatCompletionMessage("Weather in Paris?", CozeAiApi.ChatCompletionMessage.Role.USER));
+
+    private static final List<CozeAiApi.FunctionTool> TOOLS = List.of(
+            new CozeAiApi.FunctionTool(new CozeAiApi.FunctionTool.Function("Current weather", "weather",
+                    "{\"type\":\"object\",\"properties\":{\"city\":{\"type\":\"string\"}},\"required\":[\"city\"]}")),
+            new CozeAiApi.FunctionTool(new CozeAiApi.FunctionTool.Function("Current time", "time",
+                    "{\"type\":\"object\",\"properties\":{}}")));
+
+    @Test
+    void noOptions() {
+        CozeAiApi.ChatCompletionRequest request = merged(null, null, null, false);
+
+        assertThat(request).isEqualTo(legacy(null, null, null, false));
+        assertThat(request.messages()).isEqualTo(MESSAGES);
+        assertThat(request.stream()).isFalse();
+        assertThat(request.model()).isNull();
+    }
+
+    @Test
+    void defaultOptionsOnly() {
+        CozeAiChatOptions defaults = defaultOptions();
+
+        CozeAiApi.ChatCompletionRequest request = merged(defaults, null, null, true);
+
+        assertThat(request).isEqualTo(legacy(defaults, null, null, true));
+        assertThat(request.model()).isEqualTo("default-model");
+        assertThat(request.toolChoice()).isEqualTo("auto");
+    }
+
+    @Test
+    void runtimeOptionsOverrideDefaultOptions() {
+        CozeAiChatOptions defaults = defaultOptions();
+        defaults.setToolChoice(null);
+        CozeAiChatOptions runtime = CozeAiChatOptions.builder()
+                .withModel("runtime-model")
+                .withBotId("runtime-bot")
+                .withTemperature(0.2f)
+                .withTopP(0.5f)
+                .withStop(List.of("STOP"))
+                .withToolChoice(CozeAiApi.ChatCompletionRequest.ToolChoice.AUTO)
+                .withMaxToken(256)
+                .withUser("runtime-user")
+                .build();
+
+        CozeAiApi.ChatCompletionRequest request = merged(defaults, runtime, null, false);
+
+        assertThat(request).isEqualTo(legacy(defaults, runtime, null, false));
+        assertThat(request.model()).isEqualTo("runtime-model");
+        assertThat(request.botId()).isEqualTo("runtime-bot");
+        assertThat(request.temperature()).isEqualTo(0.2f);
+        assertThat(request.topP()).isEqualTo(0.5f);
+        assertThat(request.stop()).containsExactly("STOP");
+        assertThat(request.toolChoice()).isEqualTo("auto");
+        assertThat(request.maxTokens()).isEqualTo(256);
+        assertThat(request.user()).isEqualTo("runtime-user");
+        // Not overridden, kept from the defaults.
+        assertThat(request.doSample()).isTrue();
+        assertThat(request.conversationId()).isEqualTo("default-conversation");
+    }
+
+    @Test
+    void runtimeOptionsWithoutValuesKeepDefaultOptions() {
+        CozeAiChatOptions defaults = defaultOptions();
+        CozeAiChatOptions runtime = new CozeAiChatOptions();
+
+        assertThat(merged(defaults, runtime, null, false)).isEqualTo(legacy(defaults, runtime, null, false))
+                .isEqualTo(merged(defaults, null, null, false));
+    }
+
+    @Test
+    void portableRuntimeOptions() {
+        CozeAiChatOptions defaults = defaultOptions();
+        PortableChatOptions runtime = new PortableChatOptions(0.3f, 0.7f, 40);
+
+        // The old chain could not take portable options at all, copyToTarget set top-k.
+        assertThatThrownBy(() -> legacy(defaults, runtime, null, false)).isInstanceOf(RuntimeException.class);
+
+        // They now contribute what copyToTarget was meant to copy, temperature and top-p.
+        CozeAiChatOptions copied = CozeAiChatOptions.builder().withTemperature(0.3f).withTopP(0.7f).build();
+        CozeAiApi.ChatCompletionRequest request = merged(defaults, runtime, null, false);
+        assertThat(request).isEqualTo(legacy(defaults, copied, null, false));
+        assertThat(request.temperature()).isEqualTo(0.3f);
+        assertThat(request.topP()).isEqualTo(0.7f);
+        assertThat(request.model()).isEqualTo("default-model");
+    }
+
+    @Test
+    void functionsEnabledInDefaultAndRuntimeOptions() {
+        CozeAiChatOptions defaults = defaultOptions();
+        defaults.setFunctions(Set.of("weather"));
+        CozeAiChatOptions runtime = CozeAiChatOptions.builder()
+                .withFunction("time")
+                .withTemperature(0.1f)
+                .build();
+
+        CozeAiApi.ChatCompletionRequest request = merged(defaults, runtime, TOOLS, false);
+
+        assertThat(request).isEqualTo(legacy(defaults, runtime, TOOLS, false));
+        assertThat(request.tools()).isEqualTo(TOOLS);
+    }
+
+    @Test
+    void functionToolsReplaceToolsOfTheOptions() {
+        CozeAiChatOptions defaults = defaultOptions();
+        defaults.setTools(List.of(TOOLS.get(1)));
+
+        CozeAiApi.ChatCompletionRequest request = merged(defaults, null, List.of(TOOLS.get(0)), false);
+
+        assertThat(request).isEqualTo(legacy(defaults, null, List.of(TOOLS.get(0)), false));
+        assertThat(request.tools()).containsExactly(TOOLS.get(0));
+    }
+
+    @Test
+    void compileSnapshotsDefaultOptions() {
+        CozeAiChatOptions defaults = defaultOptions();
+        CozeAiApi.ChatCompletionRequest snapshot = CozeAiRequestMerger.compile(defaults);
+
+        defaults.setModel("changed-model");
+        defaults.setTemperature(0.9f);
+
+        // The template keeps the values it was compiled with.
+        assertThat(snapshot.model()).isEqualTo("default-model");
+        assertThat(snapshot.temperature()).isEqualTo(0.8f);
+        // Compiling again picks up the changes.
+        CozeAiApi.ChatCompletionRequest request = merged(defaults, null, null, false);
+        assertThat(request).isEqualTo(legacy(defaults, null, null, false));
+        assertThat(request.model()).isEqualTo("changed-model");
+    }
+
+    private static CozeAiChatOptions defaultOptions() {
+        CozeAiChatOptions options = CozeAiChatOptions.builder()
+                .withModel("default-model")
+                .withBotId("default-bot")
+                .withConversationId("default-conversation")
+                .withTemperature(0.8f)
+                .withTopP(0.9f)
+                .withMaxToken(1024)
+                .withDoSample(true)
+                .withUser("default-user")
+                .withToolChoice(CozeAiApi.ChatCompletionRequest.ToolChoice.AUTO)
+                .build();
+        // No request counterpart, dropped by both.
+        options.getVariables().put("city", "Paris");
+        return options;
+    }
+
+    /**
+     * The request assembly of the chat client.
+     */
+    private static CozeAiApi.ChatCompletionRequest merged(CozeAiChatOptions defaults, ChatOptions runtime,
+                                                          List<CozeAiApi.FunctionTool> tools, boolean stream) {
+        CozeAiApi.ChatCompletionRequest request = CozeAiRequestMerger
+                .withMessages(CozeAiRequestMerger.compile(defaults), null, MESSAGES, stream);
+        request = CozeAiRequestMerger.merge(CozeAiRequestMerger.toCozeAiChatOptions(runtime), request);
+        return (tools != null ? CozeAiRequestMerger.withTools(request, tools) : request);
+    }
+
+    /**
+     * The request assembly of the chat client before {@link CozeAiRequestMerger}.
+     */
+    private static CozeAiApi.ChatCompletionRequest legacy(CozeAiChatOptions defaults, ChatOptions runtime,
+                                                          List<CozeAiApi.FunctionTool> tools, boolean stream) {
+        var request = new CozeAiApi.ChatCompletionRequest(null, MESSAGES, stream);
+        if (defaults != null) {
+            request = ModelOptionsUtils.merge(request, defaults, CozeAiApi.ChatCompletionRequest.class);
+        }
+        if (runtime != null) {
+            var runtimeOptions = ModelOptionsUtils.copyToTarget(runtime, ChatOptions.class, CozeAiChatOptions.class);
+            request = ModelOptionsUtils.merge(runtimeOptions, request, CozeAiApi.ChatCompletionRequest.class);
+        }
+        if (tools != null) {
+            request = ModelOptionsUtils.merge(CozeAiChatOptions.builder().withTools(tools).build(), request,
+                    CozeAiApi.ChatCompletionRequest.class);
+        }
+        return request;
+    }
+
+    /**
+     * Runtime options that are not {@link CozeAiChatOptions}.
+     */
+    public static class PortableChatOptions implements ChatOptions {
+
+        private final Float temperature;
+
+        private final Float topP;
+
+        private final Integer topK;
+
+        PortableChatOptions(Float temperature, Float topP, Integer topK) {
+            this.temperature = temperature;
+            this.topP = topP;
+            this.topK = topK;
+        }
+
+        @Override
+        public Float getTemperature() {
+            return this.temperature;
+        }
+
+        @Override
+        public Float getTopP() {
+            return this.topP;
+        }
+
+        @Override
+        public Integer getTopK() {
+            return this.topK;
+        }
+
+    }
+
+}